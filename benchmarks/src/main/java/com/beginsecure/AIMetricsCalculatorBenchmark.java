@@ -0,0 +1,48 @@
+package com.beginsecure;
+
+import com.beginsecure.bench.SyntheticRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Abstractness/instability computation over a whole synthetic repository. The peer scan is
+ * quadratic in the number of classes (one regex per file and peer), so the default sizes stop at
+ * 2000 to keep a full run under an hour; pass {@code -p classes=10000,50000} to measure the large
+ * end once the scan is no longer quadratic.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+public class AIMetricsCalculatorBenchmark {
+
+    @Param({"100", "500", "2000"})
+    public int classes;
+
+    private List<Square> squares;
+
+    @Setup
+    public void generate() {
+        squares = SyntheticRepository.generate(classes, SyntheticRepository.DEFAULT_SEED);
+    }
+
+    @Benchmark
+    public List<Square> computeAll() {
+        AIMetricsCalculator.computeAll(squares);
+        return squares;
+    }
+}
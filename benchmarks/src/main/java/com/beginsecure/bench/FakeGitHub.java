@@ -0,0 +1,293 @@
+package com.beginsecure.bench;
+
+import com.beginsecure.Square;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * In-process stand-in for GitHub serving one {@link SyntheticRepository}: the recursive git trees
+ * API, the branch head commit, raw file content and a zipball archive. Latency, bandwidth, error rate and the API rate
+ * limit are configurable, and every response carries GitHub's {@code X-RateLimit-*} headers.
+ * <p>
+ * Routes, relative to {@link #apiBase()} and {@link #rawBase()}:
+ * {@code /repos/{owner}/{repo}/git/trees/{ref}}, {@code /repos/{owner}/{repo}/commits/{ref}} (sha
+ * only, derived from the seed), {@code /repos/{owner}/{repo}/zipball/{ref}} and
+ * {@code /{owner}/{repo}/{ref}/{path}}. Owner, repository and ref are not checked.
+ */
+public final class FakeGitHub implements AutoCloseable {
+
+    private static final byte[] PACKAGE_INFO = "Synthetic package notes.\n".getBytes(StandardCharsets.UTF_8);
+    private static final int CHUNK = 8 * 1024;
+
+    /**
+     * @param latencyMillis  delay before every response
+     * @param jitterMillis   extra uniformly random delay, up to this much
+     * @param bytesPerSecond per-response bandwidth cap; 0 for unlimited
+     * @param errorRate      fraction of requests answered with 502
+     * @param rateLimit      API requests allowed before answering 403 "rate limit exceeded"
+     */
+    public record Options(long latencyMillis, long jitterMillis, long bytesPerSecond, double errorRate,
+                          int rateLimit) {
+        public static Options defaults() {
+            return new Options(0, 0, 0, 0.0, 5000);
+        }
+    }
+
+    /**
+     * Counters since the last {@link #resetStats()}.
+     */
+    public record Stats(long requests, long treeRequests, long rawRequests, long archiveRequests,
+                        long bytesSent, long injectedErrors, long rateLimited) { }
+
+    private final Options options;
+    private final long seed;
+    private final Map<String, byte[]> files = new HashMap<>();
+    private final byte[] tree;
+    private final byte[] head;
+    private volatile byte[] archive;
+    private final HttpServer server;
+    private final ExecutorService workers;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong treeRequests = new AtomicLong();
+    private final AtomicLong rawRequests = new AtomicLong();
+    private final AtomicLong archiveRequests = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicLong injectedErrors = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+    private final AtomicLong apiUsed = new AtomicLong();
+
+    public FakeGitHub(int classes, long seed, Options options) throws IOException {
+        this.options = options;
+        this.seed = seed;
+        for (Square square : SyntheticRepository.generate(classes, seed)) {
+            files.put(square.getPath(), square.getSource().getBytes(StandardCharsets.UTF_8));
+        }
+        this.tree = SyntheticRepository.treeJson(classes, seed).getBytes(StandardCharsets.UTF_8);
+        this.head = String.format("%016x%016x%08x", seed, (long) classes, classes ^ (int) seed)
+                .getBytes(StandardCharsets.UTF_8);
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 128);
+        workers = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "fake-github");
+            t.setDaemon(true);
+            return t;
+        });
+        server.setExecutor(workers);
+        server.createContext("/api/", this::handleApi);
+        server.createContext("/raw/", this::handleRaw);
+        server.start();
+    }
+
+    public String apiBase() {
+        return base() + "/api";
+    }
+
+    public String rawBase() {
+        return base() + "/raw";
+    }
+
+    /**
+     * A repository URL the application accepts; only its owner/repo/ref parts are used.
+     */
+    public String repositoryUrl() {
+        return "https://github.com/acme/synthetic";
+    }
+
+    /**
+     * Points the application's GitHub client at this server.
+     */
+    public void install() {
+        System.setProperty("githubviz.github.api", apiBase());
+        System.setProperty("githubviz.github.raw", rawBase());
+    }
+
+    public int fileCount() {
+        return files.size();
+    }
+
+    public Stats stats() {
+        return new Stats(requests.get(), treeRequests.get(), rawRequests.get(), archiveRequests.get(),
+                bytesSent.get(), injectedErrors.get(), rateLimited.get());
+    }
+
+    /**
+     * Zeroes the counters and restores the full API rate limit.
+     */
+    public void resetStats() {
+        for (AtomicLong counter : List.of(requests, treeRequests, rawRequests, archiveRequests, bytesSent,
+                injectedErrors, rateLimited, apiUsed)) {
+            counter.set(0);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        workers.shutdownNow();
+    }
+
+    private String base() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    private void handleApi(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            drain(exchange);
+            long n = requests.incrementAndGet();
+            long used = apiUsed.incrementAndGet();
+            rateLimitHeaders(exchange, used);
+            delay(n);
+            if (used > options.rateLimit()) {
+                rateLimited.incrementAndGet();
+                send(exchange, 403, "application/json",
+                        "{\"message\":\"API rate limit exceeded for 127.0.0.1.\"}".getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            if (injectError(n)) {
+                send(exchange, 502, "text/plain", "Bad gateway".getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            String[] parts = exchange.getRequestURI().getPath().split("/");
+            // "", "api", "repos", owner, repo, ...
+            if (parts.length >= 8 && "repos".equals(parts[2]) && "git".equals(parts[5]) && "trees".equals(parts[6])) {
+                treeRequests.incrementAndGet();
+                send(exchange, 200, "application/json", tree);
+            } else if (parts.length >= 7 && "repos".equals(parts[2]) && "commits".equals(parts[5])) {
+                send(exchange, 200, "application/vnd.github.sha", head);
+            } else if (parts.length >= 7 && "repos".equals(parts[2]) && "zipball".equals(parts[5])) {
+                archiveRequests.incrementAndGet();
+                send(exchange, 200, "application/zip", archive());
+            } else {
+                send(exchange, 404, "application/json", "{\"message\":\"Not Found\"}".getBytes(StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    private void handleRaw(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            drain(exchange);
+            long n = requests.incrementAndGet();
+            rawRequests.incrementAndGet();
+            delay(n);
+            if (injectError(n)) {
+                send(exchange, 502, "text/plain", "Bad gateway".getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            // "", "raw", owner, repo, ref, path...
+            String[] parts = exchange.getRequestURI().getPath().split("/", 6);
+            String path = parts.length == 6 ? parts[5] : "";
+            byte[] body = files.get(path);
+            if (body == null && path.endsWith("/package-info.txt")) body = PACKAGE_INFO;
+            if (body == null) {
+                send(exchange, 404, "text/plain", "404: Not Found".getBytes(StandardCharsets.UTF_8));
+            } else {
+                send(exchange, 200, "text/plain; charset=utf-8", body);
+            }
+        }
+    }
+
+    private void rateLimitHeaders(HttpExchange exchange, long used) {
+        var headers = exchange.getResponseHeaders();
+        headers.add("X-RateLimit-Limit", String.valueOf(options.rateLimit()));
+        headers.add("X-RateLimit-Remaining", String.valueOf(Math.max(0, options.rateLimit() - used)));
+        headers.add("X-RateLimit-Used", String.valueOf(Math.min(used, options.rateLimit())));
+        headers.add("X-RateLimit-Reset", String.valueOf(System.currentTimeMillis() / 1000 + 3600));
+        headers.add("X-RateLimit-Resource", "core");
+    }
+
+    /**
+     * Whether request {@code n} fails; derived from the seed, so a run injects the same number of
+     * errors however requests interleave.
+     */
+    private boolean injectError(long n) {
+        if (options.errorRate() <= 0) return false;
+        if (new SplittableRandom(seed * 31 + n).nextDouble() >= options.errorRate()) return false;
+        injectedErrors.incrementAndGet();
+        return true;
+    }
+
+    private void delay(long n) {
+        long millis = options.latencyMillis();
+        if (options.jitterMillis() > 0) {
+            millis += new SplittableRandom(seed * 17 + n).nextLong(options.jitterMillis() + 1);
+        }
+        if (millis <= 0) return;
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writes the body in chunks, sleeping between them to hold the configured bandwidth.
+     */
+    private void send(HttpExchange exchange, int code, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", contentType);
+        exchange.sendResponseHeaders(code, body.length);
+        OutputStream out = exchange.getResponseBody();
+        long bps = options.bytesPerSecond();
+        long start = System.nanoTime();
+        for (int off = 0; off < body.length; off += CHUNK) {
+            int len = Math.min(CHUNK, body.length - off);
+            out.write(body, off, len);
+            if (bps > 0) {
+                long due = start + (off + len) * 1_000_000_000L / bps;
+                long wait = due - System.nanoTime();
+                if (wait > 0) {
+                    out.flush();
+                    try {
+                        Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+            }
+        }
+        bytesSent.addAndGet(body.length);
+    }
+
+    private byte[] archive() throws IOException {
+        byte[] zip = archive;
+        if (zip != null) return zip;
+        synchronized (this) {
+            if (archive == null) {
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                try (ZipOutputStream out = new ZipOutputStream(buffer)) {
+                    for (Map.Entry<String, byte[]> file : files.entrySet()) {
+                        out.putNextEntry(new ZipEntry("acme-synthetic/" + file.getKey()));
+                        out.write(file.getValue());
+                        out.closeEntry();
+                    }
+                }
+                archive = buffer.toByteArray();
+            }
+            return archive;
+        }
+    }
+
+    private static void drain(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.beginsecure.bench;
+
+import com.beginsecure.Blackboard;
+import com.beginsecure.handlers.Delegate;
+
+import java.beans.PropertyChangeListener;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * End-to-end load test of the GUI load path: starts a {@link FakeGitHub}, points the application
+ * at it and runs {@link Delegate#run()} against it several times, reporting wall time, request
+ * count, throughput and peak heap for each run. Snapshots are neither reused nor saved, so every
+ * run fetches the whole repository and none pays for writing one; the background source index
+ * each load starts is waited for outside the measurement, so it does not overlap the next run.
+ * A run fails if the load reports an error, or if the server sent error responses (see
+ * {@code --error-rate} and {@code --rate-limit}) that the load did not report.
+ * <p>
+ * Usage: {@code [--classes n] [--runs n] [--latency ms] [--jitter ms] [--bandwidth bytes/s]
+ * [--error-rate 0..1] [--rate-limit n] [--seed n]}
+ */
+public final class LoadTest {
+
+    private static final int EXIT_OK = 0;
+    private static final int EXIT_FAILURE = 1;
+    private static final int EXIT_USAGE = 2;
+
+    private static final String USAGE = "Usage: [--classes n] [--runs n] [--latency ms] [--jitter ms] "
+            + "[--bandwidth bytes/s] [--error-rate 0..1] [--rate-limit n] [--seed n]";
+
+    record Run(long wallMillis, int files, FakeGitHub.Stats stats, long peakHeapBytes, String error) { }
+
+    private LoadTest() { }
+
+    public static void main(String[] args) throws IOException {
+        System.exit(run(args));
+    }
+
+    static int run(String[] args) throws IOException {
+        int classes = 500;
+        int runs = 3;
+        long seed = SyntheticRepository.DEFAULT_SEED;
+        FakeGitHub.Options defaults = FakeGitHub.Options.defaults();
+        long latency = defaults.latencyMillis();
+        long jitter = defaults.jitterMillis();
+        long bandwidth = defaults.bytesPerSecond();
+        double errorRate = defaults.errorRate();
+        int rateLimit = defaults.rateLimit();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--classes" -> classes = Integer.parseInt(args[++i]);
+                    case "--runs" -> runs = Integer.parseInt(args[++i]);
+                    case "--latency" -> latency = Long.parseLong(args[++i]);
+                    case "--jitter" -> jitter = Long.parseLong(args[++i]);
+                    case "--bandwidth" -> bandwidth = Long.parseLong(args[++i]);
+                    case "--error-rate" -> errorRate = Double.parseDouble(args[++i]);
+                    case "--rate-limit" -> rateLimit = Integer.parseInt(args[++i]);
+                    case "--seed" -> seed = Long.parseLong(args[++i]);
+                    case "--help", "-h" -> {
+                        System.out.println(USAGE);
+                        return EXIT_OK;
+                    }
+                    default -> throw new IllegalArgumentException(args[i]);
+                }
+            }
+            if (classes <= 0 || runs <= 0 || errorRate < 0 || errorRate > 1) throw new IllegalArgumentException();
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            System.err.println(USAGE);
+            return EXIT_USAGE;
+        }
+
+        System.setProperty("java.awt.headless", "true");
+        System.setProperty("user.home", Files.createTempDirectory("githubviz-loadtest").toString());
+        System.setProperty("githubviz.snapshot.save", "false");
+        FakeGitHub.Options options = new FakeGitHub.Options(latency, jitter, bandwidth, errorRate, rateLimit);
+        List<Run> results = new ArrayList<>();
+        try (FakeGitHub github = new FakeGitHub(classes, seed, options)) {
+            github.install();
+            System.out.printf(Locale.ROOT, "Fake GitHub at %s: %d files, latency %d+%d ms, bandwidth %s, "
+                            + "error rate %.3f, rate limit %d%n", github.apiBase(), github.fileCount(), latency, jitter,
+                    bandwidth > 0 ? bandwidth + " B/s" : "unlimited", errorRate, rateLimit);
+            System.out.println("run      wall ms   files  requests     req/s      MB/s   errors  limited  peak heap MB");
+            for (int i = 1; i <= runs; i++) {
+                Run result = once(github);
+                results.add(result);
+                print(String.valueOf(i), result);
+            }
+        }
+
+        List<Run> ok = results.stream().filter(r -> r.error() == null).toList();
+        if (!ok.isEmpty()) {
+            Run median = ok.stream().sorted((a, b) -> Long.compare(a.wallMillis(), b.wallMillis()))
+                    .toList().get(ok.size() / 2);
+            print("median", median);
+        }
+        results.stream().filter(r -> r.error() != null)
+                .forEach(r -> System.out.println("failed: " + r.error()));
+        return ok.size() == results.size() ? EXIT_OK : EXIT_FAILURE;
+    }
+
+    private static Run once(FakeGitHub github) {
+        Blackboard board = Blackboard.getInstance();
+        AtomicReference<String> error = new AtomicReference<>();
+        PropertyChangeListener onError = evt -> {
+            if ("error".equals(evt.getPropertyName())) error.compareAndSet(null, String.valueOf(evt.getNewValue()));
+        };
+        board.addPropertyChangeListener(onError);
+
+        System.gc();
+        List<MemoryPoolMXBean> heap = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(p -> p.getType() == MemoryType.HEAP)
+                .toList();
+        heap.forEach(MemoryPoolMXBean::resetPeakUsage);
+        github.resetStats();
+
+        long start = System.nanoTime();
+        new Delegate(github.repositoryUrl(), false).run();
+        long wall = (System.nanoTime() - start) / 1_000_000;
+
+        long peak = heap.stream().mapToLong(p -> p.getPeakUsage().getUsed()).sum();
+        board.removePropertyChangeListener(onError);
+        FakeGitHub.Stats stats = github.stats();
+        long failedResponses = stats.injectedErrors() + stats.rateLimited();
+        // A load that got error responses but reported nothing would have analyzed error bodies.
+        if (error.get() == null && failedResponses > 0) {
+            error.set(failedResponses + " error responses were served but the load reported no failure");
+        }
+        Run run = new Run(wall, board.getSquares().size(), stats, peak, error.get());
+        board.getSourceIndex(); // waits for this load's index build
+        return run;
+    }
+
+    private static void print(String label, Run run) {
+        FakeGitHub.Stats s = run.stats();
+        double seconds = Math.max(run.wallMillis(), 1) / 1000.0;
+        System.out.printf(Locale.ROOT, "%-6s %10d %7d %9d %9.1f %9.2f %8d %8d %13.1f%n", label, run.wallMillis(),
+                run.files(), s.requests(), s.requests() / seconds, s.bytesSent() / seconds / (1 << 20),
+                s.injectedErrors(), s.rateLimited(), run.peakHeapBytes() / (double) (1 << 20));
+    }
+}
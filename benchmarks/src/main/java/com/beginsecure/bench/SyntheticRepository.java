@@ -0,0 +1,213 @@
+package com.beginsecure.bench;
+
+import com.beginsecure.Square;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic generator of Java-like repositories for the benchmarks. The same size and seed
+ * always produce byte-identical sources, so numbers from different runs and branches compare.
+ * Classes are grouped 40 to a package and 25 packages to a module; about a tenth are interfaces
+ * and a tenth abstract classes. Each file carries the things the analysers look for and have to
+ * skip: extends/implements clauses, final and non-final fields of peer types, constructor
+ * injection, block and line comments, and string and char literals that mention peer names.
+ */
+public final class SyntheticRepository {
+
+    public static final long DEFAULT_SEED = 42L;
+
+    private static final int CLASSES_PER_PACKAGE = 40;
+    private static final int PACKAGES_PER_MODULE = 25;
+
+    private SyntheticRepository() { }
+
+    /**
+     * @return {@code classes} squares with their sources set; metrics are not computed
+     */
+    public static List<Square> generate(int classes, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<Square> squares = new ArrayList<>(classes);
+        for (int i = 0; i < classes; i++) {
+            String source = source(i, classes, random);
+            Square square = new Square(path(i), countLines(source));
+            square.setSource(source);
+            squares.add(square);
+        }
+        return squares;
+    }
+
+    /**
+     * A git trees API response ({@code ?recursive=1}) listing the repository's folders, its Java
+     * files and a few non-Java files per package, as {@code GitHubHandler} receives it.
+     */
+    public static String treeJson(int classes, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        StringBuilder json = new StringBuilder(classes * 190 + 256);
+        json.append("{\"sha\":\"").append(sha(random)).append("\",\"url\":\"https://api.github.com/repos/acme/synthetic/git/trees/main\",\"tree\":[");
+        boolean first = true;
+        for (int i = 0; i < classes; i++) {
+            if (i % CLASSES_PER_PACKAGE == 0) {
+                String dir = packageDir(i);
+                first = entry(json, first, dir, "040000", "tree", sha(random), -1);
+                first = entry(json, first, dir + "/package-info.txt", "100644", "blob", sha(random), 120);
+            }
+            first = entry(json, first, path(i), "100644", "blob", sha(random), 800 + random.nextInt(4000));
+        }
+        json.append("],\"truncated\":false}");
+        return json.toString();
+    }
+
+    private static boolean entry(StringBuilder json, boolean first, String path, String mode, String type,
+                                 String sha, int size) {
+        if (!first) json.append(',');
+        json.append("{\"path\":\"").append(path).append("\",\"mode\":\"").append(mode)
+                .append("\",\"type\":\"").append(type).append("\",\"sha\":\"").append(sha).append('"');
+        if (size >= 0) json.append(",\"size\":").append(size);
+        json.append(",\"url\":\"https://api.github.com/repos/acme/synthetic/git/").append(type)
+                .append("s/").append(sha).append("\"}");
+        return false;
+    }
+
+    private static String sha(SplittableRandom random) {
+        return String.format("%016x%016x%08x", random.nextLong(), random.nextLong(), random.nextInt());
+    }
+
+    private static String packageName(int index) {
+        int pkg = index / CLASSES_PER_PACKAGE;
+        return "com.acme.m" + (pkg / PACKAGES_PER_MODULE) + ".p" + pkg;
+    }
+
+    private static String packageDir(int index) {
+        return "src/main/java/" + packageName(index).replace('.', '/');
+    }
+
+    private static String path(int index) {
+        return packageDir(index) + "/" + name(index) + ".java";
+    }
+
+    private static String name(int index) {
+        return switch (index % 10) {
+            case 0 -> "Api" + index;
+            case 1 -> "AbstractBase" + index;
+            default -> "Type" + index;
+        };
+    }
+
+    private static boolean isInterface(int index) {
+        return index % 10 == 0;
+    }
+
+    private static boolean isAbstract(int index) {
+        return index % 10 == 1;
+    }
+
+    /**
+     * A peer, mostly from the same package and otherwise from anywhere in the repository.
+     */
+    private static int peer(int self, int classes, SplittableRandom random) {
+        if (classes < 2) return self;
+        int base = (self / CLASSES_PER_PACKAGE) * CLASSES_PER_PACKAGE;
+        int span = Math.min(CLASSES_PER_PACKAGE, classes - base);
+        int other = random.nextInt(4) > 0 && span > 1 ? base + random.nextInt(span) : random.nextInt(classes);
+        return other == self ? (self + 1) % classes : other;
+    }
+
+    private static int peerOfKind(int self, int classes, int kind, SplittableRandom random) {
+        if (classes <= 10) return -1;
+        int p = peer(self, classes, random);
+        int candidate = p - (p % 10) + kind;
+        if (candidate >= classes) candidate -= 10;
+        return candidate == self || candidate < 0 ? -1 : candidate;
+    }
+
+    private static String source(int index, int classes, SplittableRandom random) {
+        String name = name(index);
+        StringBuilder sb = new StringBuilder(4096);
+        sb.append("/*\n * Copyright (c) Acme. Licensed under the Apache License, Version 2.0.\n")
+                .append(" * Generated for benchmarks; mentions of Type").append(peer(index, classes, random))
+                .append(" in this header must be ignored.\n */\n");
+        sb.append("package ").append(packageName(index)).append(";\n\n");
+        sb.append("import java.util.List;\nimport java.util.Map;\nimport java.util.Objects;\n\n");
+        sb.append("/**\n * ").append(name).append(" coordinates work for its package.\n */\n");
+
+        if (isInterface(index)) {
+            sb.append("public interface ").append(name).append(" {\n");
+            int methods = 2 + random.nextInt(5);
+            for (int m = 0; m < methods; m++) {
+                sb.append("    // contract ").append(m).append('\n');
+                sb.append("    ").append(name(peer(index, classes, random))).append(" op").append(m)
+                        .append("(String key, int attempt);\n");
+            }
+            return sb.append("}\n").toString();
+        }
+
+        sb.append("public ").append(isAbstract(index) ? "abstract " : "").append("class ").append(name);
+        int parent = peerOfKind(index, classes, 1, random);
+        if (parent >= 0 && random.nextInt(3) == 0) sb.append(" extends ").append(name(parent));
+        int api = peerOfKind(index, classes, 0, random);
+        if (api >= 0 && random.nextInt(2) == 0) sb.append(" implements ").append(name(api));
+        sb.append(" {\n\n");
+
+        int fields = 1 + random.nextInt(5);
+        List<String> injected = new ArrayList<>();
+        List<Integer> finalFields = new ArrayList<>();
+        for (int f = 0; f < fields; f++) {
+            String type = name(peer(index, classes, random));
+            boolean fin = random.nextBoolean();
+            sb.append("    private ").append(fin ? "final " : "").append(type).append(" field").append(f)
+                    .append(fin ? ";\n" : " = null;\n");
+            if (fin) {
+                injected.add(type);
+                finalFields.add(f);
+            }
+        }
+        sb.append("    private static final String LABEL = \"").append(name).append(" uses ")
+                .append(name(peer(index, classes, random))).append(" // not a comment\";\n");
+        sb.append("    private char separator = '#';\n\n");
+
+        sb.append("    public ").append(name).append('(');
+        for (int p = 0; p < injected.size(); p++) {
+            if (p > 0) sb.append(", ");
+            sb.append(injected.get(p)).append(" dep").append(p);
+        }
+        sb.append(") {\n");
+        for (int p = 0; p < finalFields.size(); p++) {
+            sb.append("        this.field").append(finalFields.get(p)).append(" = dep").append(p).append(";\n");
+        }
+        sb.append("    }\n\n");
+
+        int methods = 2 + random.nextInt(8);
+        for (int m = 0; m < methods; m++) {
+            String returned = name(peer(index, classes, random));
+            sb.append("    /**\n     * Step ").append(m).append(" of the pipeline; see {@link ").append(returned)
+                    .append("}.\n     */\n");
+            sb.append("    public ").append(returned).append(" step").append(m)
+                    .append("(Map<String, List<Integer>> input) {\n");
+            int body = 2 + random.nextInt(10);
+            for (int b = 0; b < body; b++) {
+                switch (random.nextInt(4)) {
+                    case 0 -> sb.append("        // TODO revisit ").append(name(peer(index, classes, random)))
+                            .append(" handling\n");
+                    case 1 -> sb.append("        String s").append(b).append(" = \"value \\\"").append(b)
+                            .append("\\\" for ").append(name(peer(index, classes, random))).append("\";\n");
+                    case 2 -> sb.append("        Objects.requireNonNull(input.get(\"k").append(b)
+                            .append("\"), LABEL + separator);\n");
+                    default -> sb.append("        /* inline */ int v").append(b).append(" = input.size() * ")
+                            .append(b + 1).append(";\n");
+                }
+            }
+            sb.append("        return null;\n    }\n\n");
+        }
+        return sb.append("}\n").toString();
+    }
+
+    private static int countLines(String source) {
+        int count = 0;
+        for (String line : source.split("\\r?\\n")) {
+            if (!line.trim().isEmpty()) count++;
+        }
+        return count;
+    }
+}
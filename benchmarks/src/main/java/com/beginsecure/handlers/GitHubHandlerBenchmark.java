@@ -0,0 +1,50 @@
+package com.beginsecure.handlers;
+
+import com.beginsecure.bench.SyntheticRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of the recursive git trees response behind {@link GitHubHandler#listFilesRecursive},
+ * without the network round trip.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class GitHubHandlerBenchmark {
+
+    @Param({"100", "1000", "10000", "50000"})
+    public int classes;
+
+    private String treeJson;
+
+    @Setup
+    public void generate() {
+        treeJson = SyntheticRepository.treeJson(classes, SyntheticRepository.DEFAULT_SEED);
+    }
+
+    @Benchmark
+    public List<GitHubHandler.Blob> parseWholeTree() {
+        return GitHubHandler.parseTree(treeJson, "");
+    }
+
+    @Benchmark
+    public List<GitHubHandler.Blob> parseUnderPrefix() {
+        return GitHubHandler.parseTree(treeJson, "src/main/java/com/acme/m0");
+    }
+}
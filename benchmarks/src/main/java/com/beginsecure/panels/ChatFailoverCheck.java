@@ -0,0 +1,333 @@
+package com.beginsecure.panels;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Offline checks of {@link HedgedChatClient} against an in-process OpenAI-compatible stand-in that
+ * streams server-sent events with scripted delays and failures: the hedge threshold, cancellation
+ * of the losing request, immediate failover when the primary fails, circuit breaker open /
+ * half-open / close transitions, and error messages naming the providers that failed. Prints one
+ * line per check and exits non-zero if any fails.
+ * <p>
+ * Usage: {@code java -cp target/benchmarks.jar com.beginsecure.panels.ChatFailoverCheck}
+ */
+public final class ChatFailoverCheck {
+
+    private static final int EXIT_OK = 0;
+    private static final int EXIT_FAILURE = 1;
+    private static final long COOLDOWN_MILLIS = 300;
+
+    /**
+     * How an endpoint answers: {@code status} other than 200 fails at once with that code;
+     * otherwise the headers are sent immediately and the first token follows after the delay.
+     */
+    record Behavior(int status, long firstTokenMillis, int tokens, long tokenIntervalMillis) {
+        static Behavior streaming(long firstTokenMillis) {
+            return new Behavior(200, firstTokenMillis, 40, 20);
+        }
+
+        static Behavior failing(int status) {
+            return new Behavior(status, 0, 0, 0);
+        }
+    }
+
+    private final StandIn server;
+    private final List<String> failures = new ArrayList<>();
+    private int idSequence;
+
+    private ChatFailoverCheck(StandIn server) {
+        this.server = server;
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.exit(run());
+    }
+
+    static int run() throws Exception {
+        // Must be set before CircuitBreaker is loaded.
+        System.setProperty("githubviz.chat.breakerCooldownMillis", String.valueOf(COOLDOWN_MILLIS));
+        try (StandIn server = new StandIn()) {
+            ChatFailoverCheck check = new ChatFailoverCheck(server);
+            check.run("fast primary is not hedged", check::fastPrimaryIsNotHedged);
+            check.run("slow primary is hedged after the delay", check::slowPrimaryIsHedged);
+            check.run("losing request is cancelled", check::loserIsCancelled);
+            check.run("failing primary fails over at once", check::failingPrimaryFailsOver);
+            check.run("errors name every failed provider", check::errorsNameFailedProviders);
+            check.run("breaker opens, half-opens and closes", check::breakerCycles);
+            check.run("failed half-open trial reopens the breaker", check::failedTrialReopens);
+            System.out.println(check.failures.isEmpty() ? "All checks passed."
+                    : check.failures.size() + " check(s) failed: " + String.join(", ", check.failures));
+            return check.failures.isEmpty() ? EXIT_OK : EXIT_FAILURE;
+        }
+    }
+
+    private interface Check {
+        void run() throws Exception;
+    }
+
+    private void run(String name, Check check) {
+        try {
+            check.run();
+            System.out.println("PASS  " + name);
+        } catch (Throwable t) {
+            failures.add(name);
+            System.out.println("FAIL  " + name + ": " + t);
+        }
+    }
+
+    private void fastPrimaryIsNotHedged() throws Exception {
+        Endpoint a = server.endpoint(Behavior.streaming(20));
+        Endpoint b = server.endpoint(Behavior.streaming(0));
+        HedgedChatClient client = client(a, "Alpha", b, "Beta", 500);
+        HedgedChatClient.Reply reply = ask(client);
+        expect(reply.provider().displayName().equals("Alpha"), "winner " + reply.provider().displayName());
+        expect(b.requests.get() == 0, "secondary asked " + b.requests.get() + " times");
+    }
+
+    private void slowPrimaryIsHedged() throws Exception {
+        long hedge = 300;
+        Endpoint a = server.endpoint(Behavior.streaming(2_000));
+        Endpoint b = server.endpoint(Behavior.streaming(0));
+        HedgedChatClient client = client(a, "Alpha", b, "Beta", hedge);
+        long start = System.nanoTime();
+        HedgedChatClient.Reply reply = ask(client);
+        long hedgedAfter = (b.firstRequestNanos.get() - start) / 1_000_000;
+        expect(reply.provider().displayName().equals("Beta"), "winner " + reply.provider().displayName());
+        expect(hedgedAfter >= hedge && hedgedAfter < hedge + 1_000, "secondary asked after " + hedgedAfter + " ms");
+    }
+
+    private void loserIsCancelled() throws Exception {
+        Endpoint a = server.endpoint(Behavior.streaming(800));
+        Endpoint b = server.endpoint(Behavior.streaming(0));
+        HedgedChatClient client = client(a, "Alpha", b, "Beta", 100);
+        ask(client);
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (a.aborted.get() == 0 && System.nanoTime() < deadline) Thread.sleep(20);
+        expect(a.aborted.get() == 1, "primary stream aborted " + a.aborted.get() + " times");
+        expect(a.completed.get() == 0, "primary stream ran to completion");
+        // Losing a race is not a failure.
+        expect(breaker(a).state() == CircuitBreaker.State.CLOSED, "primary breaker " + breaker(a).state());
+    }
+
+    private void failingPrimaryFailsOver() throws Exception {
+        Endpoint a = server.endpoint(Behavior.failing(500));
+        Endpoint b = server.endpoint(Behavior.streaming(0));
+        HedgedChatClient client = client(a, "Alpha", b, "Beta", 10_000);
+        long start = System.nanoTime();
+        HedgedChatClient.Reply reply = ask(client);
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        expect(reply.provider().displayName().equals("Beta"), "winner " + reply.provider().displayName());
+        expect(millis < 2_000, "failover took " + millis + " ms with a 10 s hedge delay");
+    }
+
+    private void errorsNameFailedProviders() throws Exception {
+        Endpoint a = server.endpoint(Behavior.failing(500));
+        Endpoint b = server.endpoint(Behavior.failing(503));
+        HedgedChatClient.ProviderFailureException e = askFailing(client(a, "Alpha", b, "Beta", 10_000));
+        expect(e.failed().equals(List.of("Alpha", "Beta")), "failed " + e.failed());
+        expect(e.getMessage().contains("Alpha") && e.getMessage().contains("Beta")
+                && e.getMessage().contains("500") && e.getMessage().contains("503"), e.getMessage());
+
+        // Only the secondary was asked: the message must not blame the primary for failing.
+        Endpoint c = server.endpoint(Behavior.failing(502));
+        HedgedChatClient noPrimaryKey = new HedgedChatClient(
+                new ChatCompletionClient(provider("Gamma", server.endpoint(Behavior.streaming(0))), () -> ""),
+                new ChatCompletionClient(provider("Delta", c), () -> "stand-in-key"), 10_000);
+        e = askFailing(noPrimaryKey);
+        expect(e.failed().equals(List.of("Delta")), "failed " + e.failed());
+        expect(e.getMessage().contains("Gamma: no API key"), e.getMessage());
+    }
+
+    private void breakerCycles() throws Exception {
+        Endpoint a = server.endpoint(Behavior.failing(500));
+        HedgedChatClient client = primaryOnly(a);
+        for (int i = 0; i < 3; i++) askFailing(client);
+        expect(breaker(a).state() == CircuitBreaker.State.OPEN, "after 3 failures " + breaker(a).state());
+
+        HedgedChatClient.ProviderFailureException skipped = askFailing(client);
+        expect(a.requests.get() == 3, "open breaker still sent request " + a.requests.get());
+        expect(skipped.getMessage().contains("paused"), skipped.getMessage());
+
+        Thread.sleep(COOLDOWN_MILLIS + 50);
+        a.behavior = Behavior.streaming(0);
+        ask(client);
+        expect(a.requests.get() == 4, "half-open trial not sent");
+        expect(breaker(a).state() == CircuitBreaker.State.CLOSED, "after a good trial " + breaker(a).state());
+    }
+
+    private void failedTrialReopens() throws Exception {
+        Endpoint a = server.endpoint(Behavior.failing(500));
+        HedgedChatClient client = primaryOnly(a);
+        for (int i = 0; i < 3; i++) askFailing(client);
+        Thread.sleep(COOLDOWN_MILLIS + 50);
+        expect(breaker(a).tryAcquire(), "no half-open trial admitted");
+        expect(breaker(a).state() == CircuitBreaker.State.HALF_OPEN, "after cooldown " + breaker(a).state());
+        expect(!breaker(a).tryAcquire(), "second concurrent trial admitted");
+        breaker(a).release();
+
+        askFailing(client);
+        expect(a.requests.get() == 4, "half-open trial not sent");
+        expect(breaker(a).state() == CircuitBreaker.State.OPEN, "after a failed trial " + breaker(a).state());
+    }
+
+    private HedgedChatClient client(Endpoint primary, String primaryName, Endpoint secondary, String secondaryName,
+                                    long hedgeMillis) {
+        return new HedgedChatClient(
+                new ChatCompletionClient(provider(primaryName, primary), () -> "stand-in-key"),
+                new ChatCompletionClient(provider(secondaryName, secondary), () -> "stand-in-key"),
+                hedgeMillis);
+    }
+
+    /** The secondary has no key, so every request goes to {@code primary} alone. */
+    private HedgedChatClient primaryOnly(Endpoint primary) {
+        return new HedgedChatClient(
+                new ChatCompletionClient(provider("Alpha", primary), () -> "stand-in-key"),
+                new ChatCompletionClient(provider("Beta", server.endpoint(Behavior.streaming(0))), () -> ""),
+                10_000);
+    }
+
+    private ChatCompletionClient.Provider provider(String name, Endpoint endpoint) {
+        // A fresh id per provider, so every check starts with its own closed breaker.
+        endpoint.providerId = "stand-in-" + (++idSequence);
+        return new ChatCompletionClient.Provider(endpoint.providerId, name, server.url(endpoint), "stand-in-model",
+                100, 0.0, "GITHUBVIZ_STAND_IN_KEY", Duration.ofSeconds(10));
+    }
+
+    private static CircuitBreaker breaker(Endpoint endpoint) {
+        return CircuitBreaker.forProvider(new ChatCompletionClient.Provider(endpoint.providerId, "", "", "",
+                0, 0, "", Duration.ZERO));
+    }
+
+    private static HedgedChatClient.Reply ask(HedgedChatClient client) throws Exception {
+        HedgedChatClient.Reply reply = client.stream(List.of(new ChatMessage("user", "ping")), p -> { },
+                d -> { }, new ServerSentEvents.Cancel());
+        expect(!reply.text().isEmpty(), "empty reply");
+        return reply;
+    }
+
+    private static HedgedChatClient.ProviderFailureException askFailing(HedgedChatClient client) throws Exception {
+        try {
+            client.stream(List.of(new ChatMessage("user", "ping")), p -> { }, d -> { }, new ServerSentEvents.Cancel());
+        } catch (HedgedChatClient.ProviderFailureException e) {
+            return e;
+        }
+        throw new AssertionError("request unexpectedly succeeded");
+    }
+
+    private static void expect(boolean condition, String detail) {
+        if (!condition) throw new AssertionError(detail);
+    }
+
+    /** One scripted route of the stand-in, with what it saw. */
+    static final class Endpoint {
+        final String path;
+        volatile Behavior behavior;
+        volatile String providerId;
+        final AtomicInteger requests = new AtomicInteger();
+        final AtomicLong firstRequestNanos = new AtomicLong();
+        final AtomicInteger completed = new AtomicInteger();
+        final AtomicInteger aborted = new AtomicInteger();
+
+        Endpoint(String path, Behavior behavior) {
+            this.path = path;
+            this.behavior = behavior;
+        }
+    }
+
+    /**
+     * OpenAI-compatible chat completions stand-in; each {@link Endpoint} gets its own path.
+     */
+    static final class StandIn implements AutoCloseable {
+        private final HttpServer server;
+        private final ExecutorService workers;
+        private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+        private final AtomicInteger sequence = new AtomicInteger();
+
+        StandIn() throws IOException {
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 64);
+            workers = Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, "chat-stand-in");
+                t.setDaemon(true);
+                return t;
+            });
+            server.setExecutor(workers);
+            server.createContext("/", this::handle);
+            server.start();
+        }
+
+        Endpoint endpoint(Behavior behavior) {
+            Endpoint endpoint = new Endpoint("/v1/" + sequence.incrementAndGet() + "/chat/completions", behavior);
+            endpoints.put(endpoint.path, endpoint);
+            return endpoint;
+        }
+
+        String url(Endpoint endpoint) {
+            return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + endpoint.path;
+        }
+
+        private void handle(HttpExchange exchange) throws IOException {
+            try (exchange) {
+                exchange.getRequestBody().readAllBytes();
+                Endpoint endpoint = endpoints.get(exchange.getRequestURI().getPath());
+                if (endpoint == null) {
+                    exchange.sendResponseHeaders(404, -1);
+                    return;
+                }
+                endpoint.firstRequestNanos.compareAndSet(0, System.nanoTime());
+                endpoint.requests.incrementAndGet();
+                Behavior behavior = endpoint.behavior;
+                if (behavior.status() != 200) {
+                    byte[] body = "{\"error\":{\"message\":\"stand-in failure\"}}".getBytes(StandardCharsets.UTF_8);
+                    exchange.getResponseHeaders().set("Content-Type", "application/json");
+                    exchange.sendResponseHeaders(behavior.status(), body.length);
+                    exchange.getResponseBody().write(body);
+                    return;
+                }
+                exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+                exchange.sendResponseHeaders(200, 0);
+                OutputStream out = exchange.getResponseBody();
+                try {
+                    write(out, ": open\n\n"); // flushes the headers before the first token
+                    Thread.sleep(behavior.firstTokenMillis());
+                    for (int i = 0; i < behavior.tokens(); i++) {
+                        write(out, "data: {\"choices\":[{\"delta\":{\"content\":\"t" + i + " \"}}]}\n\n");
+                        Thread.sleep(behavior.tokenIntervalMillis());
+                    }
+                    write(out, "data: " + ServerSentEvents.DONE + "\n\n");
+                    endpoint.completed.incrementAndGet();
+                } catch (IOException e) {
+                    endpoint.aborted.incrementAndGet(); // the client closed the stream
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        private static void write(OutputStream out, String text) throws IOException {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+
+        @Override
+        public void close() {
+            server.stop(0);
+            workers.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.beginsecure.panels;
+
+import com.beginsecure.Square;
+import com.beginsecure.bench.SyntheticRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PlantUML source generation for the dependency diagram (relationship extraction, clustering past
+ * the node budget, node styling). Rendering the image is PlantUML's cost and is not measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class DiagramPanelBenchmark {
+
+    @Param({"100", "1000", "10000", "50000"})
+    public int classes;
+
+    private List<Square> squares;
+
+    @Setup
+    public void generate() {
+        squares = SyntheticRepository.generate(classes, SyntheticRepository.DEFAULT_SEED);
+    }
+
+    @Benchmark
+    public String umlSource() {
+        return DiagramPanel.umlSource(squares);
+    }
+}
@@ -0,0 +1,46 @@
+package com.beginsecure.util;
+
+import com.beginsecure.Square;
+import com.beginsecure.bench.SyntheticRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * UML relationship extraction (inheritance, field associations, constructor dependencies) over
+ * a whole synthetic repository.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RelationshipExtractorBenchmark {
+
+    @Param({"100", "1000", "10000", "50000"})
+    public int classes;
+
+    private List<Square> squares;
+
+    @Setup
+    public void generate() {
+        squares = SyntheticRepository.generate(classes, SyntheticRepository.DEFAULT_SEED);
+    }
+
+    @Benchmark
+    public List<RelationshipExtractor.Relationship> extract() {
+        return RelationshipExtractor.extract(squares);
+    }
+}
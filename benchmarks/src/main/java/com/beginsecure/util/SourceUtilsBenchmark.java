@@ -0,0 +1,50 @@
+package com.beginsecure.util;
+
+import com.beginsecure.Square;
+import com.beginsecure.bench.SyntheticRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Comment and literal stripping over every source of a synthetic repository; every analysis pass
+ * starts with it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SourceUtilsBenchmark {
+
+    @Param({"100", "1000", "10000", "50000"})
+    public int classes;
+
+    private String[] sources;
+
+    @Setup
+    public void generate() {
+        sources = SyntheticRepository.generate(classes, SyntheticRepository.DEFAULT_SEED).stream()
+                .map(Square::getSource)
+                .toArray(String[]::new);
+    }
+
+    @Benchmark
+    public void stripCommentsAndStrings(Blackhole bh) {
+        for (String source : sources) {
+            bh.consume(SourceUtils.stripCommentsAndStrings(source));
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.beginsecure;
 
+import com.beginsecure.util.FlightEvents;
+import com.beginsecure.util.Instrumentation;
 import com.beginsecure.util.SourceUtils;
 
 import java.util.Collections;
@@ -19,6 +21,9 @@ public final class AIMetricsCalculator {
 
     public static void computeAll(List<Square> squares) {
         if (squares == null || squares.isEmpty()) return;
+        long start = Instrumentation.start();
+        FlightEvents.MetricsComputation event = new FlightEvents.MetricsComputation();
+        event.begin();
 
         Map<String, Square> byName = new HashMap<>();
         Map<String, String> strippedSource = new HashMap<>();
@@ -72,6 +77,12 @@ public final class AIMetricsCalculator {
             int ca = aff.size();
             square.setInstability((ca + ce) == 0 ? 0.0 : (double) ce / (ca + ce));
         }
+        Instrumentation.stop(Instrumentation.Phase.METRICS, start, squares.size(), 0);
+        event.end();
+        if (event.shouldCommit()) {
+            event.files = squares.size();
+            event.commit();
+        }
     }
 
     private static Set<String> findPeerDeps(String self, String code, Set<String> peers) {
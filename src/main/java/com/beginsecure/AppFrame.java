@@ -4,6 +4,7 @@ import com.beginsecure.panels.*;
 
 import javax.swing.*;
 import java.awt.*;
+import java.util.function.Supplier;
 import java.util.logging.ConsoleHandler;
 import java.util.logging.Formatter;
 import java.util.logging.LogRecord;
@@ -27,32 +28,28 @@ public final class AppFrame extends JFrame {
     }
     public AppFrame() {
         super("GitHubViz - Code Repository Visualizer");
+        long start = System.nanoTime();
 
-        LOGGER.info("Initializing top bar panel");
-        var topBar   = new TopBarPanel();
-        LOGGER.info("Initializing repository tree panel");
-        var repoTree = new RepoTreePanel();
-        LOGGER.info("Initializing metrics panel");
-        var metricsPanel = new MetricsPanel();
-        LOGGER.info("Initializing diagram panel");
-        var diagramPanel = new DiagramPanel();
-        LOGGER.info("Initializing chat panel");
-        var chatPanel = new ChatGPTPanel();
-        LOGGER.info("Initializing grid panel");
-        var gridPanel = new GridPanel();
-        var tabs     = new TabsPanel(gridPanel, metricsPanel, diagramPanel, chatPanel);
+        var topBar   = timed("top bar panel", TopBarPanel::new);
+        var repoTree = timed("repository tree panel", RepoTreePanel::new);
+        // Tabs build their panel the first time they are shown.
+        var tabs     = timed("tabs", () -> new TabsPanel(
+                () -> timed("grid panel", GridPanel::new),
+                () -> timed("metrics panel", MetricsPanel::new),
+                () -> timed("diagram panel", DiagramPanel::new),
+                () -> timed("graph panel", GraphPanel::new),
+                () -> timed("chat panel", ChatGPTPanel::new)));
 
         var split = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, repoTree, tabs);
         split.setResizeWeight(0.28);
 
-        LOGGER.info("Initializing status bar panel");
-        var status   = new StatusBarPanel();                            // listens to Blackboard
+        var status   = timed("status bar panel", StatusBarPanel::new);   // listens to Blackboard
 
-        var icons = loadAppIcons();
-        if (!icons.isEmpty()) {
-            setIconImages(icons);
-            applyTaskbarIcon(icons.get(icons.size() - 1));
-        }
+        loadIconsInBackground();
+
+        var menuBar = new JMenuBar();
+        menuBar.add(new ToolsMenu());
+        setJMenuBar(menuBar);
 
         setLayout(new BorderLayout());
         add(topBar, BorderLayout.NORTH);
@@ -62,6 +59,44 @@ public final class AppFrame extends JFrame {
         setDefaultCloseOperation(WindowConstants.EXIT_ON_CLOSE);
         setSize(1000, 700);
         setLocationRelativeTo(null);
+        LOGGER.info(String.format("Main window constructed in %d ms", (System.nanoTime() - start) / 1_000_000));
+    }
+
+    private static <T> T timed(String phase, Supplier<T> factory) {
+        long start = System.nanoTime();
+        T value = factory.get();
+        LOGGER.info(String.format("Initialized %s in %d ms", phase, (System.nanoTime() - start) / 1_000_000));
+        return value;
+    }
+
+    /**
+     * Decoding and rescaling the icon is slow enough to delay the first frame, so it happens on a
+     * worker and the icons are applied once ready.
+     */
+    private void loadIconsInBackground() {
+        new SwingWorker<java.util.List<java.awt.Image>, Void>() {
+            private long start;
+
+            @Override
+            protected java.util.List<java.awt.Image> doInBackground() {
+                start = System.nanoTime();
+                return loadAppIcons();
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    var icons = get();
+                    if (!icons.isEmpty()) {
+                        setIconImages(icons);
+                        applyTaskbarIcon(icons.get(icons.size() - 1));
+                    }
+                    LOGGER.info(String.format("Loaded app icons in %d ms", (System.nanoTime() - start) / 1_000_000));
+                } catch (Exception ignored) {
+                    // keep the default icon
+                }
+            }
+        }.execute();
     }
 
     private static java.util.List<java.awt.Image> loadAppIcons() {
@@ -1,12 +1,20 @@
 package com.beginsecure;
 
 import com.beginsecure.handlers.Delegate;
+import com.beginsecure.util.Bm25Index;
+import com.beginsecure.util.Metrics;
 
 import java.beans.PropertyChangeSupport;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Vector;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Application-wide message bus and shared repository of computed squares/metrics.
@@ -18,13 +26,28 @@ public class Blackboard extends PropertyChangeSupport {
     private static Blackboard instance;
     private Vector<Square> squares;
     private boolean ready = false;
-    private boolean loading = false;
+    private volatile boolean loading = false;
     private String selectedPrefix = "";
     private String lastRepositoryUrl = "";
+    private volatile RepositoryDigest digest = RepositoryDigest.empty();
+    private volatile Bm25Index sourceIndex = Bm25Index.empty();
+    /** Last non-empty index; rebuilds reuse its chunks even after a clear() emptied sourceIndex. */
+    private volatile Bm25Index reuseBase = Bm25Index.empty();
+    private final AtomicLong indexGeneration = new AtomicLong();
+    /** Squares whose index build waits for the first search; set for snapshots with lazy sources. */
+    private volatile List<Square> unindexed;
+    private volatile Future<?> indexing;
+    private final ExecutorService indexer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "source-indexer");
+        t.setDaemon(true);
+        return t;
+    });
 
     private Blackboard() {
         super(new Object());
         squares = new Vector<>();
+        Metrics.gauge("repository.files", () -> digest.root().fileCount());
+        Metrics.gauge("repository.linesOfCode", () -> digest.root().linesOfCode());
     }
 
     public static synchronized Blackboard getInstance() {
@@ -41,7 +64,72 @@ public class Blackboard extends PropertyChangeSupport {
             squares.addAll(newSquares);
         }
         ready = !squares.isEmpty();
-        firePropertyChange("squares", old, Collections.unmodifiableList(new ArrayList<>(squares)));
+        List<Square> current = Collections.unmodifiableList(new ArrayList<>(squares));
+        digest = RepositoryDigest.build(current);
+        firePropertyChange("squares", old, current);
+        if (current.stream().anyMatch(Square::hasPendingSource)) {
+            // Indexing would read every source back from the snapshot; wait until a search needs it.
+            indexGeneration.incrementAndGet();
+            unindexed = current;
+        } else {
+            rebuildSourceIndex(current);
+        }
+    }
+
+    /**
+     * Re-indexes sources in the background; a newer load supersedes a build still in progress.
+     */
+    private synchronized void rebuildSourceIndex(List<Square> current) {
+        long generation = indexGeneration.incrementAndGet();
+        unindexed = null;
+        indexing = indexer.submit(() -> {
+            if (generation != indexGeneration.get()) return;
+            if (current.isEmpty()) {
+                sourceIndex = Bm25Index.empty();
+                return;
+            }
+            long start = System.nanoTime();
+            Bm25Index built = Bm25Index.build(current, reuseBase);
+            if (generation != indexGeneration.get()) return;
+            sourceIndex = built;
+            reuseBase = built;
+            firePropertyChange("sourceIndex", null, built);
+            setStatusMessage(String.format("Indexed %d code chunks from %d files (%d unchanged) in %d ms.",
+                    built.chunkCount(), built.fileCount(), built.reusedFileCount(),
+                    (System.nanoTime() - start) / 1_000_000));
+        });
+    }
+
+    /**
+     * @return per-folder rankings of the current squares, rebuilt on every update before listeners
+     *         hear about it
+     */
+    public RepositoryDigest getDigest() {
+        return digest;
+    }
+
+    /**
+     * @return the BM25 index of the loaded sources. Waits for a build in progress, and starts the
+     *         deferred build of a reopened snapshot, so it may block: never call it on the EDT.
+     */
+    public Bm25Index getSourceIndex() {
+        List<Square> pending = unindexed;
+        if (pending != null) {
+            synchronized (this) {
+                if (unindexed == pending) rebuildSourceIndex(pending);
+            }
+        }
+        Future<?> build = indexing;
+        if (build != null) {
+            try {
+                build.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException | CancellationException ignored) {
+                // keep serving the previous index
+            }
+        }
+        return sourceIndex;
     }
 
     public void setReady() {
@@ -54,6 +142,10 @@ public class Blackboard extends PropertyChangeSupport {
         firePropertyChange("loading", old, this.loading);
     }
 
+    public boolean isLoading() {
+        return loading;
+    }
+
     public List<Square> getSquares() {
         return Collections.unmodifiableList(new ArrayList<>(squares));
     }
@@ -67,9 +159,17 @@ public class Blackboard extends PropertyChangeSupport {
     }
 
     public void loadFromUrl(String url) {
+        loadFromUrl(url, true);
+    }
+
+    /**
+     * @param reuseSnapshot when {@code false} the repository is refetched and reanalysed even if a
+     *                      saved snapshot exists
+     */
+    public void loadFromUrl(String url, boolean reuseSnapshot) {
         try {
             this.lastRepositoryUrl = (url == null) ? "" : url;
-            Delegate delegate = new Delegate(url);
+            Delegate delegate = new Delegate(url, reuseSnapshot);
             Thread t = new Thread(delegate);
             t.start();
         } catch (Exception e) {
@@ -2,15 +2,30 @@ package com.beginsecure;
 
 
 
+import com.beginsecure.handlers.BatchAnalyzer;
+import com.beginsecure.handlers.HeadlessAnalyzer;
+import com.beginsecure.util.EdtWatchdog;
+
 import javax.swing.*;
+import java.util.Arrays;
 
 /**
- * Launches the GitHubViz desktop application.
+ * Launches the GitHubViz desktop application, or the headless single/batch analyzer when the first
+ * argument is {@code --headless} or {@code --batch} (no AWT classes are loaded on those paths).
  * @author @NickGottwald
  * @author @Muska Said
  */
 public final class Main {
     public static void main(String[] args) {
+        if (args.length > 0 && "--headless".equals(args[0])) {
+            System.setProperty("java.awt.headless", "true");
+            System.exit(HeadlessAnalyzer.run(Arrays.copyOfRange(args, 1, args.length)));
+        }
+        if (args.length > 0 && "--batch".equals(args[0])) {
+            System.setProperty("java.awt.headless", "true");
+            System.exit(BatchAnalyzer.run(Arrays.copyOfRange(args, 1, args.length)));
+        }
+        EdtWatchdog.install();
         SwingUtilities.invokeLater(() -> new AppFrame().setVisible(true));
     }
 }
@@ -0,0 +1,190 @@
+package com.beginsecure;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Rankings the chat context is built from (largest files, instability extremes, dependency hubs,
+ * sample edges, LOC and metric averages), computed once per load for the whole repository and for
+ * every folder in it. One pass over the squares feeds each file into the accumulators of all its
+ * ancestor folders; the rankings are kept in bounded top-k heaps, so nothing is ever fully sorted.
+ * Immutable once built.
+ */
+public final class RepositoryDigest {
+
+    public static final int TOP_FILES = 5;
+    public static final int TOP_INSTABILITY = 3;
+    public static final int TOP_HUBS = 4;
+    public static final int SAMPLE_EDGES = 8;
+
+    private static final RepositoryDigest EMPTY = new RepositoryDigest(Map.of(), new Accumulator().toScope());
+
+    /**
+     * Digest of one folder (or of the whole repository). Ranked lists are best first; ties keep
+     * the load order of the files.
+     */
+    public record Scope(int fileCount, int linesOfCode, double avgInstability, double avgAbstractness,
+                        List<Square> largestFiles, List<Square> mostUnstable, List<Square> hubs,
+                        List<String> sampleEdges) { }
+
+    private final Map<String, Scope> folders;
+    private final Scope root;
+
+    private RepositoryDigest(Map<String, Scope> folders, Scope root) {
+        this.folders = folders;
+        this.root = root;
+    }
+
+    public static RepositoryDigest empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Builds the digest from squares whose metrics have already been computed.
+     */
+    public static RepositoryDigest build(List<Square> squares) {
+        if (squares == null || squares.isEmpty()) return EMPTY;
+        Accumulator all = new Accumulator();
+        Map<String, Accumulator> byFolder = new HashMap<>();
+        StringBuilder key = new StringBuilder();
+        int order = 0;
+        for (Square square : squares) {
+            if (square == null) continue;
+            all.add(square, order);
+            String[] parts = String.valueOf(square.getPath()).replace('\\', '/').split("/");
+            key.setLength(0);
+            for (int i = 0; i < parts.length - 1; i++) {
+                if (parts[i].isEmpty()) continue;
+                if (key.length() > 0) key.append('/');
+                key.append(parts[i]);
+                byFolder.computeIfAbsent(key.toString(), k -> new Accumulator()).add(square, order);
+            }
+            order++;
+        }
+        Map<String, Scope> folders = new HashMap<>(byFolder.size() * 4 / 3 + 1);
+        byFolder.forEach((folder, acc) -> folders.put(folder, acc.toScope()));
+        return new RepositoryDigest(folders, all.toScope());
+    }
+
+    /**
+     * Digest of an arbitrary subset of files, for selections that are not a folder of the tree.
+     */
+    public static Scope summarize(List<Square> squares) {
+        Accumulator acc = new Accumulator();
+        int order = 0;
+        for (Square square : squares) {
+            if (square != null) acc.add(square, order++);
+        }
+        return acc.toScope();
+    }
+
+    public Scope root() {
+        return root;
+    }
+
+    /**
+     * @param prefix folder path as published by the repository tree, e.g. {@code src/main/java/com}
+     * @return the folder's digest, the whole repository's for a blank prefix, or {@code null} if
+     *         no loaded file lives under {@code prefix}
+     */
+    public Scope forPrefix(String prefix) {
+        if (prefix == null || prefix.isBlank()) return root;
+        String normalized = prefix.replace('\\', '/').replaceAll("^/+|/+$", "");
+        return normalized.isEmpty() ? root : folders.get(normalized);
+    }
+
+    public int folderCount() {
+        return folders.size();
+    }
+
+    private static final class Accumulator {
+        private int files;
+        private int loc;
+        private double instabilitySum;
+        private int instabilityCount;
+        private double abstractnessSum;
+        private int abstractnessCount;
+        private final TopK largest = new TopK(TOP_FILES);
+        private final TopK unstable = new TopK(TOP_INSTABILITY);
+        private final TopK hubs = new TopK(TOP_HUBS);
+        private List<String> edges;
+
+        void add(Square square, int order) {
+            files++;
+            loc += square.getLinesOfCode();
+            Double instability = square.getInstability();
+            if (instability != null) {
+                instabilitySum += instability;
+                instabilityCount++;
+                unstable.offer(square, order, instability);
+            }
+            Double abstractness = square.getAbstractness();
+            if (abstractness != null) {
+                abstractnessSum += abstractness;
+                abstractnessCount++;
+            }
+            largest.offer(square, order, square.getLinesOfCode());
+            int cout = square.getCout();
+            if (cout > 0) hubs.offer(square, order, cout);
+            if (cout > 0 && (edges == null || edges.size() < SAMPLE_EDGES)) {
+                if (edges == null) edges = new ArrayList<>(SAMPLE_EDGES);
+                for (String dep : square.getEfferentPeers()) {
+                    edges.add(square.getSimpleName() + "->" + dep);
+                    if (edges.size() >= SAMPLE_EDGES) break;
+                }
+            }
+        }
+
+        Scope toScope() {
+            return new Scope(files, loc,
+                    instabilityCount == 0 ? 0.0 : instabilitySum / instabilityCount,
+                    abstractnessCount == 0 ? 0.0 : abstractnessSum / abstractnessCount,
+                    largest.ranked(), unstable.ranked(), hubs.ranked(),
+                    edges == null ? List.of() : List.copyOf(edges));
+        }
+    }
+
+    /**
+     * Keeps the {@code k} highest-scoring squares in a min-heap whose head is the current worst
+     * entry, so each offer costs O(log k) and the heap never grows past {@code k}.
+     */
+    private static final class TopK {
+        private record Ranked(Square square, int order, double score) { }
+
+        // "Worse" sorts first: lower score, or the same score from a later file.
+        private static final Comparator<Ranked> WORST_FIRST = Comparator.comparingDouble(Ranked::score)
+                .thenComparing(Comparator.comparingInt(Ranked::order).reversed());
+
+        private final int k;
+        private final PriorityQueue<Ranked> heap;
+
+        TopK(int k) {
+            this.k = k;
+            this.heap = new PriorityQueue<>(k + 1, WORST_FIRST);
+        }
+
+        void offer(Square square, int order, double score) {
+            if (heap.size() < k) {
+                heap.add(new Ranked(square, order, score));
+            } else if (score > heap.peek().score()) {
+                // Files arrive in load order, so an equal score never displaces an earlier file.
+                heap.poll();
+                heap.add(new Ranked(square, order, score));
+            }
+        }
+
+        List<Square> ranked() {
+            if (heap.isEmpty()) return List.of();
+            List<Ranked> sorted = new ArrayList<>(heap);
+            sorted.sort(WORST_FIRST.reversed());
+            List<Square> result = new ArrayList<>(sorted.size());
+            for (Ranked r : sorted) result.add(r.square());
+            return Collections.unmodifiableList(result);
+        }
+    }
+}
@@ -0,0 +1,379 @@
+package com.beginsecure;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32C;
+
+/**
+ * Compact, versioned binary snapshot of an analysed repository (paths, LOC, A/I metrics, type
+ * kinds, the peer dependency graph and, optionally, sources), tagged with the commit it was taken
+ * at so callers can tell whether it is still current.
+ * <p>
+ * Layout (little endian): a fixed header, then the metadata section (URL, revision, one
+ * fixed-size record per file, the peer index array and the UTF-8 path heap), then the source heap.
+ * Opening reads and verifies the header and the metadata checksum and decodes the records; sources
+ * stay on disk and are read per file on first {@link Square#getSource()}, each verified against its
+ * own checksum. Nothing is memory-mapped, so a snapshot can be replaced while squares read from it
+ * are still alive; the file handle is closed once they are unreachable. Sources are left out when
+ * they would exceed 2 GB.
+ */
+public final class RepositorySnapshot {
+
+    /** Bumped whenever the layout changes; files with another version are ignored and rewritten. */
+    public static final int VERSION = 2;
+
+    private static final int MAGIC = 0x5A564847; // "GHVZ"
+    private static final int FLAG_SOURCES = 1;
+    private static final int HEADER_BYTES = 56;
+    private static final int RECORD_BYTES = 64;
+    private static final String EXTENSION = ".ghvz";
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    /**
+     * A reopened snapshot: its squares, the revision (commit sha, possibly empty if it was unknown
+     * when saving) and when it was written.
+     */
+    public record Snapshot(List<Square> squares, String revision, long createdMillis) { }
+
+    private RepositorySnapshot() { }
+
+    /**
+     * @return where the snapshot for {@code url} lives ({@code ~/.githubviz/snapshots/<sha256>.ghvz})
+     */
+    public static Path defaultLocation(String url) {
+        return Path.of(System.getProperty("user.home"), ".githubviz", "snapshots",
+                sha256(normalize(url)) + EXTENSION);
+    }
+
+    /**
+     * Writes the snapshot to a temporary sibling and moves it into place, so readers never see a
+     * partially written file.
+     */
+    public static void save(Path file, String url, String revision, List<Square> squares,
+                            boolean includeSources) throws IOException {
+        int n = squares.size();
+        byte[] urlBytes = normalize(url).getBytes(StandardCharsets.UTF_8);
+        byte[] revisionBytes = (revision == null ? "" : revision).getBytes(StandardCharsets.UTF_8);
+
+        Map<String, Integer> indexByName = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            indexByName.putIfAbsent(squares.get(i).getSimpleName(), i);
+        }
+
+        byte[][] paths = new byte[n][];
+        int pathHeap = 0;
+        int peerCount = 0;
+        for (int i = 0; i < n; i++) {
+            Square s = squares.get(i);
+            paths[i] = String.valueOf(s.getPath()).getBytes(StandardCharsets.UTF_8);
+            pathHeap += paths[i].length;
+            peerCount += countResolved(s.getEfferentPeers(), indexByName) + countResolved(s.getAfferentPeers(), indexByName);
+        }
+
+        byte[][] sources = null;
+        long sourceHeap = 0;
+        if (includeSources) {
+            sources = new byte[n][];
+            for (int i = 0; i < n; i++) {
+                sources[i] = squares.get(i).getSource().getBytes(StandardCharsets.UTF_8);
+                sourceHeap += sources[i].length;
+            }
+            if (sourceHeap > Integer.MAX_VALUE) {
+                sources = null;
+                sourceHeap = 0;
+            }
+        }
+
+        long metaBytes = (long) urlBytes.length + revisionBytes.length + (long) n * RECORD_BYTES
+                + (long) peerCount * 4 + pathHeap;
+        if (metaBytes > Integer.MAX_VALUE) throw new IOException("Repository too large for a snapshot.");
+        ByteBuffer meta = ByteBuffer.allocate((int) metaBytes).order(ByteOrder.LITTLE_ENDIAN);
+        meta.put(urlBytes);
+        meta.put(revisionBytes);
+
+        int recordsAt = meta.position();
+        int peersAt = recordsAt + n * RECORD_BYTES;
+        int pathsAt = peersAt + peerCount * 4;
+        int peerCursor = 0;
+        int pathCursor = 0;
+        long sourceCursor = 0;
+        for (int i = 0; i < n; i++) {
+            Square s = squares.get(i);
+            int effStart = peerCursor;
+            peerCursor = putPeers(meta, peersAt, peerCursor, s.getEfferentPeers(), indexByName);
+            int affStart = peerCursor;
+            peerCursor = putPeers(meta, peersAt, peerCursor, s.getAfferentPeers(), indexByName);
+
+            meta.position(recordsAt + i * RECORD_BYTES);
+            meta.putInt(pathCursor).putInt(paths[i].length).putInt(s.getLinesOfCode());
+            meta.putDouble(s.getInstability() == null ? Double.NaN : s.getInstability());
+            meta.putDouble(s.getAbstractness() == null ? Double.NaN : s.getAbstractness());
+            meta.putInt(effStart).putInt(affStart - effStart).putInt(affStart).putInt(peerCursor - affStart);
+            meta.putLong(sourceCursor).putInt(sources == null ? 0 : sources[i].length);
+            meta.putInt(sources == null ? 0 : crc(sources[i]));
+            meta.putInt(s.getKind().ordinal());
+
+            meta.put(pathsAt + pathCursor, paths[i]);
+            pathCursor += paths[i].length;
+            if (sources != null) sourceCursor += sources[i].length;
+        }
+        meta.position(0);
+
+        CRC32C metaCrc = new CRC32C();
+        metaCrc.update(meta.array(), 0, meta.capacity());
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(sources == null ? 0 : FLAG_SOURCES).putInt(n);
+        header.putLong(System.currentTimeMillis());
+        header.putInt(urlBytes.length).putInt(peerCount).putInt(pathHeap);
+        header.putLong(sourceHeap);
+        header.putInt((int) metaCrc.getValue()).putInt(revisionBytes.length);
+        header.putInt(0); // reserved
+        header.flip();
+
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(ch, header);
+            writeFully(ch, meta);
+            if (sources != null) {
+                for (byte[] src : sources) writeFully(ch, ByteBuffer.wrap(src));
+            }
+        }
+        try {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Reads and decodes a snapshot. Sources, if present, are attached lazily.
+     * @throws IOException if the file is missing, belongs to another URL, has another schema
+     *                     version or fails its checksum
+     */
+    public static Snapshot open(Path file, String url) throws IOException {
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.READ);
+        boolean keepOpen = false;
+        try {
+            long size = ch.size();
+            if (size < HEADER_BYTES) throw new IOException("Snapshot truncated.");
+            ByteBuffer header = readAt(ch, 0, HEADER_BYTES);
+            if (header.getInt() != MAGIC) throw new IOException("Not a repository snapshot.");
+            int version = header.getInt();
+            if (version != VERSION) throw new IOException("Unsupported snapshot version " + version + ".");
+            int flags = header.getInt();
+            int n = header.getInt();
+            long created = header.getLong();
+            int urlLen = header.getInt();
+            int peerCount = header.getInt();
+            int pathHeap = header.getInt();
+            long sourceHeap = header.getLong();
+            int metaCrc = header.getInt();
+            int revisionLen = header.getInt();
+
+            long metaBytes = (long) urlLen + revisionLen + (long) n * RECORD_BYTES + (long) peerCount * 4 + pathHeap;
+            if (n < 0 || urlLen < 0 || revisionLen < 0 || peerCount < 0 || pathHeap < 0 || sourceHeap < 0
+                    || metaBytes > Integer.MAX_VALUE || HEADER_BYTES + metaBytes + sourceHeap != size) {
+                throw new IOException("Snapshot header is inconsistent.");
+            }
+            ByteBuffer meta = readAt(ch, HEADER_BYTES, (int) metaBytes);
+
+            CRC32C crc = new CRC32C();
+            crc.update(meta.duplicate());
+            if ((int) crc.getValue() != metaCrc) throw new IOException("Snapshot checksum mismatch.");
+
+            byte[] urlBytes = new byte[urlLen];
+            meta.get(0, urlBytes);
+            if (!new String(urlBytes, StandardCharsets.UTF_8).equals(normalize(url))) {
+                throw new IOException("Snapshot belongs to another repository.");
+            }
+            byte[] revisionBytes = new byte[revisionLen];
+            meta.get(urlLen, revisionBytes);
+
+            int recordsAt = urlLen + revisionLen;
+            int peersAt = recordsAt + n * RECORD_BYTES;
+            int pathsAt = peersAt + peerCount * 4;
+            List<Square> squares = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                int r = recordsAt + i * RECORD_BYTES;
+                int pathOff = meta.getInt(r);
+                int pathLen = meta.getInt(r + 4);
+                if (pathOff < 0 || pathLen < 0 || (long) pathOff + pathLen > pathHeap) {
+                    throw new IOException("Snapshot record " + i + " is corrupt.");
+                }
+                byte[] path = new byte[pathLen];
+                meta.get(pathsAt + pathOff, path);
+                squares.add(new Square(new String(path, StandardCharsets.UTF_8), meta.getInt(r + 8)));
+            }
+            String[] names = new String[n];
+            for (int i = 0; i < n; i++) names[i] = squares.get(i).getSimpleName();
+
+            SourceSection section = null;
+            if ((flags & FLAG_SOURCES) != 0 && sourceHeap > 0) {
+                section = new SourceSection(ch, HEADER_BYTES + metaBytes);
+                keepOpen = true;
+            }
+            Square.Kind[] kinds = Square.Kind.values();
+            for (int i = 0; i < n; i++) {
+                int r = recordsAt + i * RECORD_BYTES;
+                Square s = squares.get(i);
+                double instability = meta.getDouble(r + 12);
+                double abstractness = meta.getDouble(r + 20);
+                s.setInstability(Double.isNaN(instability) ? null : instability);
+                s.setAbstractness(Double.isNaN(abstractness) ? null : abstractness);
+                s.setEfferentPeers(readPeers(meta, peersAt, peerCount, meta.getInt(r + 28), meta.getInt(r + 32), names));
+                s.setAfferentPeers(readPeers(meta, peersAt, peerCount, meta.getInt(r + 36), meta.getInt(r + 40), names));
+                int kind = meta.getInt(r + 60);
+                if (kind < 0 || kind >= kinds.length) throw new IOException("Snapshot record " + i + " is corrupt.");
+                s.setKind(kinds[kind]);
+                if (section != null) {
+                    long off = meta.getLong(r + 44);
+                    int len = meta.getInt(r + 52);
+                    int sourceCrc = meta.getInt(r + 56);
+                    if (off < 0 || len < 0 || off + len > sourceHeap) {
+                        throw new IOException("Snapshot record " + i + " is corrupt.");
+                    }
+                    SourceSection from = section;
+                    s.setSourceLoader(() -> from.read(off, len, sourceCrc));
+                }
+            }
+            return new Snapshot(squares, new String(revisionBytes, StandardCharsets.UTF_8), created);
+        } finally {
+            if (!keepOpen) ch.close();
+        }
+    }
+
+    private static ByteBuffer readAt(FileChannel ch, long position, int length) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buf.hasRemaining()) {
+            if (ch.read(buf, position + buf.position()) < 0) throw new IOException("Snapshot truncated.");
+        }
+        return buf.flip();
+    }
+
+    private static int crc(byte[] bytes) {
+        CRC32C crc = new CRC32C();
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+
+    private static int countResolved(Set<String> peers, Map<String, Integer> indexByName) {
+        int count = 0;
+        for (String peer : peers) {
+            if (indexByName.containsKey(peer)) count++;
+        }
+        return count;
+    }
+
+    private static int putPeers(ByteBuffer meta, int peersAt, int cursor, Set<String> peers,
+                                Map<String, Integer> indexByName) {
+        for (String peer : peers) {
+            Integer idx = indexByName.get(peer);
+            if (idx == null) continue;
+            meta.putInt(peersAt + cursor * 4, idx);
+            cursor++;
+        }
+        return cursor;
+    }
+
+    private static Set<String> readPeers(ByteBuffer meta, int peersAt, int peerCount, int start, int count,
+                                         String[] names) throws IOException {
+        if (start < 0 || count < 0 || (long) start + count > peerCount) throw new IOException("Snapshot peer list is corrupt.");
+        Set<String> peers = new HashSet<>(Math.max(4, count * 2));
+        for (int j = 0; j < count; j++) {
+            int idx = meta.getInt(peersAt + (start + j) * 4);
+            if (idx < 0 || idx >= names.length) throw new IOException("Snapshot peer list is corrupt.");
+            peers.add(names[idx]);
+        }
+        return peers;
+    }
+
+    private static void writeFully(FileChannel ch, ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) ch.write(buf);
+    }
+
+    /**
+     * Trims trailing slashes and {@code .git}, and lowercases only the scheme and host: owners,
+     * branches and paths keep their case, so refs that differ only by case get separate snapshots.
+     */
+    private static String normalize(String url) {
+        String u = (url == null) ? "" : url.trim();
+        while (u.endsWith("/")) u = u.substring(0, u.length() - 1);
+        if (u.endsWith(".git")) u = u.substring(0, u.length() - 4);
+        int scheme = u.indexOf("://");
+        int hostEnd = u.indexOf('/', scheme < 0 ? 0 : scheme + 3);
+        if (hostEnd < 0) hostEnd = u.length();
+        return u.substring(0, hostEnd).toLowerCase(Locale.ROOT) + u.substring(hostEnd);
+    }
+
+    private static String sha256(String text) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Source heap read with positional reads through a channel that is closed once no square
+     * refers to this section any more.
+     */
+    private static final class SourceSection {
+        private final FileChannel channel;
+        private final long base;
+
+        SourceSection(FileChannel channel, long base) {
+            this.channel = channel;
+            this.base = base;
+            CLEANER.register(this, new Closer(channel));
+        }
+
+        /**
+         * @return the source, or an empty string if it cannot be read or fails its checksum
+         */
+        String read(long offset, int length, int expectedCrc) {
+            try {
+                ByteBuffer buf = readAt(channel, base + offset, length);
+                byte[] bytes = buf.array();
+                if (crc(bytes) != expectedCrc) return "";
+                return new String(bytes, StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                return "";
+            }
+        }
+    }
+
+    /** Must not reference its {@link SourceSection}, or the section never becomes unreachable. */
+    private record Closer(FileChannel channel) implements Runnable {
+        @Override public void run() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -5,6 +5,7 @@ import com.beginsecure.util.SourceUtils;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.function.Supplier;
 
 /**
  * Data model describing a repository file along with derived metrics and dependencies.
@@ -13,6 +14,9 @@ import java.util.Set;
  */
 public class Square {
 
+    /** Declared type of the file's primary class, as shown in the diagrams. */
+    public enum Kind { CLASS, ABSTRACT_CLASS, INTERFACE }
+
     private String path;
     private int linesOfCode;
 
@@ -43,7 +47,9 @@ public class Square {
         return SourceUtils.simpleName(path);
     }
 
-    private String source = "";
+    private volatile String source = "";
+    private volatile Supplier<String> sourceLoader;
+    private volatile Kind kind;
 
     private Double instability;
     private Double abstractness;
@@ -51,8 +57,48 @@ public class Square {
     private Set<String> efferentPeers = new HashSet<>();
     private Set<String> afferentPeers = new HashSet<>();
 
-    public String getSource() { return source; }
-    public void setSource(String src) { this.source = (src == null) ? "" : src; }
+    public String getSource() {
+        Supplier<String> loader = sourceLoader;
+        if (loader != null) {
+            String loaded = loader.get();
+            source = (loaded == null) ? "" : loaded;
+            sourceLoader = null;
+        }
+        return source;
+    }
+    public void setSource(String src) {
+        this.sourceLoader = null;
+        this.kind = null;
+        this.source = (src == null) ? "" : src;
+    }
+
+    /**
+     * Defers reading the source until it is first requested (used when reopening a snapshot).
+     */
+    void setSourceLoader(Supplier<String> loader) { this.sourceLoader = loader; }
+
+    /**
+     * @return {@code true} while the source is still on disk and has not been read yet
+     */
+    boolean hasPendingSource() { return sourceLoader != null; }
+
+    /**
+     * @return the declared kind, derived from the source on first use unless a snapshot already
+     *         recorded it, so reopened repositories can be drawn without reading any source
+     */
+    public Kind getKind() {
+        Kind k = kind;
+        if (k == null) {
+            String name = getSimpleName();
+            String code = getSource();
+            if (SourceUtils.declaresInterface(name, code)) k = Kind.INTERFACE;
+            else if (SourceUtils.declaresAbstractClass(name, code)) k = Kind.ABSTRACT_CLASS;
+            else k = Kind.CLASS;
+            kind = k;
+        }
+        return k;
+    }
+    void setKind(Kind kind) { this.kind = kind; }
 
     public Double getInstability() { return instability; }
     void setInstability(Double value) { this.instability = value; }
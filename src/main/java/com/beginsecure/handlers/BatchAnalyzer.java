@@ -0,0 +1,323 @@
+package com.beginsecure.handlers;
+
+import com.beginsecure.Square;
+import com.beginsecure.util.CycleDetector;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Headless batch mode: analyses many repositories concurrently and writes one result per
+ * repository plus a cross-repository summary. All repositories share one bounded download pool,
+ * one HTTP keep-alive pool and one {@link BlobCache}; a separate, smaller pool bounds how many
+ * repositories are analysed at once so CPU-heavy metric computation cannot starve downloads.
+ * <p>
+ * Usage: {@code --batch <github-url>... [--file <list>] [--threads n] [--repos n] [--format json|csv] [--out <file>]}
+ */
+public final class BatchAnalyzer {
+
+    private static final int EXIT_OK = 0;
+    private static final int EXIT_FAILURE = 1;
+    private static final int EXIT_USAGE = 2;
+    private static final int WORST_LIMIT = 5;
+
+    private static final String USAGE = "Usage: --batch <github-url>... [--file <list>] [--threads n] "
+            + "[--repos n] [--format json|csv] [--out <file>]";
+
+    private enum Format { JSON, CSV }
+
+    /**
+     * Outcome for one repository; metric means are {@code null} when no file had the metric.
+     */
+    record RepoResult(String url, int files, long linesOfCode, Double instability, Double abstractness,
+                      Double distance, int cycles, int largestCycle, long millis, String error) {
+        boolean ok() {
+            return error == null;
+        }
+    }
+
+    /**
+     * Cross-repository totals over the repositories that succeeded; metric means are weighted by
+     * file count and {@code null} when no repository had the metric.
+     */
+    record Summary(int repositories, int succeeded, int files, long linesOfCode, Double instability,
+                   Double abstractness, Double distance, int cycles, int largestCycle) {
+        int failed() {
+            return repositories - succeeded;
+        }
+
+        static Summary of(List<RepoResult> results) {
+            int ok = 0, files = 0, cycles = 0, largest = 0;
+            long loc = 0;
+            double iSum = 0, aSum = 0, dSum = 0;
+            int iFiles = 0, aFiles = 0, dFiles = 0;
+            for (RepoResult r : results) {
+                if (!r.ok()) continue;
+                ok++;
+                files += r.files();
+                loc += r.linesOfCode();
+                cycles += r.cycles();
+                largest = Math.max(largest, r.largestCycle());
+                if (r.instability() != null) { iSum += r.instability() * r.files(); iFiles += r.files(); }
+                if (r.abstractness() != null) { aSum += r.abstractness() * r.files(); aFiles += r.files(); }
+                if (r.distance() != null) { dSum += r.distance() * r.files(); dFiles += r.files(); }
+            }
+            return new Summary(results.size(), ok, files, loc, mean(iSum, iFiles), mean(aSum, aFiles),
+                    mean(dSum, dFiles), cycles, largest);
+        }
+    }
+
+    private BatchAnalyzer() { }
+
+    /**
+     * @param args arguments following {@code --batch}
+     * @return process exit code (1 if any repository failed)
+     */
+    public static int run(String[] args) {
+        List<String> urls = new ArrayList<>();
+        int threads = 16;
+        int repos = 4;
+        Format format = Format.JSON;
+        Path out = null;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--file" -> urls.addAll(readList(Path.of(args[++i])));
+                    case "--threads" -> threads = positive(args[++i]);
+                    case "--repos" -> repos = positive(args[++i]);
+                    case "--format" -> format = Format.valueOf(args[++i].toUpperCase(Locale.ROOT));
+                    case "--out" -> out = Path.of(args[++i]);
+                    case "--help", "-h" -> {
+                        System.out.println(USAGE);
+                        return EXIT_OK;
+                    }
+                    default -> {
+                        if (args[i].startsWith("--")) throw new IllegalArgumentException(args[i]);
+                        urls.add(args[i]);
+                    }
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            System.err.println(USAGE);
+            return EXIT_USAGE;
+        } catch (IOException e) {
+            System.err.println("Unable to read repository list: " + e.getMessage());
+            return EXIT_USAGE;
+        }
+        if (urls.isEmpty()) {
+            System.err.println(USAGE);
+            return EXIT_USAGE;
+        }
+
+        // HttpURLConnection keeps at most this many idle connections per host; match the pool size.
+        if (System.getProperty("http.maxConnections") == null) {
+            System.setProperty("http.maxConnections", String.valueOf(threads));
+        }
+
+        long start = System.nanoTime();
+        BlobCache cache = new BlobCache();
+        List<RepoResult> results = analyzeAll(urls, threads, Math.min(repos, urls.size()), cache);
+        long wallMillis = (System.nanoTime() - start) / 1_000_000;
+
+        try (PrintWriter writer = openOutput(out)) {
+            switch (format) {
+                case JSON -> writer.println(toJson(results, cache, wallMillis).toString());
+                case CSV -> writeCsv(writer, results, wallMillis);
+            }
+            if (writer.checkError()) throw new IOException("Failed writing batch output.");
+        } catch (IOException e) {
+            System.err.println("Unable to write batch results: " + e.getMessage());
+            return EXIT_FAILURE;
+        }
+        return results.stream().allMatch(RepoResult::ok) ? EXIT_OK : EXIT_FAILURE;
+    }
+
+    /**
+     * Analyses every repository; results are returned in input order.
+     */
+    static List<RepoResult> analyzeAll(List<String> urls, int fetchThreads, int repoThreads, BlobCache cache) {
+        String token = System.getenv("token");
+        GitHubHandler gh = new GitHubHandler(token == null ? "" : token);
+        ExecutorService fetchPool = Executors.newFixedThreadPool(fetchThreads, daemonThreads("batch-fetch"));
+        ExecutorService repoPool = Executors.newFixedThreadPool(repoThreads, daemonThreads("batch-repo"));
+        AtomicInteger done = new AtomicInteger();
+        try {
+            List<Future<RepoResult>> futures = new ArrayList<>(urls.size());
+            for (String url : urls) {
+                futures.add(repoPool.submit(() -> {
+                    RepoResult result = analyze(url, gh, fetchPool, cache);
+                    System.err.printf("[%d/%d] %s: %s%n", done.incrementAndGet(), urls.size(), url,
+                            result.ok() ? result.files() + " files in " + result.millis() + " ms" : result.error());
+                    return result;
+                }));
+            }
+            List<RepoResult> results = new ArrayList<>(urls.size());
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    results.add(failed(urls.get(i), 0, String.valueOf(e.getCause())));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    results.add(failed(urls.get(i), 0, "interrupted"));
+                }
+            }
+            return results;
+        } finally {
+            repoPool.shutdownNow();
+            fetchPool.shutdownNow();
+        }
+    }
+
+    private static RepoResult analyze(String url, GitHubHandler gh, ExecutorService fetchPool, BlobCache cache) {
+        long start = System.nanoTime();
+        try {
+            List<Square> squares = Delegate.fetchAndAnalyze(url, gh, fetchPool, cache);
+            // Usually a mistyped branch or path: a successful listing with nothing to analyse.
+            if (squares.isEmpty()) {
+                return failed(url, (System.nanoTime() - start) / 1_000_000, "No Java files found");
+            }
+            List<List<String>> cycles = CycleDetector.findCycles(squares);
+
+            long loc = 0;
+            double iSum = 0, aSum = 0, dSum = 0;
+            int iCount = 0, aCount = 0, dCount = 0;
+            for (Square s : squares) {
+                loc += s.getLinesOfCode();
+                Double i = s.getInstability();
+                Double a = s.getAbstractness();
+                if (i != null) { iSum += i; iCount++; }
+                if (a != null) { aSum += a; aCount++; }
+                if (i != null && a != null) { dSum += Math.abs(a + i - 1); dCount++; }
+            }
+            int largest = cycles.isEmpty() ? 0 : cycles.get(0).size();
+            return new RepoResult(url, squares.size(), loc, mean(iSum, iCount), mean(aSum, aCount),
+                    mean(dSum, dCount), cycles.size(), largest, (System.nanoTime() - start) / 1_000_000, null);
+        } catch (Exception e) {
+            return failed(url, (System.nanoTime() - start) / 1_000_000, e.getMessage() == null ? e.toString() : e.getMessage());
+        }
+    }
+
+    private static RepoResult failed(String url, long millis, String error) {
+        return new RepoResult(url, 0, 0, null, null, null, 0, 0, millis, error);
+    }
+
+    private static JSONObject toJson(List<RepoResult> results, BlobCache cache, long wallMillis) {
+        JSONArray repos = new JSONArray();
+        for (RepoResult r : results) repos.put(repoJson(r));
+
+        JSONArray worst = new JSONArray();
+        results.stream()
+                .filter(r -> r.ok() && r.distance() != null)
+                .sorted(Comparator.comparingDouble(RepoResult::distance).reversed())
+                .limit(WORST_LIMIT)
+                .forEach(r -> worst.put(new JSONObject().put("url", r.url()).put("distance", r.distance())));
+
+        Summary total = Summary.of(results);
+        JSONObject summary = new JSONObject()
+                .put("repositories", total.repositories())
+                .put("succeeded", total.succeeded())
+                .put("failed", total.failed())
+                .put("files", total.files())
+                .put("loc", total.linesOfCode())
+                .put("cycles", total.cycles())
+                .put("meanDistance", total.distance() == null ? JSONObject.NULL : total.distance())
+                .put("worstByDistance", worst)
+                .put("blobCacheHits", cache.hits())
+                .put("blobCacheMisses", cache.misses())
+                .put("wallMillis", wallMillis);
+        return new JSONObject().put("summary", summary).put("repositories", repos);
+    }
+
+    private static JSONObject repoJson(RepoResult r) {
+        JSONObject o = new JSONObject()
+                .put("url", r.url())
+                .put("status", r.ok() ? "ok" : "failed")
+                .put("millis", r.millis());
+        if (!r.ok()) return o.put("error", r.error());
+        return o.put("files", r.files())
+                .put("loc", r.linesOfCode())
+                .put("instability", r.instability() == null ? JSONObject.NULL : r.instability())
+                .put("abstractness", r.abstractness() == null ? JSONObject.NULL : r.abstractness())
+                .put("distance", r.distance() == null ? JSONObject.NULL : r.distance())
+                .put("cycles", r.cycles())
+                .put("largestCycle", r.largestCycle());
+    }
+
+    /**
+     * One row per repository, then a {@code summary} row over all of them: totals for files, LOC
+     * and cycles, file-weighted metric means, the largest cycle, the batch wall time and, in the
+     * error column, how many repositories failed.
+     */
+    private static void writeCsv(PrintWriter w, List<RepoResult> results, long wallMillis) {
+        w.println("url,status,files,loc,instability,abstractness,distance,cycles,largest_cycle,millis,error");
+        for (RepoResult r : results) {
+            w.println(String.join(",", HeadlessAnalyzer.csv(r.url()), r.ok() ? "ok" : "failed",
+                    String.valueOf(r.files()), String.valueOf(r.linesOfCode()),
+                    HeadlessAnalyzer.metric(r.instability()), HeadlessAnalyzer.metric(r.abstractness()),
+                    HeadlessAnalyzer.metric(r.distance()), String.valueOf(r.cycles()),
+                    String.valueOf(r.largestCycle()), String.valueOf(r.millis()), HeadlessAnalyzer.csv(r.error())));
+        }
+        Summary total = Summary.of(results);
+        String failures = total.failed() == 0 ? null
+                : total.failed() + " of " + total.repositories() + " repositories failed";
+        w.println(String.join(",", "*", "summary",
+                String.valueOf(total.files()), String.valueOf(total.linesOfCode()),
+                HeadlessAnalyzer.metric(total.instability()), HeadlessAnalyzer.metric(total.abstractness()),
+                HeadlessAnalyzer.metric(total.distance()), String.valueOf(total.cycles()),
+                String.valueOf(total.largestCycle()), String.valueOf(wallMillis), HeadlessAnalyzer.csv(failures)));
+    }
+
+    private static List<String> readList(Path file) throws IOException {
+        List<String> urls = new ArrayList<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            String trimmed = line.trim();
+            if (!trimmed.isEmpty() && !trimmed.startsWith("#")) urls.add(trimmed);
+        }
+        return urls;
+    }
+
+    private static int positive(String value) {
+        int n = Integer.parseInt(value);
+        if (n <= 0) throw new IllegalArgumentException(value);
+        return n;
+    }
+
+    private static Double mean(double sum, int count) {
+        return count == 0 ? null : sum / count;
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger seq = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + "-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    private static PrintWriter openOutput(Path out) throws IOException {
+        Writer target = (out == null)
+                ? new OutputStreamWriter(System.out, StandardCharsets.UTF_8)
+                : Files.newBufferedWriter(out, StandardCharsets.UTF_8);
+        return new PrintWriter(new BufferedWriter(target, 64 * 1024));
+    }
+}
@@ -0,0 +1,119 @@
+package com.beginsecure.handlers;
+
+import com.beginsecure.util.Metrics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Content cache keyed by git blob id, shared by every repository of a batch. Concurrent requests
+ * for the same blob wait on a single download, and identical files (vendored code, forks, shared
+ * templates) are fetched and held in memory once. Content is capped at
+ * {@code -Dgithubviz.batch.blobCacheMB} (default 256, counting two bytes per character); past
+ * that, the oldest entries are dropped and fetched again if asked for.
+ */
+public final class BlobCache {
+
+    @FunctionalInterface
+    public interface Loader {
+        String load() throws IOException;
+    }
+
+    private static final Metrics.Counter ALL_HITS = Metrics.counter("cache.blob.hits");
+    private static final Metrics.Counter ALL_MISSES = Metrics.counter("cache.blob.misses");
+    static {
+        Metrics.hitRatio("cache.blob.hitRatio", ALL_HITS, ALL_MISSES);
+    }
+
+    private record Loaded(String sha, CompletableFuture<String> future, long bytes) { }
+
+    private final ConcurrentHashMap<String, CompletableFuture<String>> entries = new ConcurrentHashMap<>();
+    /** Completed entries, oldest first, for eviction. */
+    private final ConcurrentLinkedQueue<Loaded> loaded = new ConcurrentLinkedQueue<>();
+    private final AtomicLong bytes = new AtomicLong();
+    private final long maxBytes;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public BlobCache() {
+        this(Long.getLong("githubviz.batch.blobCacheMB", 256L) * 1024 * 1024);
+    }
+
+    /**
+     * @param maxBytes content budget, at two bytes per character
+     */
+    public BlobCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the cached content for {@code sha}, loading it once if absent. Failed loads are not
+     * cached. A {@code null} id bypasses the cache.
+     */
+    public String get(String sha, Loader loader) throws IOException {
+        if (sha == null || sha.isEmpty()) {
+            misses.increment();
+            ALL_MISSES.increment();
+            return loader.load();
+        }
+        CompletableFuture<String> mine = new CompletableFuture<>();
+        CompletableFuture<String> existing = entries.putIfAbsent(sha, mine);
+        if (existing != null) {
+            hits.increment();
+            ALL_HITS.increment();
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException io) throw io;
+                if (cause instanceof UncheckedIOException uio) throw uio.getCause();
+                if (cause instanceof Error error) throw error;
+                throw new IOException(cause);
+            }
+        }
+        misses.increment();
+        ALL_MISSES.increment();
+        String value;
+        try {
+            value = loader.load();
+        } catch (Throwable t) {
+            // Whatever went wrong, waiters on this entry must be released.
+            entries.remove(sha, mine);
+            mine.completeExceptionally(t);
+            throw t;
+        }
+        mine.complete(value);
+        remember(sha, mine, value);
+        return value;
+    }
+
+    private void remember(String sha, CompletableFuture<String> future, String value) {
+        long size = value == null ? 0 : 2L * value.length();
+        loaded.add(new Loaded(sha, future, size));
+        bytes.addAndGet(size);
+        while (bytes.get() > maxBytes) {
+            Loaded oldest = loaded.poll();
+            if (oldest == null) break;
+            entries.remove(oldest.sha(), oldest.future());
+            bytes.addAndGet(-oldest.bytes());
+        }
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+}
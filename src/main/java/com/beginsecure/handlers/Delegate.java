@@ -2,7 +2,11 @@ package com.beginsecure.handlers;
 
 import com.beginsecure.AIMetricsCalculator;
 import com.beginsecure.Blackboard;
+import com.beginsecure.RepositorySnapshot;
 import com.beginsecure.Square;
+import com.beginsecure.util.Instrumentation;
+import com.beginsecure.util.Instrumentation.Phase;
+import com.beginsecure.util.Metrics;
 
 import java.util.logging.ConsoleHandler;
 import java.util.logging.Formatter;
@@ -16,7 +20,18 @@ import java.util.logging.Logger;
  */
 public class Delegate implements Runnable {
 
+    private static final Metrics.Counter LOADS = Metrics.counter("repository.loads");
+    private static final Metrics.Counter LOAD_FAILURES = Metrics.counter("repository.loadFailures");
+    private static final Metrics.Counter FILES_LOADED = Metrics.counter("repository.filesLoaded");
+    private static final Metrics.Histogram LOAD_TIME = Metrics.histogram("repository.loadTime");
+    private static final Metrics.Counter SNAPSHOT_HITS = Metrics.counter("cache.snapshot.hits");
+    private static final Metrics.Counter SNAPSHOT_MISSES = Metrics.counter("cache.snapshot.misses");
+    static {
+        Metrics.hitRatio("cache.snapshot.hitRatio", SNAPSHOT_HITS, SNAPSHOT_MISSES);
+    }
+
     private String url;
+    private final boolean reuseSnapshot;
     private static final Logger LOGGER = Logger.getLogger(Delegate.class.getName());
     static {
         try {
@@ -29,32 +44,43 @@ public class Delegate implements Runnable {
     }
 
     public Delegate(String url) {
+        this(url, true);
+    }
+
+    /**
+     * @param reuseSnapshot open the saved snapshot of this repository, if any, instead of refetching it
+     */
+    public Delegate(String url, boolean reuseSnapshot) {
         this.url = url;
+        this.reuseSnapshot = reuseSnapshot;
     }
 
     @Override
     public void run() {
         Blackboard board = Blackboard.getInstance();
         board.clear();
+        Instrumentation.reset();
         try {
-            LOGGER.info("Analyzing GitHub repository: " + url);
-            String token = System.getenv("token");
-            GitHubHandler gh = new GitHubHandler(token == null ? "" : token);
-
-            java.util.List<String> allPaths = gh.listFilesRecursive(url);
-            java.util.List<Square> loaded = new java.util.ArrayList<>();
-            for (String path : allPaths) {
-                if (!path.endsWith(".java")) continue;
-                String content = gh.getFileContentFromUrl(convertToBlobUrl(url, path));
-                int lines = countLines(content);
-                Square square = new Square(path, lines);
-                square.setSource(content);
-                loaded.add(square);
+            boolean save = !"false".equalsIgnoreCase(System.getProperty("githubviz.snapshot.save"));
+            String head = null;
+            if (reuseSnapshot || save) {
+                String token = System.getenv("token");
+                head = new GitHubHandler(token == null ? "" : token).headRevision(url);
             }
-            AIMetricsCalculator.computeAll(loaded);
+            if (reuseSnapshot && reopenSnapshot(board, head)) return;
+            java.util.List<String> failures = new java.util.ArrayList<>();
+            java.util.List<Square> loaded = fetchAndAnalyze(url, failures);
             board.updateSquares(loaded);
             board.setStatusMessage("Loaded " + loaded.size() + " Java files.");
             LOGGER.info("Repository analysis complete. Files processed: " + loaded.size());
+            if (!failures.isEmpty()) {
+                // The snapshot would pin the missing files to this head commit, so it is not saved.
+                board.reportError(failures.size() + " of " + (loaded.size() + failures.size())
+                        + " Java files could not be fetched (" + failures.get(0)
+                        + "); showing the rest, snapshot not saved.");
+                return;
+            }
+            if (save) saveSnapshot(loaded, head);
         } catch (Exception e) {
             board.reportError("Unable to load repository: " + e.getMessage());
         } finally {
@@ -62,7 +88,198 @@ public class Delegate implements Runnable {
         }
     }
 
-    private int countLines(String content) {
+    /**
+     * Reopens the saved snapshot only if it was taken at {@code head}. When the head commit is
+     * unknown (offline, rate limited) a snapshot younger than {@code -Dgithubviz.snapshot.maxAgeHours}
+     * (default 24) is still used, and the status bar says its freshness could not be checked.
+     */
+    private boolean reopenSnapshot(Blackboard board, String head) {
+        java.nio.file.Path file = RepositorySnapshot.defaultLocation(url);
+        if (!java.nio.file.Files.isRegularFile(file)) {
+            SNAPSHOT_MISSES.increment();
+            return false;
+        }
+        long start = System.nanoTime();
+        try {
+            RepositorySnapshot.Snapshot snapshot = RepositorySnapshot.open(file, url);
+            String freshness;
+            if (head != null) {
+                if (!head.equals(snapshot.revision())) {
+                    SNAPSHOT_MISSES.increment();
+                    LOGGER.info("Snapshot " + file + " is out of date (" + shortSha(snapshot.revision())
+                            + " vs " + shortSha(head) + "); reanalyzing.");
+                    board.setStatusMessage("Snapshot is out of date; reanalyzing.");
+                    return false;
+                }
+                freshness = "up to date at " + shortSha(head);
+            } else {
+                long maxAge = java.util.concurrent.TimeUnit.HOURS.toMillis(
+                        Long.getLong("githubviz.snapshot.maxAgeHours", 24L));
+                long age = System.currentTimeMillis() - snapshot.createdMillis();
+                if (age < 0 || age > maxAge) {
+                    SNAPSHOT_MISSES.increment();
+                    LOGGER.info("Snapshot " + file + " is older than " + maxAge / 3_600_000
+                            + " h and the head commit is unknown; reanalyzing.");
+                    return false;
+                }
+                freshness = "could not check for newer commits, saved "
+                        + java.time.Duration.ofMillis(age).toMinutes() + " min ago";
+            }
+            SNAPSHOT_HITS.increment();
+            board.updateSquares(snapshot.squares());
+            long ms = (System.nanoTime() - start) / 1_000_000;
+            board.setStatusMessage("Reopened " + snapshot.squares().size() + " Java files from snapshot in " + ms
+                    + " ms (" + freshness + "; Reanalyze to refetch).");
+            LOGGER.info("Reopened snapshot " + file + " in " + ms + " ms (" + freshness + ").");
+            return true;
+        } catch (java.io.IOException e) {
+            SNAPSHOT_MISSES.increment();
+            LOGGER.warning("Ignoring snapshot " + file + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void saveSnapshot(java.util.List<Square> loaded, String head) {
+        java.nio.file.Path file = RepositorySnapshot.defaultLocation(url);
+        boolean sources = !"false".equalsIgnoreCase(System.getProperty("githubviz.snapshot.sources"));
+        try {
+            RepositorySnapshot.save(file, url, head, loaded, sources);
+            LOGGER.info("Saved snapshot " + file);
+        } catch (java.io.IOException e) {
+            LOGGER.warning("Unable to save snapshot " + file + ": " + e.getMessage());
+        }
+    }
+
+    private static String shortSha(String sha) {
+        if (sha == null || sha.isEmpty()) return "unknown";
+        return sha.length() > 7 ? sha.substring(0, 7) : sha;
+    }
+
+    /**
+     * Downloads every Java file of the repository and computes A/I metrics, without touching the
+     * blackboard or any UI. Shared by the GUI worker and the headless runner; this variant fails
+     * on the first file that cannot be fetched.
+     */
+    public static java.util.List<Square> fetchAndAnalyze(String url) throws java.io.IOException {
+        return fetchAndAnalyze(url, null);
+    }
+
+    /**
+     * @param failures when non-null, files that cannot be fetched are skipped and described here
+     *                 instead of failing the load; the tree listing must still succeed
+     */
+    private static java.util.List<Square> fetchAndAnalyze(String url, java.util.List<String> failures)
+            throws java.io.IOException {
+        long start = Metrics.Histogram.start();
+        try {
+            return recordLoad(start, fetchAndAnalyzeSequentially(url, failures));
+        } catch (java.io.IOException | RuntimeException e) {
+            LOAD_FAILURES.increment();
+            throw e;
+        }
+    }
+
+    private static java.util.List<Square> fetchAndAnalyzeSequentially(String url, java.util.List<String> failures)
+            throws java.io.IOException {
+        LOGGER.info("Analyzing GitHub repository: " + url);
+        String token = System.getenv("token");
+        GitHubHandler gh = new GitHubHandler(token == null ? "" : token);
+
+        long listing = Instrumentation.start();
+        java.util.List<String> allPaths = gh.listFilesRecursive(url);
+        Instrumentation.stop(Phase.TREE_LISTING, listing, allPaths.size(), 0);
+        java.util.List<Square> loaded = new java.util.ArrayList<>();
+        for (String path : allPaths) {
+            if (!path.endsWith(".java")) continue;
+            long fetch = Instrumentation.start();
+            String content;
+            try {
+                content = gh.getFileContentFromUrl(convertToBlobUrl(url, path));
+            } catch (java.io.IOException e) {
+                if (failures == null) throw e;
+                failures.add(path + ": " + (e instanceof GitHubHandler.HttpStatusException http
+                        ? "HTTP " + http.status() : e.getMessage()));
+                continue;
+            }
+            Instrumentation.stop(Phase.FETCH, fetch, 1, content == null ? 0 : content.length());
+            long counting = Instrumentation.start();
+            int lines = countLines(content);
+            Instrumentation.stop(Phase.LOC_COUNT, counting);
+            Square square = new Square(path, lines);
+            square.setSource(content);
+            loaded.add(square);
+        }
+        AIMetricsCalculator.computeAll(loaded);
+        return loaded;
+    }
+
+    /**
+     * Batch variant of {@link #fetchAndAnalyze(String)}: downloads run on the shared {@code fetchPool}
+     * and go through {@code cache}, so several repositories can be analysed at once without each
+     * opening its own connections or refetching identical blobs.
+     */
+    public static java.util.List<Square> fetchAndAnalyze(String url, GitHubHandler gh,
+                                                         java.util.concurrent.ExecutorService fetchPool,
+                                                         BlobCache cache) throws java.io.IOException {
+        long start = Metrics.Histogram.start();
+        try {
+            return recordLoad(start, fetchAndAnalyzeInParallel(url, gh, fetchPool, cache));
+        } catch (java.io.IOException | RuntimeException e) {
+            LOAD_FAILURES.increment();
+            throw e;
+        }
+    }
+
+    private static java.util.List<Square> fetchAndAnalyzeInParallel(String url, GitHubHandler gh,
+                                                                   java.util.concurrent.ExecutorService fetchPool,
+                                                                   BlobCache cache) throws java.io.IOException {
+        java.util.List<java.util.concurrent.Future<Square>> pending = new java.util.ArrayList<>();
+        long listing = Instrumentation.start();
+        java.util.List<GitHubHandler.Blob> blobs = gh.listBlobsRecursive(url);
+        Instrumentation.stop(Phase.TREE_LISTING, listing, blobs.size(), 0);
+        for (GitHubHandler.Blob blob : blobs) {
+            if (!blob.path().endsWith(".java")) continue;
+            pending.add(fetchPool.submit(() -> {
+                String content = cache.get(blob.sha(), () -> {
+                    long fetch = Instrumentation.start();
+                    String fetched = gh.getFileContentFromUrl(convertToBlobUrl(url, blob.path()));
+                    Instrumentation.stop(Phase.FETCH, fetch, 1, fetched == null ? 0 : fetched.length());
+                    return fetched;
+                });
+                long counting = Instrumentation.start();
+                int lines = countLines(content);
+                Instrumentation.stop(Phase.LOC_COUNT, counting);
+                Square square = new Square(blob.path(), lines);
+                square.setSource(content);
+                return square;
+            }));
+        }
+        java.util.List<Square> loaded = new java.util.ArrayList<>(pending.size());
+        try {
+            for (java.util.concurrent.Future<Square> f : pending) {
+                loaded.add(f.get());
+            }
+        } catch (java.util.concurrent.ExecutionException e) {
+            pending.forEach(f -> f.cancel(true));
+            if (e.getCause() instanceof java.io.IOException io) throw io;
+            throw new java.io.IOException(e.getCause());
+        } catch (InterruptedException e) {
+            pending.forEach(f -> f.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new java.io.InterruptedIOException("Interrupted while fetching " + url);
+        }
+        AIMetricsCalculator.computeAll(loaded);
+        return loaded;
+    }
+
+    private static java.util.List<Square> recordLoad(long start, java.util.List<Square> loaded) {
+        LOAD_TIME.recordSince(start);
+        LOADS.increment();
+        FILES_LOADED.add(loaded.size());
+        return loaded;
+    }
+
+    private static int countLines(String content) {
         if (content == null || content.isEmpty()) return 0;
         int count = 0;
         for (String line : content.split("\\r?\\n")) {
@@ -73,11 +290,11 @@ public class Delegate implements Runnable {
         return count;
     }
 
-    private String convertToBlobUrl(String url, String path) {
+    private static String convertToBlobUrl(String url, String path) {
         GitHubHandler.RepoRef ref = GitHubHandler.RepoRef.fromUrl(url);
         StringBuilder sb = new StringBuilder();
 
-        sb.append("https://raw.githubusercontent.com/")
+        sb.append(GitHubHandler.rawBase()).append("/")
           .append(ref.owner).append("/").append(ref.repo).append("/")
           .append(ref.branch).append("/")
           .append(path);
@@ -1,6 +1,10 @@
 package com.beginsecure.handlers;
 
+import com.beginsecure.util.FlightEvents;
+import com.beginsecure.util.Metrics;
+
 import java.io.BufferedReader;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -17,12 +21,59 @@ import java.util.List;
  */
 public class GitHubHandler {
 
+    private static final Metrics.Counter REQUESTS = Metrics.counter("http.requests");
+    private static final Metrics.Counter ERRORS = Metrics.counter("http.errors");
+    private static final Metrics.Counter RATE_LIMITED = Metrics.counter("http.rateLimited");
+    private static final Metrics.Counter BYTES = Metrics.counter("http.bytes");
+    private static final Metrics.Histogram LATENCY = Metrics.histogram("http.latency");
+
     private final String token;
 
+    /**
+     * A response outside 2xx; {@link #status()} is the HTTP status code.
+     */
+    public static final class HttpStatusException extends IOException {
+        private final int status;
+
+        HttpStatusException(int status, String url, String body) {
+            super("HTTP " + status + " from " + url + (body.isBlank() ? "" : ": " + summarize(body)));
+            this.status = status;
+        }
+
+        public int status() {
+            return status;
+        }
+
+        private static String summarize(String body) {
+            String trimmed = body.replaceAll("\\s+", " ").trim();
+            return trimmed.length() > 200 ? trimmed.substring(0, 200) + "..." : trimmed;
+        }
+    }
+
     public GitHubHandler(String token) {
         this.token = token;
     }
 
+    /**
+     * Base URL of the REST API; {@code -Dgithubviz.github.api=...} points it elsewhere, e.g. at a
+     * local stand-in for load tests.
+     */
+    public static String apiBase() {
+        return baseUrl("githubviz.github.api", "https://api.github.com");
+    }
+
+    /**
+     * Base URL raw file content is downloaded from; overridable with {@code githubviz.github.raw}.
+     */
+    public static String rawBase() {
+        return baseUrl("githubviz.github.raw", "https://raw.githubusercontent.com");
+    }
+
+    private static String baseUrl(String property, String fallback) {
+        String base = System.getProperty(property, fallback);
+        return base.endsWith("/") ? base.substring(0, base.length() - 1) : base;
+    }
+
 
     public static class RepoRef {
         public final String owner;
@@ -68,14 +119,53 @@ public class GitHubHandler {
     }
 
 
+    /**
+     * A file in the repository tree; {@code sha} is the git blob id (may be {@code null}).
+     */
+    public record Blob(String path, String sha) { }
+
     public List<String> listFilesRecursive(String url) throws IOException {
+        List<Blob> blobs = listBlobsRecursive(url);
+        List<String> paths = new ArrayList<>(blobs.size());
+        for (Blob blob : blobs) paths.add(blob.path());
+        return paths;
+    }
+
+    /**
+     * Like {@link #listFilesRecursive(String)} but keeps each entry's blob id, so identical
+     * content can be shared across repositories.
+     */
+    public List<Blob> listBlobsRecursive(String url) throws IOException {
         RepoRef ref = RepoRef.fromUrl(url);
-        String api = "https://api.github.com/repos/" + ref.owner + "/" + ref.repo + "/git/trees/" + ref.branch + "?recursive=1";
-        String json = httpGet(api, true);
-        List<String> paths = new ArrayList<>();
+        String api = apiBase() + "/repos/" + ref.owner + "/" + ref.repo + "/git/trees/" + ref.branch + "?recursive=1";
+        return parseTree(httpGet(api, true), ref.prefix);
+    }
+
+    /**
+     * Resolves the commit the URL's branch points at, asking only for the sha so the call stays
+     * cheap enough to make before every load.
+     * @return the 40-character commit sha, or {@code null} if it cannot be determined (offline,
+     *         rate limited, unknown branch)
+     */
+    public String headRevision(String url) {
+        try {
+            RepoRef ref = RepoRef.fromUrl(url);
+            String api = apiBase() + "/repos/" + ref.owner + "/" + ref.repo + "/commits/" + ref.branch;
+            String sha = httpGet(api, true, "application/vnd.github.sha").trim();
+            return sha.matches("[0-9a-f]{40}") ? sha : null;
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Picks the blob entries under {@code prefix} out of a git trees API response.
+     */
+    static List<Blob> parseTree(String json, String prefix) {
+        List<Blob> paths = new ArrayList<>();
         if (json == null || json.isEmpty()) return paths;
 
-        String normalizedPrefix = ref.prefix.replace("\\", "/");
+        String normalizedPrefix = prefix.replace("\\", "/");
         if (normalizedPrefix.startsWith("/")) normalizedPrefix = normalizedPrefix.substring(1);
         if (normalizedPrefix.length() > 0 && !normalizedPrefix.endsWith("/")) normalizedPrefix += "/";
 
@@ -97,7 +187,7 @@ public class GitHubHandler {
                     String type = json.substring(tStart, tEnd);
                     if ("blob".equals(type)) {
                         if (normalizedPrefix.isEmpty() || path.startsWith(normalizedPrefix)) {
-                            paths.add(path);
+                            paths.add(new Blob(path, stringField(json, "\"sha\":", end, objEnd)));
                         }
                     }
                 }
@@ -107,17 +197,51 @@ public class GitHubHandler {
         return paths;
     }
 
+    private static String stringField(String json, String key, int from, int to) {
+        int keyIdx = json.indexOf(key, from);
+        if (keyIdx == -1 || keyIdx >= to) return null;
+        int vStart = json.indexOf('"', keyIdx + key.length()) + 1;
+        int vEnd = json.indexOf('"', vStart);
+        return (vStart > 0 && vEnd > vStart && vEnd <= to) ? json.substring(vStart, vEnd) : null;
+    }
+
     public String getFileContentFromUrl(String rawUrl) throws IOException {
         // If the URL points to GitHub HTML with '?raw=1' or raw.githubusercontent.com, this will return file content.
         return httpGet(rawUrl, false);
     }
 
     private String httpGet(String url, boolean api) throws IOException {
+        return httpGet(url, api, "application/vnd.github+json");
+    }
+
+    private String httpGet(String url, boolean api, String apiAccept) throws IOException {
+        FlightEvents.HttpRequest event = new FlightEvents.HttpRequest();
+        long start = Metrics.Histogram.start();
+        event.begin();
+        try {
+            return httpGet(url, api, apiAccept, event);
+        } finally {
+            LATENCY.recordSince(start);
+            REQUESTS.increment();
+            BYTES.add(event.bytes);
+            if (event.status == 403 || event.status == 429) RATE_LIMITED.increment();
+            if (event.status == 0 || event.status >= 400) ERRORS.increment();
+            event.end();
+            if (event.shouldCommit()) {
+                event.url = url;
+                event.api = api;
+                event.commit();
+            }
+        }
+    }
+
+    private String httpGet(String url, boolean api, String apiAccept, FlightEvents.HttpRequest event)
+            throws IOException {
         HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
         conn.setRequestMethod("GET");
         conn.setRequestProperty("User-Agent", "GitHubViz/1.0");
         if (api) {
-            conn.setRequestProperty("Accept", "application/vnd.github+json");
+            conn.setRequestProperty("Accept", apiAccept);
             if (token != null && !token.isEmpty()) {
                 conn.setRequestProperty("Authorization", "Bearer " + token);
             }
@@ -129,16 +253,61 @@ public class GitHubHandler {
             }
         }
         int code = conn.getResponseCode();
-        InputStream is = (code >= 200 && code < 300) ? conn.getInputStream() : conn.getErrorStream();
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
+        event.status = code;
+        boolean ok = code >= 200 && code < 300;
+        // The error stream is null when an error response has no body.
+        InputStream is = ok ? conn.getInputStream() : conn.getErrorStream();
+        if (is == null) {
+            if (ok) return "";
+            throw new HttpStatusException(code, url, "");
+        }
+        // Reading to EOF and closing the stream (never disconnect()) returns the connection to the
+        // JDK keep-alive pool, which BatchAnalyzer sizes through http.maxConnections.
+        String body;
+        CountingInputStream counted = new CountingInputStream(is);
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(counted, StandardCharsets.UTF_8))) {
             StringBuilder sb = new StringBuilder();
             String line;
             while ((line = br.readLine()) != null) {
                 sb.append(line).append('\n');
             }
-            return sb.toString();
+            body = sb.toString();
         } finally {
-            conn.disconnect();
+            event.bytes = counted.count;
+        }
+        if (!ok) throw new HttpStatusException(code, url, body);
+        return body;
+    }
+
+    /**
+     * Counts the bytes read off the wire, before decoding and line splitting.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) count += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
         }
     }
 }
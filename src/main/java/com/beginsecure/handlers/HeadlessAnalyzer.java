@@ -0,0 +1,196 @@
+package com.beginsecure.handlers;
+
+import com.beginsecure.Square;
+import com.beginsecure.util.CycleDetector;
+import com.beginsecure.util.RelationshipExtractor;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Command-line entry point that runs the fetch/analysis pipeline without any Swing or AWT code and
+ * writes metrics, relationship edges and dependency cycles as JSON, NDJSON or CSV.
+ * <p>
+ * Usage: {@code --headless <github-url> [--format json|ndjson|csv] [--out <file>]}
+ * <p>
+ * Exits 1 without writing any output when the tree listing or any file fetch fails, or when
+ * the listing has no Java files, so scripts never consume a partial or empty analysis.
+ */
+public final class HeadlessAnalyzer {
+
+    private static final int EXIT_OK = 0;
+    private static final int EXIT_FAILURE = 1;
+    private static final int EXIT_USAGE = 2;
+
+    private static final String USAGE =
+            "Usage: --headless <github-url> [--format json|ndjson|csv] [--out <file>]";
+
+    private enum Format { JSON, NDJSON, CSV }
+
+    private HeadlessAnalyzer() { }
+
+    /**
+     * @param args arguments following {@code --headless}
+     * @return process exit code
+     */
+    public static int run(String[] args) {
+        String url = null;
+        Format format = Format.JSON;
+        Path out = null;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--format" -> format = Format.valueOf(args[++i].toUpperCase(Locale.ROOT));
+                    case "--out" -> out = Path.of(args[++i]);
+                    case "--help", "-h" -> {
+                        System.out.println(USAGE);
+                        return EXIT_OK;
+                    }
+                    default -> {
+                        if (url != null || args[i].startsWith("--")) throw new IllegalArgumentException(args[i]);
+                        url = args[i];
+                    }
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            System.err.println(USAGE);
+            return EXIT_USAGE;
+        }
+        if (url == null || url.isBlank()) {
+            System.err.println(USAGE);
+            return EXIT_USAGE;
+        }
+
+        try {
+            List<Square> squares = Delegate.fetchAndAnalyze(url);
+            if (squares.isEmpty()) throw new IOException("No Java files found at " + url);
+            List<RelationshipExtractor.Relationship> edges = RelationshipExtractor.extract(squares);
+            List<List<String>> cycles = CycleDetector.findCycles(squares);
+            try (PrintWriter writer = openOutput(out)) {
+                switch (format) {
+                    case JSON -> writeJson(writer, url, squares, edges, cycles);
+                    case NDJSON -> writeNdjson(writer, url, squares, edges, cycles);
+                    case CSV -> writeCsv(writer, squares, edges, cycles);
+                }
+                if (writer.checkError()) throw new IOException("Failed writing analysis output.");
+            }
+            return EXIT_OK;
+        } catch (Exception e) {
+            System.err.println("Unable to analyze repository: " + e.getMessage());
+            return EXIT_FAILURE;
+        }
+    }
+
+    private static PrintWriter openOutput(Path out) throws IOException {
+        Writer target = (out == null)
+                ? new OutputStreamWriter(System.out, StandardCharsets.UTF_8)
+                : Files.newBufferedWriter(out, StandardCharsets.UTF_8);
+        return new PrintWriter(new BufferedWriter(target, 64 * 1024));
+    }
+
+    private static void writeJson(PrintWriter w, String url, List<Square> squares,
+                                  List<RelationshipExtractor.Relationship> edges, List<List<String>> cycles) {
+        JSONArray files = new JSONArray();
+        for (Square s : squares) files.put(fileJson(s));
+        JSONArray edgeArray = new JSONArray();
+        for (RelationshipExtractor.Relationship rel : edges) edgeArray.put(edgeJson(rel));
+        JSONArray cycleArray = new JSONArray();
+        for (List<String> cycle : cycles) cycleArray.put(new JSONArray(cycle));
+
+        JSONObject root = new JSONObject();
+        root.put("repository", url);
+        root.put("summary", summaryJson(squares, edges, cycles));
+        root.put("files", files);
+        root.put("edges", edgeArray);
+        root.put("cycles", cycleArray);
+        w.println(root.toString());
+    }
+
+    private static void writeNdjson(PrintWriter w, String url, List<Square> squares,
+                                    List<RelationshipExtractor.Relationship> edges, List<List<String>> cycles) {
+        for (Square s : squares) {
+            w.println(fileJson(s).put("kind", "file"));
+        }
+        for (RelationshipExtractor.Relationship rel : edges) {
+            w.println(edgeJson(rel).put("kind", "edge"));
+        }
+        for (List<String> cycle : cycles) {
+            w.println(new JSONObject().put("kind", "cycle").put("members", new JSONArray(cycle)));
+        }
+        w.println(summaryJson(squares, edges, cycles).put("kind", "summary").put("repository", url));
+    }
+
+    private static void writeCsv(PrintWriter w, List<Square> squares,
+                                 List<RelationshipExtractor.Relationship> edges, List<List<String>> cycles) {
+        w.println("# files");
+        w.println("path,name,loc,instability,abstractness,ca,ce");
+        for (Square s : squares) {
+            w.println(String.join(",", csv(s.getPath()), csv(s.getSimpleName()),
+                    String.valueOf(s.getLinesOfCode()), metric(s.getInstability()), metric(s.getAbstractness()),
+                    String.valueOf(s.getCin()), String.valueOf(s.getCout())));
+        }
+        w.println();
+        w.println("# edges");
+        w.println("from,to,type");
+        for (RelationshipExtractor.Relationship rel : edges) {
+            w.println(csv(rel.getFrom()) + "," + csv(rel.getTo()) + "," + rel.getType().name().toLowerCase(Locale.ROOT));
+        }
+        w.println();
+        w.println("# cycles");
+        w.println("cycle,size,members");
+        for (int i = 0; i < cycles.size(); i++) {
+            List<String> cycle = cycles.get(i);
+            w.println((i + 1) + "," + cycle.size() + "," + csv(String.join(" ", cycle)));
+        }
+    }
+
+    private static JSONObject fileJson(Square s) {
+        JSONObject o = new JSONObject();
+        o.put("path", s.getPath());
+        o.put("name", s.getSimpleName());
+        o.put("loc", s.getLinesOfCode());
+        o.put("instability", s.getInstability() == null ? JSONObject.NULL : s.getInstability());
+        o.put("abstractness", s.getAbstractness() == null ? JSONObject.NULL : s.getAbstractness());
+        o.put("ca", s.getCin());
+        o.put("ce", s.getCout());
+        return o;
+    }
+
+    private static JSONObject edgeJson(RelationshipExtractor.Relationship rel) {
+        return new JSONObject()
+                .put("from", rel.getFrom())
+                .put("to", rel.getTo())
+                .put("type", rel.getType().name().toLowerCase(Locale.ROOT));
+    }
+
+    private static JSONObject summaryJson(List<Square> squares, List<RelationshipExtractor.Relationship> edges,
+                                          List<List<String>> cycles) {
+        long loc = 0;
+        for (Square s : squares) loc += s.getLinesOfCode();
+        return new JSONObject()
+                .put("files", squares.size())
+                .put("loc", loc)
+                .put("edges", edges.size())
+                .put("cycles", cycles.size());
+    }
+
+    static String metric(Double value) {
+        return value == null ? "" : String.format(Locale.ROOT, "%.4f", value);
+    }
+
+    static String csv(String value) {
+        if (value == null) return "";
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) return value;
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
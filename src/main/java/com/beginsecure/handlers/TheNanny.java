@@ -18,9 +18,18 @@ public class TheNanny implements ActionListener {
             Pattern.compile("^https?://github\\.com/[^/]+/[^/]+(/.*)?$", Pattern.CASE_INSENSITIVE);
 
     private final JTextField urlField;
+    private final boolean reanalyze;
 
     public TheNanny(JTextField field) {
+        this(field, false);
+    }
+
+    /**
+     * @param reanalyze always refetch and reanalyse, ignoring any saved snapshot
+     */
+    public TheNanny(JTextField field, boolean reanalyze) {
         this.urlField = field;
+        this.reanalyze = reanalyze;
     }
 
     @Override
@@ -36,6 +45,8 @@ public class TheNanny implements ActionListener {
         }
         Blackboard.getInstance().setLoading(true);
         Blackboard.getInstance().setStatusMessage("Loading " + url + "...");
-        Blackboard.getInstance().loadFromUrl(url);
+        // Shift+click bypasses the saved snapshot and reanalyses the repository.
+        boolean refresh = reanalyze || (e.getModifiers() & ActionEvent.SHIFT_MASK) != 0;
+        Blackboard.getInstance().loadFromUrl(url, !refresh);
     }
 }
@@ -0,0 +1,210 @@
+package com.beginsecure.panels;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Provider-agnostic client for OpenAI-compatible chat completion endpoints. Every provider goes
+ * through one shared {@link HttpClient}, so connections are pooled and kept alive (multiplexed
+ * over HTTP/2 where the server supports it) instead of being set up again for each message.
+ */
+final class ChatCompletionClient {
+
+    private static final HttpClient HTTP = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(Duration.ofSeconds(20))
+            .build();
+
+    /**
+     * Endpoint, model and limits for one provider. The URL and model can be overridden with
+     * {@code githubviz.<id>.url} / {@code githubviz.<id>.model}, e.g. to target a local stand-in.
+     */
+    record Provider(String id, String displayName, String apiUrl, String model, int maxTokens,
+                    double temperature, String keyEnv, Duration responseTimeout) {
+
+        static Provider openAi() {
+            return configured("openai", "OpenAI", "https://api.openai.com/v1/chat/completions",
+                    "gpt-4o-mini", "openaikey");
+        }
+
+        static Provider groq() {
+            return configured("groq", "Groq", "https://api.groq.com/openai/v1/chat/completions",
+                    "llama3-70b-versatile", "groqkey");
+        }
+
+        private static Provider configured(String id, String name, String url, String model, String keyEnv) {
+            return new Provider(id, name,
+                    System.getProperty("githubviz." + id + ".url", url),
+                    System.getProperty("githubviz." + id + ".model", model),
+                    600, 0.2, keyEnv, Duration.ofSeconds(45));
+        }
+
+        /**
+         * @return the API key from the provider's environment variable, or an empty string
+         */
+        String apiKey() {
+            String envValue = System.getenv(keyEnv);
+            return envValue == null ? "" : envValue.trim();
+        }
+    }
+
+    private final Provider provider;
+    private final Supplier<String> apiKey;
+
+    ChatCompletionClient(Provider provider) {
+        this(provider, provider::apiKey);
+    }
+
+    /**
+     * @param apiKey where to read the key from instead of the provider's environment variable
+     *               (e.g. for a local stand-in server)
+     */
+    ChatCompletionClient(Provider provider, Supplier<String> apiKey) {
+        this.provider = provider;
+        this.apiKey = apiKey;
+    }
+
+    Provider provider() {
+        return provider;
+    }
+
+    /**
+     * @return the API key to send, or an empty string if none is configured
+     */
+    String apiKey() {
+        String key = apiKey.get();
+        return key == null ? "" : key;
+    }
+
+    /**
+     * Sends the conversation and waits for the whole completion.
+     */
+    String complete(String apiKey, List<ChatMessage> messages) throws IOException, InterruptedException {
+        HttpResponse<String> response = HTTP.send(request(apiKey, messages, false),
+                HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        if (response.statusCode() < 200 || response.statusCode() >= 300) {
+            throw apiError(response.statusCode(), response.body());
+        }
+        String content = extractContent(response.body());
+        if (content == null || content.isBlank()) {
+            throw new IllegalStateException(provider.displayName() + " returned an empty response.");
+        }
+        return content;
+    }
+
+    /**
+     * Streams the completion over server-sent events, parsing each event as it arrives and
+     * handing its content delta to {@code onDelta}. Cancelling aborts the exchange; the text
+     * received so far is returned.
+     */
+    String stream(String apiKey, List<ChatMessage> messages, Consumer<String> onDelta,
+                  ServerSentEvents.Cancel cancel) throws IOException, InterruptedException {
+        CompletableFuture<HttpResponse<InputStream>> pending =
+                HTTP.sendAsync(request(apiKey, messages, true), HttpResponse.BodyHandlers.ofInputStream());
+        cancel.attach(() -> pending.cancel(true));
+        HttpResponse<InputStream> response;
+        try {
+            response = pending.get();
+        } catch (CancellationException e) {
+            return "";
+        } catch (ExecutionException e) {
+            if (cancel.isCancelled()) return "";
+            if (e.getCause() instanceof IOException io) throw io;
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw new IOException(e.getCause());
+        }
+        cancel.attach(response.body());
+
+        if (response.statusCode() < 200 || response.statusCode() >= 300) {
+            String body;
+            try (InputStream in = response.body()) {
+                body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            throw apiError(response.statusCode(), body);
+        }
+        StringBuilder reply = new StringBuilder();
+        ServerSentEvents.read(response.body(), data -> {
+            String delta = extractDelta(data);
+            if (delta != null && !delta.isEmpty()) {
+                reply.append(delta);
+                onDelta.accept(delta);
+            }
+        }, cancel);
+
+        String content = reply.toString().trim();
+        if (content.isEmpty() && !cancel.isCancelled()) {
+            throw new IllegalStateException(provider.displayName() + " returned an empty response.");
+        }
+        return content;
+    }
+
+    private HttpRequest request(String apiKey, List<ChatMessage> messages, boolean stream) {
+        JSONObject payload = new JSONObject();
+        payload.put("model", provider.model());
+        payload.put("temperature", provider.temperature());
+        payload.put("max_tokens", provider.maxTokens());
+        if (stream) payload.put("stream", true);
+        JSONArray array = new JSONArray();
+        for (ChatMessage message : messages) {
+            array.put(new JSONObject().put("role", message.role()).put("content", message.content()));
+        }
+        payload.put("messages", array);
+
+        // The timeout bounds the wait for response headers, not the length of a stream.
+        return HttpRequest.newBuilder()
+                .uri(URI.create(provider.apiUrl()))
+                .header("Authorization", "Bearer " + apiKey)
+                .header("Content-Type", "application/json")
+                .header("Accept", stream ? "text/event-stream" : "application/json")
+                .timeout(provider.responseTimeout())
+                .POST(HttpRequest.BodyPublishers.ofString(payload.toString(), StandardCharsets.UTF_8))
+                .build();
+    }
+
+    private IllegalStateException apiError(int code, String body) {
+        return new IllegalStateException(provider.displayName() + " error (" + code + "): " + summarize(body));
+    }
+
+    private static String extractContent(String json) {
+        JSONArray choices = new JSONObject(json).optJSONArray("choices");
+        if (choices == null || choices.isEmpty()) {
+            return null;
+        }
+        JSONObject first = choices.getJSONObject(0);
+        JSONObject message = first.optJSONObject("message");
+        if (message == null) {
+            return first.optString("text", "").trim();
+        }
+        return message.optString("content", "").trim();
+    }
+
+    private static String extractDelta(String data) {
+        JSONArray choices = new JSONObject(data).optJSONArray("choices");
+        if (choices == null || choices.isEmpty()) {
+            return null;
+        }
+        JSONObject delta = choices.getJSONObject(0).optJSONObject("delta");
+        return delta == null ? null : delta.optString("content", null);
+    }
+
+    private static String summarize(String body) {
+        if (body == null) return "";
+        String trimmed = body.replaceAll("\\s+", " ").trim();
+        return trimmed.length() > 200 ? trimmed.substring(0, 200) + "..." : trimmed;
+    }
+}
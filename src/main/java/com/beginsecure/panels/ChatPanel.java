@@ -0,0 +1,252 @@
+package com.beginsecure.panels;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Streaming chat panel shared by the provider-specific panels: a transcript, an input area with
+ * Send/Stop and a cache toggle. Requests are hedged from the primary provider to the secondary
+ * one, and can optionally be grounded in the loaded repository (digest plus retrieved code).
+ */
+class ChatPanel extends JPanel {
+
+    private final ChatMessage systemPrompt;
+    private final boolean repositoryContext;
+    private final String primaryName;
+
+    private final JTextArea transcript = new JTextArea();
+    private final JTextArea inputArea = new JTextArea(3, 25);
+    private final JButton sendButton = new JButton("Send");
+    private final JCheckBox cacheToggle = new JCheckBox("Cache", true);
+    private final JLabel statusLabel;
+
+    private final List<ChatMessage> history = new ArrayList<>();
+    private final ConversationWindow window = new ConversationWindow(ConversationWindow.configuredBudget());
+    private final HedgedChatClient client;
+    private final RepositoryContextBuilder contextBuilder = new RepositoryContextBuilder();
+    private final StreamingTranscript stream = new StreamingTranscript(transcript);
+    /**
+     * The request in flight. Cleared only in {@code done()}, after {@code doInBackground()} has
+     * returned, so at most one worker uses {@link #window} at a time.
+     */
+    private ChatWorker activeWorker;
+
+    /**
+     * @param primary           asked first; the panel is labelled after it
+     * @param secondary         hedged against the primary, and takes over when it is failing
+     * @param repositoryContext whether each request carries the repository digest and the code
+     *                          chunks retrieved for the prompt
+     */
+    ChatPanel(ChatCompletionClient.Provider primary, ChatCompletionClient.Provider secondary,
+              String systemPrompt, boolean repositoryContext) {
+        super(new BorderLayout(10, 10));
+        this.systemPrompt = new ChatMessage("system", systemPrompt);
+        this.repositoryContext = repositoryContext;
+        this.primaryName = primary.displayName();
+        this.client = new HedgedChatClient(new ChatCompletionClient(primary), new ChatCompletionClient(secondary),
+                HedgedChatClient.configuredHedgeDelay());
+        this.statusLabel = new JLabel("Enter a prompt to start chatting with " + primaryName + ".");
+        setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        setBackground(Color.WHITE);
+
+        configureTranscript();
+        configureInputZone();
+
+        JPanel content = new JPanel(new BorderLayout(8, 8));
+        content.setOpaque(false);
+        content.add(buildEnvNotice(primary), BorderLayout.NORTH);
+        content.add(new JScrollPane(transcript), BorderLayout.CENTER);
+        content.add(buildInputRow(), BorderLayout.SOUTH);
+
+        add(content, BorderLayout.CENTER);
+        add(statusLabel, BorderLayout.SOUTH);
+    }
+
+    private void configureTranscript() {
+        transcript.setEditable(false);
+        transcript.setLineWrap(true);
+        transcript.setWrapStyleWord(true);
+        transcript.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 13));
+        transcript.setText("AI Assistant ready. Ask about architecture, code quality, or anything else.\n\n");
+    }
+
+    private void configureInputZone() {
+        inputArea.setLineWrap(true);
+        inputArea.setWrapStyleWord(true);
+        inputArea.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 13));
+        inputArea.getInputMap().put(KeyStroke.getKeyStroke("shift ENTER"), "insert-newline");
+        inputArea.getActionMap().put("insert-newline", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                inputArea.append("\n");
+            }
+        });
+        inputArea.getInputMap().put(KeyStroke.getKeyStroke("ENTER"), "send-message");
+        inputArea.getActionMap().put("send-message", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                triggerSend();
+            }
+        });
+        sendButton.addActionListener(evt -> triggerSend());
+    }
+
+    private JComponent buildEnvNotice(ChatCompletionClient.Provider primary) {
+        JLabel label = new JLabel("Using " + primary.keyEnv() + " environment variable for authentication.");
+        label.setFont(label.getFont().deriveFont(Font.ITALIC, 11f));
+        label.setBorder(BorderFactory.createEmptyBorder(0, 2, 0, 2));
+        return label;
+    }
+
+    private JPanel buildInputRow() {
+        JPanel panel = new JPanel(new BorderLayout(8, 8));
+        panel.setOpaque(false);
+        panel.add(new JScrollPane(inputArea), BorderLayout.CENTER);
+        cacheToggle.setOpaque(false);
+        cacheToggle.setToolTipText("Answer repeated questions about the same repository from the local response cache");
+        JPanel actions = new JPanel(new BorderLayout(4, 4));
+        actions.setOpaque(false);
+        actions.add(sendButton, BorderLayout.CENTER);
+        actions.add(cacheToggle, BorderLayout.SOUTH);
+        panel.add(actions, BorderLayout.EAST);
+        return panel;
+    }
+
+    private void triggerSend() {
+        if (activeWorker != null) {
+            // Stop goes through the token, not SwingWorker.cancel(), which would run done() and
+            // re-enable Send while the worker may still be building from the window.
+            activeWorker.cancel.cancel();
+            statusLabel.setText("Stopping...");
+            return;
+        }
+        String prompt = inputArea.getText().trim();
+        if (prompt.isEmpty()) {
+            statusLabel.setText("Type a question before sending.");
+            return;
+        }
+        if (!client.isConfigured()) {
+            statusLabel.setText("Set " + client.primary().provider().keyEnv() + " (or "
+                    + client.secondary().provider().keyEnv() + ") in your environment before chatting.");
+            return;
+        }
+
+        appendTranscript("You", prompt);
+        history.add(new ChatMessage("user", prompt));
+        inputArea.setText("");
+        setSendingState(true);
+
+        if (repositoryContext) statusLabel.setText("Gathering repository context...");
+        activeWorker = new ChatWorker(prompt, new ArrayList<>(history), cacheToggle.isSelected());
+        activeWorker.execute();
+    }
+
+    private void appendTranscript(String speaker, String text) {
+        transcript.append(speaker + ":\n");
+        transcript.append(text);
+        transcript.append("\n\n");
+        transcript.setCaretPosition(transcript.getDocument().getLength());
+    }
+
+    private String requestStatus(String action, List<ChatMessage> messages) {
+        String status = action + " (~" + TokenEstimator.estimate(messages) + " tokens";
+        if (window.summarizedTurns() > 0) {
+            status += ", " + window.summarizedTurns() + " earlier turns summarized";
+        }
+        return status + ")...";
+    }
+
+    private void setSendingState(boolean sending) {
+        sendButton.setText(sending ? "Stop" : "Send");
+        inputArea.setEnabled(!sending);
+    }
+
+    private final class ChatWorker extends SwingWorker<String, Void> {
+        private final String prompt;
+        private final List<ChatMessage> turns;
+        private final boolean useCache;
+        private final ServerSentEvents.Cancel cancel = new ServerSentEvents.Cancel();
+        private final long started = System.nanoTime();
+        private volatile long firstToken;
+        private volatile boolean answering;
+        /** Provider that originally gave the cached answer; {@code null} if not answered from cache. */
+        private String cachedFrom;
+        private ChatCompletionClient.Provider answeredBy;
+
+        ChatWorker(String prompt, List<ChatMessage> turns, boolean useCache) {
+            this.prompt = prompt;
+            this.turns = turns;
+            this.useCache = useCache;
+        }
+
+        @Override
+        protected String doInBackground() throws Exception {
+            // Retrieval searches (and may first wait for) the source index, so it stays off the EDT.
+            // Up to a third of the request budget goes to retrieved code.
+            ChatMessage context = repositoryContext
+                    ? contextBuilder.buildContextMessage(prompt, ConversationWindow.configuredBudget() / 3)
+                    : null;
+            List<ChatMessage> messages = window.build(systemPrompt, context, turns);
+            if (cancel.isCancelled()) return "";
+            String status = requestStatus("Contacting " + primaryName, messages);
+            SwingUtilities.invokeLater(() -> {
+                if (!cancel.isCancelled()) statusLabel.setText(status);
+            });
+            String key = useCache ? ResponseCache.key(messages) : null;
+            if (key != null) {
+                ResponseCache.Answer cached = ResponseCache.shared().get(key);
+                if (cached != null) {
+                    cachedFrom = cached.provider();
+                    answering = true;
+                    stream.append(cached.provider() + ":\n" + cached.text());
+                    return cached.text();
+                }
+            }
+            HedgedChatClient.Reply result = client.stream(messages, provider -> {
+                answering = true;
+                stream.append(provider.displayName() + ":\n");
+            }, delta -> {
+                if (firstToken == 0) {
+                    firstToken = System.nanoTime();
+                    SwingUtilities.invokeLater(() -> statusLabel.setText("Receiving response..."));
+                }
+                stream.append(delta);
+            }, cancel);
+            answeredBy = result.provider();
+            if (key != null && !cancel.isCancelled()) {
+                ResponseCache.shared().put(key, result.provider(), result.text());
+            }
+            return result.text();
+        }
+
+        @Override
+        protected void done() {
+            activeWorker = null;
+            setSendingState(false);
+            try {
+                String reply = get();
+                if (answering) {
+                    transcript.append(cancel.isCancelled() ? " [stopped]\n\n" : "\n\n");
+                    transcript.setCaretPosition(transcript.getDocument().getLength());
+                }
+                if (!reply.isEmpty()) {
+                    history.add(new ChatMessage("assistant", reply));
+                }
+                statusLabel.setText(cancel.isCancelled() ? "Response stopped."
+                        : cachedFrom != null ? "Answered from cache (originally by " + cachedFrom + ")."
+                        : String.format("Response received from %s (first token after %d ms).",
+                                answeredBy.displayName(), (firstToken - started) / 1_000_000));
+            } catch (Exception ex) {
+                if (answering) transcript.append("\n\n");
+                Throwable cause = ex instanceof ExecutionException && ex.getCause() != null ? ex.getCause() : ex;
+                // Provider failures already name every provider that was tried or skipped, and why.
+                statusLabel.setText(cause instanceof HedgedChatClient.ProviderFailureException
+                        ? cause.getMessage() : "Chat request failed: " + cause.getMessage());
+            }
+        }
+    }
+}
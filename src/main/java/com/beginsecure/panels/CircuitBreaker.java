@@ -0,0 +1,69 @@
+package com.beginsecure.panels;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-provider circuit breaker shared by every chat panel. After {@value #FAILURE_THRESHOLD}
+ * consecutive failures the provider is skipped for a cooldown; then a single trial request is let
+ * through, and its outcome closes the circuit again or restarts the cooldown.
+ */
+final class CircuitBreaker {
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private static final int FAILURE_THRESHOLD = 3;
+    private static final long COOLDOWN_MILLIS = Long.getLong("githubviz.chat.breakerCooldownMillis", 30_000L);
+    private static final Map<String, CircuitBreaker> BREAKERS = new ConcurrentHashMap<>();
+
+    private State state = State.CLOSED;
+    private int failures;
+    private long openUntil;
+    private boolean trialInFlight;
+
+    static CircuitBreaker forProvider(ChatCompletionClient.Provider provider) {
+        return BREAKERS.computeIfAbsent(provider.id(), id -> new CircuitBreaker());
+    }
+
+    /**
+     * @return whether a request may be sent now; in half-open state only one trial is admitted
+     */
+    synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.currentTimeMillis() < openUntil) return false;
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialInFlight) return false;
+            trialInFlight = true;
+        }
+        return true;
+    }
+
+    synchronized void recordSuccess() {
+        state = State.CLOSED;
+        failures = 0;
+        trialInFlight = false;
+    }
+
+    synchronized void recordFailure() {
+        failures++;
+        if (state == State.HALF_OPEN || failures >= FAILURE_THRESHOLD) {
+            state = State.OPEN;
+            openUntil = System.currentTimeMillis() + COOLDOWN_MILLIS;
+        }
+        trialInFlight = false;
+    }
+
+    /**
+     * The request was cancelled before it produced an outcome (e.g. it lost a hedge race).
+     */
+    synchronized void release() {
+        trialInFlight = false;
+    }
+
+    synchronized State state() {
+        return state;
+    }
+}
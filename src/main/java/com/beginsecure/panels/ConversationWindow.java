@@ -0,0 +1,116 @@
+package com.beginsecure.panels;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Keeps chat requests under a token budget. The newest turns are sent verbatim for as long as they
+ * fit; older turns are folded, once, into a compact running summary that is sent in their place.
+ * The summary is extractive (one short gist line per turn, oldest lines dropped past a quarter
+ * of the budget), so windowing costs no extra model round trip and request size stays flat
+ * however long the session runs. Not thread-safe: it must be confined to one in-flight request at
+ * a time. {@link ChatPanel} builds each request on that request's worker thread and starts the
+ * next one only after the previous worker's {@code done()}, which also publishes its writes.
+ */
+final class ConversationWindow {
+
+    private static final int GIST_CHARS = 160;
+    // Message overhead plus the "Summary of the earlier conversation (n oldest turns omitted):" header.
+    private static final int SUMMARY_HEADER_TOKENS = 20;
+
+    private final int budget;
+    private final int summaryBudget;
+    private final Deque<String> summary = new ArrayDeque<>();
+    private int summaryTokens;
+    private int folded;
+    private int droppedGists;
+
+    /**
+     * @param budget maximum estimated tokens per request, excluding the reply
+     */
+    ConversationWindow(int budget) {
+        this.budget = budget;
+        this.summaryBudget = Math.max(64, budget / 4);
+    }
+
+    static int configuredBudget() {
+        return Integer.getInteger("githubviz.chat.tokenBudget", 3000);
+    }
+
+    /**
+     * Builds the request messages for {@code history} (which must only ever grow by appending).
+     */
+    List<ChatMessage> build(ChatMessage systemPrompt, ChatMessage context, List<ChatMessage> history) {
+        int fixed = TokenEstimator.estimate(systemPrompt) + TokenEstimator.estimate(context);
+        int keepFrom = history.size();
+        int all = TokenEstimator.estimate(history.subList(folded, history.size()));
+        if (folded == 0 && fixed + all <= budget) {
+            keepFrom = 0;
+        } else {
+            int available = budget - fixed - summaryBudget;
+            int used = 0;
+            // Always send the newest turn, even if it alone is over budget.
+            while (keepFrom > folded) {
+                int cost = TokenEstimator.estimate(history.get(keepFrom - 1));
+                if (keepFrom < history.size() && used + cost > available) break;
+                used += cost;
+                keepFrom--;
+            }
+        }
+        for (int i = folded; i < keepFrom; i++) {
+            fold(history.get(i));
+        }
+        folded = Math.max(folded, keepFrom);
+
+        List<ChatMessage> messages = new ArrayList<>(history.size() - folded + 3);
+        messages.add(systemPrompt);
+        if (context != null) messages.add(context);
+        if (!summary.isEmpty()) messages.add(summaryMessage());
+        messages.addAll(history.subList(folded, history.size()));
+        return messages;
+    }
+
+    /**
+     * @return number of earlier turns currently represented by the summary
+     */
+    int summarizedTurns() {
+        return folded;
+    }
+
+    private void fold(ChatMessage turn) {
+        String line = turn.role() + ": " + gist(turn.content());
+        summary.addLast(line);
+        summaryTokens += TokenEstimator.estimate(line) + 1;
+        while (summaryTokens > summaryBudget - SUMMARY_HEADER_TOKENS && summary.size() > 1) {
+            summaryTokens -= TokenEstimator.estimate(summary.removeFirst()) + 1;
+            droppedGists++;
+        }
+    }
+
+    private ChatMessage summaryMessage() {
+        StringBuilder sb = new StringBuilder("Summary of the earlier conversation");
+        if (droppedGists > 0) sb.append(" (").append(droppedGists).append(" oldest turns omitted)");
+        sb.append(":\n");
+        for (String line : summary) sb.append("- ").append(line).append('\n');
+        return new ChatMessage("system", sb.toString().trim());
+    }
+
+    /**
+     * First sentence of the turn, whitespace-collapsed and capped at {@value #GIST_CHARS} chars.
+     */
+    private static String gist(String content) {
+        String text = content == null ? "" : content.replaceAll("\\s+", " ").trim();
+        int end = text.length();
+        for (int i = 0; i < text.length() - 1; i++) {
+            char c = text.charAt(i);
+            if ((c == '.' || c == '?' || c == '!') && text.charAt(i + 1) == ' ') {
+                end = i + 1;
+                break;
+            }
+        }
+        end = Math.min(end, GIST_CHARS);
+        return end < text.length() ? text.substring(0, end).trim() + (end == GIST_CHARS ? "..." : "") : text;
+    }
+}
@@ -2,8 +2,9 @@ package com.beginsecure.panels;
 
 import com.beginsecure.Blackboard;
 import com.beginsecure.Square;
+import com.beginsecure.util.FlightEvents;
+import com.beginsecure.util.Instrumentation;
 import com.beginsecure.util.RelationshipExtractor;
-import com.beginsecure.util.SourceUtils;
 import net.sourceforge.plantuml.FileFormat;
 import net.sourceforge.plantuml.FileFormatOption;
 import net.sourceforge.plantuml.SourceStringReader;
@@ -11,17 +12,28 @@ import net.sourceforge.plantuml.SourceStringReader;
 import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.MouseWheelEvent;
+import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HexFormat;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Displays a PlantUML dependency diagram for the files currently selected in the workspace tree.
@@ -31,9 +43,27 @@ import java.util.Map;
  */
 public final class DiagramPanel extends JPanel implements PropertyChangeListener {
 
+    private static final int RENDER_CACHE_SIZE = 16;
+    private static final long RENDER_CACHE_BYTES = Long.getLong("githubviz.diagram.cacheMB", 64L) * 1024 * 1024;
+    /** Above this many nodes folders are collapsed into weighted cluster nodes. */
+    private static final int NODE_BUDGET = 80;
+    /**
+     * Above this many nodes the raster pipeline is skipped in favour of tiled SVG rendering. Tied to
+     * the budget, which caps every diagram: past half of it the PNG is several viewports wide.
+     */
+    private static final int VECTOR_NODE_THRESHOLD = NODE_BUDGET / 2;
+    private static final String EXTERNAL_CLUSTER = "X:*";
+    private static final String OTHER_CLUSTER = "O:*";
+
     private final DiagramCanvas canvas = new DiagramCanvas();
     private final JLabel statusLabel = new JLabel("Load a repository to visualize dependencies.");
+    private final JCheckBox vectorToggle = new JCheckBox("Vector");
+    private final JButton clustersButton = new JButton("Clusters");
+    private final Set<String> expandedClusters = new LinkedHashSet<>();
+    private List<String> visibleClusters = Collections.emptyList();
+    private final Map<String, Rendering> renderCache = Collections.synchronizedMap(new RenderCache(RENDER_CACHE_SIZE, RENDER_CACHE_BYTES));
     private volatile boolean loading;
+    private RenderWorker pending;
 
     public DiagramPanel() {
         super(new BorderLayout());
@@ -51,7 +81,19 @@ public final class DiagramPanel extends JPanel implements PropertyChangeListener
         footer.add(statusLabel, BorderLayout.WEST);
         JButton refreshButton = new JButton("Refresh diagram");
         refreshButton.addActionListener(evt -> refreshDiagram());
-        footer.add(refreshButton, BorderLayout.EAST);
+        vectorToggle.setOpaque(false);
+        vectorToggle.setToolTipText("Render through SVG with tiled zooming (Ctrl + mouse wheel). "
+                + "Used automatically for diagrams above " + VECTOR_NODE_THRESHOLD + " nodes.");
+        vectorToggle.addActionListener(evt -> refreshDiagram());
+        JPanel actions = new JPanel(new FlowLayout(FlowLayout.RIGHT, 6, 0));
+        actions.setOpaque(false);
+        clustersButton.setEnabled(false);
+        clustersButton.setToolTipText("Expand or collapse folders that were grouped to keep the diagram readable.");
+        clustersButton.addActionListener(evt -> showClusterMenu());
+        actions.add(clustersButton);
+        actions.add(vectorToggle);
+        actions.add(refreshButton);
+        footer.add(actions, BorderLayout.EAST);
         add(footer, BorderLayout.SOUTH);
 
         try {
@@ -71,14 +113,17 @@ public final class DiagramPanel extends JPanel implements PropertyChangeListener
             if (loading) {
                 SwingUtilities.invokeLater(() -> {
                     statusLabel.setText("Loading repository data...");
-                    canvas.setDiagram(null);
+                    showDiagram(null, null);
                 });
             }
             return;
         }
         if ("squares".equals(name) || "selectedPrefix".equals(name)) {
             loading = false;
-            SwingUtilities.invokeLater(this::refreshDiagram);
+            SwingUtilities.invokeLater(() -> {
+                if ("squares".equals(name)) expandedClusters.clear();
+                refreshDiagram();
+            });
         }
     }
 
@@ -87,7 +132,7 @@ public final class DiagramPanel extends JPanel implements PropertyChangeListener
 
         List<Square> squares = snapshotSquares();
         if (squares.isEmpty()) {
-            canvas.setDiagram(null);
+            showDiagram(null, null);
             statusLabel.setText("Load a repository to visualize dependencies.");
             return;
         }
@@ -95,7 +140,7 @@ public final class DiagramPanel extends JPanel implements PropertyChangeListener
         String prefix = getSelectedPrefix();
         List<Square> filtered = filterByPrefix(squares, prefix);
         if (filtered.isEmpty()) {
-            canvas.setDiagram(null);
+            showDiagram(null, null);
             if (prefix == null || prefix.isBlank()) {
                 statusLabel.setText("No Java sources available to render.");
             } else {
@@ -104,17 +149,101 @@ public final class DiagramPanel extends JPanel implements PropertyChangeListener
             return;
         }
 
-        DiagramModel model = buildModel(filtered);
-        if (model == null) {
-            canvas.setDiagram(null);
-            statusLabel.setText("Could not build a diagram for the current selection.");
-            return;
+        cancelPending();
+        statusLabel.setText("Rendering diagram...");
+        pending = new RenderWorker(filtered, prefix, vectorToggle.isSelected(),
+                Collections.unmodifiableSet(new LinkedHashSet<>(expandedClusters)));
+        pending.execute();
+    }
+
+    /**
+     * Replaces the canvas content and drops any render still in flight, so a stale result
+     * cannot overwrite what the user is looking at now.
+     */
+    private void showDiagram(Rendering rendering, String error) {
+        cancelPending();
+        canvas.setDiagram(rendering, error);
+    }
+
+    private void showClusterMenu() {
+        JPopupMenu menu = new JPopupMenu();
+        for (String key : expandedClusters) {
+            JCheckBoxMenuItem item = new JCheckBoxMenuItem(clusterLabel(key), true);
+            item.addActionListener(evt -> {
+                expandedClusters.remove(key);
+                refreshDiagram();
+            });
+            menu.add(item);
         }
+        if (!expandedClusters.isEmpty() && !visibleClusters.isEmpty()) menu.addSeparator();
+        for (String key : visibleClusters) {
+            JCheckBoxMenuItem item = new JCheckBoxMenuItem(clusterLabel(key), false);
+            item.addActionListener(evt -> {
+                expandedClusters.add(key);
+                refreshDiagram();
+            });
+            menu.add(item);
+        }
+        if (!expandedClusters.isEmpty()) {
+            menu.addSeparator();
+            JMenuItem collapseAll = new JMenuItem("Collapse all");
+            collapseAll.addActionListener(evt -> {
+                expandedClusters.clear();
+                refreshDiagram();
+            });
+            menu.add(collapseAll);
+        }
+        if (menu.getComponentCount() > 0) {
+            menu.show(clustersButton, 0, -menu.getPreferredSize().height);
+        }
+    }
 
-        canvas.setDiagram(model.umlSource);
-        String suffix = (prefix == null || prefix.isBlank()) ? "" : " | folder: " + prefix;
-        statusLabel.setText(String.format("Diagram: %d files | %d links%s",
-                model.nodeCount, model.edgeCount, suffix));
+    private void cancelPending() {
+        if (pending != null) {
+            pending.cancel(true);
+            pending = null;
+        }
+    }
+
+    private Rendering renderCached(String umlSource, boolean vector) throws IOException {
+        String key = (vector ? "svg:" : "png:") + hash(umlSource);
+        Rendering cached = renderCache.get(key);
+        if (cached != null) return cached;
+
+        long start = Instrumentation.start();
+        Rendering rendering = vector ? renderScene(umlSource) : render(umlSource);
+        Instrumentation.stop(Instrumentation.Phase.RENDER, start, 1, umlSource.length());
+        renderCache.put(key, rendering);
+        return rendering;
+    }
+
+    private static Rendering render(String umlSource) throws IOException {
+        SourceStringReader reader = new SourceStringReader(umlSource);
+        ExposedOutputStream os = new ExposedOutputStream(64 * 1024);
+        reader.outputImage(os, 0, new FileFormatOption(FileFormat.PNG));
+        // PlantUML only hands out encoded images, so decode straight from the buffer without copying it.
+        BufferedImage image = ImageIO.read(new ExposedInputStream(os));
+        if (image == null) {
+            throw new IOException("PlantUML produced no image.");
+        }
+        return new Rendering(image, null, 4L * image.getWidth() * image.getHeight());
+    }
+
+    private static Rendering renderScene(String umlSource) throws IOException {
+        SourceStringReader reader = new SourceStringReader(umlSource);
+        ExposedOutputStream os = new ExposedOutputStream(64 * 1024);
+        reader.outputImage(os, 0, new FileFormatOption(FileFormat.SVG));
+        // The parsed shapes and strings take roughly twice the SVG text they came from.
+        return new Rendering(null, SvgScene.parse(os.buffer(), os.size()), 2L * os.size());
+    }
+
+    private static String hash(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            return text.length() + ":" + text.hashCode();
+        }
     }
 
     private static List<Square> snapshotSquares() {
@@ -158,7 +287,16 @@ public final class DiagramPanel extends JPanel implements PropertyChangeListener
         return path.contains(normalized + "/") || path.endsWith("/" + normalized) || path.equals(normalized);
     }
 
-    private static DiagramModel buildModel(List<Square> squares) {
+    /**
+     * PlantUML source for {@code squares} with every cluster collapsed, or {@code null} if there is
+     * nothing to draw. Does not touch Swing, so it can be driven off the EDT (e.g. by benchmarks).
+     */
+    static String umlSource(List<Square> squares) {
+        DiagramModel model = buildModel(squares, Collections.emptySet());
+        return model == null ? null : model.umlSource;
+    }
+
+    private static DiagramModel buildModel(List<Square> squares, Set<String> expanded) {
         Map<String, Square> byName = new LinkedHashMap<>();
         for (Square s : squares) {
             String name = s.getSimpleName();
@@ -167,6 +305,19 @@ public final class DiagramPanel extends JPanel implements PropertyChangeListener
         }
         if (byName.isEmpty()) return null;
 
+        List<RelationshipExtractor.Relationship> relationships = RelationshipExtractor.extract(squares);
+        Set<String> externals = new LinkedHashSet<>();
+        for (RelationshipExtractor.Relationship rel : relationships) {
+            if (!byName.containsKey(rel.getTo())) externals.add(rel.getTo());
+        }
+        if (byName.size() + externals.size() <= NODE_BUDGET) {
+            return buildFlatModel(byName, relationships);
+        }
+        return buildClusteredModel(byName, relationships, externals.size(), expanded);
+    }
+
+    private static DiagramModel buildFlatModel(Map<String, Square> byName,
+                                               List<RelationshipExtractor.Relationship> relationships) {
         Map<String, String> aliasByName = new LinkedHashMap<>();
         List<NodeDef> nodes = new ArrayList<>();
 
@@ -178,7 +329,6 @@ public final class DiagramPanel extends JPanel implements PropertyChangeListener
             nodes.add(new NodeDef(simpleName, alias, classify(entry.getValue())));
         }
 
-        List<RelationshipExtractor.Relationship> relationships = RelationshipExtractor.extract(squares);
         int externalIndex = 1;
         for (RelationshipExtractor.Relationship rel : relationships) {
             if (!aliasByName.containsKey(rel.getTo())) {
@@ -188,6 +338,140 @@ public final class DiagramPanel extends JPanel implements PropertyChangeListener
             }
         }
 
+        StringBuilder uml = startUml();
+        appendNodes(uml, nodes);
+
+        int edges = 0;
+        for (RelationshipExtractor.Relationship rel : relationships) {
+            String fromAlias = aliasByName.get(rel.getFrom());
+            String toAlias = aliasByName.get(rel.getTo());
+            if (fromAlias == null || toAlias == null) continue;
+            uml.append(rel.toPlantUml(fromAlias, toAlias)).append('\n');
+            edges++;
+        }
+
+        uml.append("@enduml\n");
+        return new DiagramModel(uml.toString(), byName.size(), nodes.size(), edges, Collections.emptyList(),
+                Collections.emptyList());
+    }
+
+    /**
+     * Keeps the node count within {@link #NODE_BUDGET} by collapsing folders into single nodes.
+     * The deepest folder level that fits the budget is used; if even top-level folders do not fit,
+     * the smallest ones share an "other folders" node. Folders in {@code expanded} keep their
+     * classes as individual nodes, in the order they were expanded, as long as those classes fit
+     * next to one cluster node and the external node; later expansions are refused. All external
+     * types share one node. Edges between collapsed nodes are merged and labelled with how many
+     * class-level relationships they stand for.
+     */
+    private static DiagramModel buildClusteredModel(Map<String, Square> byName,
+                                                    List<RelationshipExtractor.Relationship> relationships,
+                                                    int externalCount, Set<String> expanded) {
+        Map<String, String> folderByName = new LinkedHashMap<>();
+        for (Map.Entry<String, Square> entry : byName.entrySet()) {
+            folderByName.put(entry.getKey(), folderOf(entry.getValue().getPath()));
+        }
+        int reserved = (externalCount > 0 ? 1 : 0) + 1;
+        Set<String> accepted = new LinkedHashSet<>();
+        List<String> refused = new ArrayList<>();
+        int expandedCount = 0;
+        for (String key : expanded) {
+            Set<String> trial = new LinkedHashSet<>(accepted);
+            trial.add(key);
+            int count = 0;
+            for (String folder : folderByName.values()) {
+                if (isExpanded(folder, trial)) count++;
+            }
+            if (count + reserved <= NODE_BUDGET) {
+                accepted = trial;
+                expandedCount = count;
+            } else {
+                refused.add(key);
+            }
+        }
+        List<String> collapsibleFolders = new ArrayList<>();
+        for (String folder : folderByName.values()) {
+            if (!isExpanded(folder, accepted)) collapsibleFolders.add(folder);
+        }
+        int clusterBudget = NODE_BUDGET - expandedCount - (externalCount > 0 ? 1 : 0);
+        int depth = clusterDepth(collapsibleFolders, clusterBudget);
+
+        Map<String, String> keyByName = new LinkedHashMap<>();
+        Map<String, Integer> members = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : folderByName.entrySet()) {
+            String folder = entry.getValue();
+            String key = isExpanded(folder, accepted) ? "N:" + entry.getKey() : truncate(folder, depth);
+            keyByName.put(entry.getKey(), key);
+            members.merge(key, 1, Integer::sum);
+        }
+        List<String> clusters = new ArrayList<>();
+        for (String key : members.keySet()) {
+            if (!key.startsWith("N:")) clusters.add(key);
+        }
+        if (clusters.size() > clusterBudget) {
+            // Too many top-level folders: keep the largest and fold the rest into one node. They
+            // stay in the cluster menu, so each can still be expanded on its own.
+            List<String> bySize = new ArrayList<>(clusters);
+            bySize.sort((a, b) -> Integer.compare(members.get(b), members.get(a)));
+            Set<String> merged = new LinkedHashSet<>(bySize.subList(clusterBudget - 1, bySize.size()));
+            keyByName.replaceAll((name, key) -> merged.contains(key) ? OTHER_CLUSTER : key);
+            members.clear();
+            for (String key : keyByName.values()) {
+                members.merge(key, 1, Integer::sum);
+            }
+        }
+
+        Map<String, String> aliasByKey = new LinkedHashMap<>();
+        List<NodeDef> nodes = new ArrayList<>();
+        int index = 1;
+        for (Map.Entry<String, Integer> entry : members.entrySet()) {
+            String key = entry.getKey();
+            String alias = "N" + index++;
+            aliasByKey.put(key, alias);
+            if (key.startsWith("N:")) {
+                String name = key.substring(2);
+                nodes.add(new NodeDef(name, alias, classify(byName.get(name))));
+            } else if (key.equals(OTHER_CLUSTER)) {
+                nodes.add(new NodeDef("other folders (" + entry.getValue() + ")", alias, NodeStyle.CLUSTER));
+            } else {
+                nodes.add(new NodeDef(clusterLabel(key) + " (" + entry.getValue() + ")", alias, NodeStyle.CLUSTER));
+            }
+        }
+        if (externalCount > 0) {
+            aliasByKey.put(EXTERNAL_CLUSTER, "X1");
+            nodes.add(new NodeDef("external types (" + externalCount + ")", "X1", NodeStyle.EXTERNAL));
+        }
+
+        Set<String> exactEdges = new LinkedHashSet<>();
+        Map<String, Integer> weightedEdges = new LinkedHashMap<>();
+        for (RelationshipExtractor.Relationship rel : relationships) {
+            String fromKey = keyByName.get(rel.getFrom());
+            String toKey = keyByName.getOrDefault(rel.getTo(), EXTERNAL_CLUSTER);
+            if (fromKey == null || fromKey.equals(toKey)) continue;
+            String fromAlias = aliasByKey.get(fromKey);
+            String toAlias = aliasByKey.get(toKey);
+            if (fromAlias == null || toAlias == null) continue;
+            if (fromKey.startsWith("N:") && toKey.startsWith("N:")) {
+                exactEdges.add(rel.toPlantUml(fromAlias, toAlias));
+            } else {
+                weightedEdges.merge(fromAlias + " ..> " + toAlias, 1, Integer::sum);
+            }
+        }
+
+        StringBuilder uml = startUml();
+        appendNodes(uml, nodes);
+        for (String edge : exactEdges) {
+            uml.append(edge).append('\n');
+        }
+        for (Map.Entry<String, Integer> edge : weightedEdges.entrySet()) {
+            uml.append(edge.getKey()).append(" : ").append(edge.getValue()).append('\n');
+        }
+        uml.append("@enduml\n");
+        return new DiagramModel(uml.toString(), byName.size(), nodes.size(),
+                exactEdges.size() + weightedEdges.size(), clusters, refused);
+    }
+
+    private static StringBuilder startUml() {
         StringBuilder uml = new StringBuilder();
         uml.append("@startuml\n");
         uml.append("!pragma layout smetana\n");
@@ -197,51 +481,222 @@ public final class DiagramPanel extends JPanel implements PropertyChangeListener
         uml.append("skinparam defaultFontName Arial\n");
         uml.append("skinparam Shadowing false\n");
         uml.append("skinparam linetype ortho\n");
+        return uml;
+    }
 
+    private static void appendNodes(StringBuilder uml, List<NodeDef> nodes) {
         for (NodeDef def : nodes) {
             String label = def.style.symbol.isEmpty() ? def.name : def.style.symbol + " " + def.name;
             uml.append(String.format("rectangle \"%s\" as %s %s%n",
                     escape(label), def.alias, def.style.colorDirective));
         }
+    }
 
-        int edges = 0;
-        for (RelationshipExtractor.Relationship rel : relationships) {
-            String fromAlias = aliasByName.get(rel.getFrom());
-            String toAlias = aliasByName.get(rel.getTo());
-            if (fromAlias == null || toAlias == null) continue;
-            uml.append(rel.toPlantUml(fromAlias, toAlias)).append('\n');
-            edges++;
-        }
+    private static String folderOf(String path) {
+        String normalized = String.valueOf(path).replace('\\', '/');
+        int slash = normalized.lastIndexOf('/');
+        return slash < 0 ? "" : normalized.substring(0, slash);
+    }
 
-        uml.append("@enduml\n");
-        return new DiagramModel(uml.toString(), nodes.size(), edges);
+    private static boolean isExpanded(String folder, Set<String> expanded) {
+        for (String key : expanded) {
+            if (folder.equals(key) || folder.startsWith(key + "/")) return true;
+        }
+        return false;
     }
 
-    private static NodeStyle classify(Square square) {
-        String name = square.getSimpleName();
-        String code = square.getSource();
+    private static String truncate(String folder, int depth) {
+        if (folder.isEmpty()) return folder;
+        int idx = -1;
+        for (int i = 0; i < depth; i++) {
+            idx = folder.indexOf('/', idx + 1);
+            if (idx < 0) return folder;
+        }
+        return folder.substring(0, idx);
+    }
 
-        if (SourceUtils.declaresInterface(name, code)) {
-            return NodeStyle.INTERFACE;
+    /**
+     * @return the deepest folder level at which the folders collapse into at most {@code budget}
+     *         groups, or 1 when even the top-level folders do not fit
+     */
+    private static int clusterDepth(List<String> folders, int budget) {
+        int maxDepth = 1;
+        for (String folder : folders) {
+            maxDepth = Math.max(maxDepth, folder.split("/").length);
         }
-        if (SourceUtils.declaresAbstractClass(name, code)) {
-            return NodeStyle.ABSTRACT_CLASS;
+        for (int depth = maxDepth; depth > 1; depth--) {
+            Set<String> groups = new LinkedHashSet<>();
+            for (String folder : folders) {
+                groups.add(truncate(folder, depth));
+                if (groups.size() > budget) break;
+            }
+            if (groups.size() <= budget) return depth;
         }
-        return NodeStyle.CLASS;
+        return 1;
+    }
+
+    private static String clusterLabel(String key) {
+        if (key.isEmpty()) return "(root)";
+        String[] parts = key.split("/");
+        if (parts.length <= 2) return key;
+        return ".../" + parts[parts.length - 2] + "/" + parts[parts.length - 1];
+    }
+
+    private static NodeStyle classify(Square square) {
+        return switch (square.getKind()) {
+            case INTERFACE -> NodeStyle.INTERFACE;
+            case ABSTRACT_CLASS -> NodeStyle.ABSTRACT_CLASS;
+            case CLASS -> NodeStyle.CLASS;
+        };
     }
 
     private static String escape(String text) {
         return text == null ? "" : text.replace("\"", "\\\"");
     }
 
+    /**
+     * Builds the UML model and rasterizes it off the EDT. Superseded workers are cancelled;
+     * PlantUML itself is not interruptible, so a cancelled worker simply discards its result.
+     */
+    private final class RenderWorker extends SwingWorker<Rendering, Void> {
+        private final List<Square> squares;
+        private final String prefix;
+        private final boolean vector;
+        private final Set<String> expanded;
+        private volatile DiagramModel model;
+
+        RenderWorker(List<Square> squares, String prefix, boolean vector, Set<String> expanded) {
+            this.squares = squares;
+            this.prefix = prefix;
+            this.vector = vector;
+            this.expanded = expanded;
+        }
+
+        @Override
+        protected Rendering doInBackground() throws Exception {
+            long start = Instrumentation.start();
+            model = buildModel(squares, expanded);
+            Instrumentation.stop(Instrumentation.Phase.DIAGRAM_BUILD, start,
+                    model == null ? 0 : model.nodeCount, model == null ? 0 : model.umlSource.length());
+            if (model == null || isCancelled()) return null;
+            return renderCached(model.umlSource, vector || model.nodeCount > VECTOR_NODE_THRESHOLD);
+        }
+
+        @Override
+        protected void done() {
+            if (isCancelled() || pending != this) return;
+            pending = null;
+            try {
+                Rendering rendering = get();
+                if (model == null) {
+                    canvas.setDiagram(null, null);
+                    visibleClusters = Collections.emptyList();
+                    clustersButton.setEnabled(!expandedClusters.isEmpty());
+                    statusLabel.setText("Could not build a diagram for the current selection.");
+                    return;
+                }
+                canvas.setDiagram(rendering, null);
+                visibleClusters = model.clusters;
+                // Refused expansions would be refused again on every refresh; forget them.
+                model.refused.forEach(expandedClusters::remove);
+                clustersButton.setEnabled(!visibleClusters.isEmpty() || !expandedClusters.isEmpty());
+                String suffix = (prefix == null || prefix.isBlank()) ? "" : " | folder: " + prefix;
+                if (!model.refused.isEmpty()) {
+                    suffix += " | too many classes to expand " + clusterLabel(model.refused.get(0))
+                            + " (limit " + NODE_BUDGET + " nodes)";
+                }
+                if (model.clusters.isEmpty()) {
+                    statusLabel.setText(String.format("Diagram: %d files | %d links%s",
+                            model.nodeCount, model.edgeCount, suffix));
+                } else {
+                    statusLabel.setText(String.format("Diagram: %d files in %d nodes (%d collapsed folders) | %d links%s",
+                            model.fileCount, model.nodeCount, model.clusters.size(), model.edgeCount, suffix));
+                }
+            } catch (CancellationException | InterruptedException ignored) {
+                // superseded by a newer request
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause() == null ? e : e.getCause();
+                canvas.setDiagram(null, cause.getMessage());
+                statusLabel.setText("Could not render the diagram.");
+            }
+        }
+    }
+
+    /**
+     * Result of one render: a raster image for the PNG pipeline or a scene graph for the SVG one,
+     * with the heap it is estimated to hold.
+     */
+    private record Rendering(BufferedImage image, SvgScene scene, long bytes) {}
+
+    /**
+     * Access-ordered LRU of rendered diagrams keyed by output format and the SHA-256 of their UML
+     * source, bounded by entry count and by {@code -Dgithubviz.diagram.cacheMB} (default 64) of
+     * decoded pixels and scenes. A rendering larger than the whole budget is not cached.
+     */
+    private static final class RenderCache extends LinkedHashMap<String, Rendering> {
+        private final int capacity;
+        private final long maxBytes;
+        private long bytes;
+
+        RenderCache(int capacity, long maxBytes) {
+            super(capacity, 0.75f, true);
+            this.capacity = capacity;
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public Rendering put(String key, Rendering value) {
+            if (value.bytes() > maxBytes) return remove(key);
+            Rendering old = super.put(key, value);
+            if (old != null) bytes -= old.bytes();
+            bytes += value.bytes();
+            Iterator<Rendering> eldest = values().iterator();
+            while (size() > capacity || bytes > maxBytes) {
+                bytes -= eldest.next().bytes();
+                eldest.remove();
+            }
+            return old;
+        }
+
+        @Override
+        public Rendering remove(Object key) {
+            Rendering old = super.remove(key);
+            if (old != null) bytes -= old.bytes();
+            return old;
+        }
+    }
+
+    private static final class ExposedInputStream extends ByteArrayInputStream {
+        ExposedInputStream(ExposedOutputStream os) {
+            super(os.buffer(), 0, os.size());
+        }
+    }
+
+    private static final class ExposedOutputStream extends ByteArrayOutputStream {
+        ExposedOutputStream(int size) {
+            super(size);
+        }
+
+        byte[] buffer() {
+            return buf;
+        }
+    }
+
     private static final class DiagramModel {
         final String umlSource;
+        final int fileCount;
         final int nodeCount;
         final int edgeCount;
-        DiagramModel(String source, int nodes, int edges) {
+        final List<String> clusters;
+        /** Expanded folders left collapsed because their classes would exceed the node budget. */
+        final List<String> refused;
+        DiagramModel(String source, int files, int nodes, int edges, List<String> clusters, List<String> refused) {
             this.umlSource = source;
+            this.fileCount = files;
             this.nodeCount = nodes;
             this.edgeCount = edges;
+            this.clusters = clusters;
+            this.refused = refused;
         }
     }
 
@@ -260,7 +715,8 @@ public final class DiagramPanel extends JPanel implements PropertyChangeListener
         CLASS("C", "#dcead3"),
         ABSTRACT_CLASS("A", "#cfe7f7"),
         INTERFACE("I", "#dcd0f7"),
-        EXTERNAL("ext", "#e6e6e6");
+        EXTERNAL("ext", "#e6e6e6"),
+        CLUSTER("pkg", "#f3e3c3");
 
         final String symbol;
         final String colorDirective;
@@ -271,40 +727,81 @@ public final class DiagramPanel extends JPanel implements PropertyChangeListener
         }
     }
 
+    /**
+     * Paints either a raster diagram or an SVG scene. Scenes are drawn in fixed-size tiles that are
+     * rasterized only when they scroll into view and kept in a small LRU, so memory is bounded by the
+     * viewport rather than the diagram. Ctrl + mouse wheel zooms around the cursor.
+     */
     private static final class DiagramCanvas extends JPanel {
+        private static final int TILE_SIZE = 256;
+        private static final int TILE_CACHE_SIZE = 96;
+        private static final double MIN_ZOOM = 0.1;
+        private static final double MAX_ZOOM = 4.0;
+
+        private final Map<Long, BufferedImage> tiles = new TileCache(TILE_CACHE_SIZE);
         private BufferedImage image;
+        private SvgScene scene;
         private String error;
+        private double zoom = 1.0;
 
-        void setDiagram(String umlSource) {
-            if (umlSource == null || umlSource.isBlank()) {
-                image = null;
-                error = null;
-                repaint();
-                return;
+        DiagramCanvas() {
+            addMouseWheelListener(this::onWheel);
+        }
+
+        void setDiagram(Rendering rendering, String error) {
+            FlightEvents.DiagramUpdate event = new FlightEvents.DiagramUpdate();
+            event.begin();
+            this.image = rendering == null ? null : rendering.image();
+            this.scene = rendering == null ? null : rendering.scene();
+            this.error = error;
+            tiles.clear();
+            revalidate();
+            repaint();
+            event.end();
+            if (event.shouldCommit()) {
+                event.kind = scene != null ? "svg" : image != null ? "png" : "none";
+                event.error = error;
+                event.commit();
             }
-            try {
-                SourceStringReader reader = new SourceStringReader(umlSource);
-                ByteArrayOutputStream os = new ByteArrayOutputStream();
-                reader.outputImage(os, 0, new FileFormatOption(FileFormat.PNG));
-                byte[] data = os.toByteArray();
-                os.close();
-                image = ImageIO.read(new ByteArrayInputStream(data));
-                error = null;
-            } catch (IOException e) {
-                image = null;
-                error = e.getMessage();
+        }
+
+        @Override
+        public void paint(Graphics g) {
+            FlightEvents.PanelPaint event = FlightEvents.paintStarted();
+            super.paint(g);
+            FlightEvents.paintFinished(event, this);
+        }
+
+        private void onWheel(MouseWheelEvent e) {
+            if (!e.isControlDown() || (image == null && scene == null)) {
+                getParent().dispatchEvent(SwingUtilities.convertMouseEvent(this, e, getParent()));
+                return;
             }
+            double next = Math.max(MIN_ZOOM, Math.min(MAX_ZOOM, zoom * Math.pow(1.1, -e.getPreciseWheelRotation())));
+            if (next == zoom) return;
+            double factor = next / zoom;
+            zoom = next;
+            tiles.clear();
             revalidate();
+            if (getParent() instanceof JViewport viewport) {
+                Point view = viewport.getViewPosition();
+                int x = (int) Math.round(e.getX() * factor - (e.getX() - view.x));
+                int y = (int) Math.round(e.getY() * factor - (e.getY() - view.y));
+                SwingUtilities.invokeLater(() -> viewport.setViewPosition(new Point(Math.max(0, x), Math.max(0, y))));
+            }
             repaint();
         }
 
         @Override
         protected void paintComponent(Graphics g) {
             super.paintComponent(g);
-            if (image != null) {
-                int x = Math.max(0, (getWidth() - image.getWidth()) / 2);
-                int y = Math.max(0, (getHeight() - image.getHeight()) / 2);
-                g.drawImage(image, x, y, this);
+            if (scene != null) {
+                paintScene((Graphics2D) g);
+            } else if (image != null) {
+                Dimension size = scaledSize();
+                int x = Math.max(0, (getWidth() - size.width) / 2);
+                int y = Math.max(0, (getHeight() - size.height) / 2);
+                g.drawImage(image, x, y, size.width, size.height, this);
             } else {
                 g.setColor(new Color(110, 110, 110));
                 g.setFont(g.getFont().deriveFont(Font.PLAIN, 13f));
@@ -317,12 +814,70 @@ public final class DiagramPanel extends JPanel implements PropertyChangeListener
             }
         }
 
-        @Override
-        public Dimension getPreferredSize() {
+        private void paintScene(Graphics2D g) {
+            Dimension size = scaledSize();
+            int ox = Math.max(0, (getWidth() - size.width) / 2);
+            int oy = Math.max(0, (getHeight() - size.height) / 2);
+            Rectangle clip = g.getClipBounds();
+            if (clip == null) clip = new Rectangle(0, 0, getWidth(), getHeight());
+
+            int firstCol = Math.max(0, (clip.x - ox) / TILE_SIZE);
+            int firstRow = Math.max(0, (clip.y - oy) / TILE_SIZE);
+            int lastCol = Math.min((size.width - 1) / TILE_SIZE, (clip.x + clip.width - ox) / TILE_SIZE);
+            int lastRow = Math.min((size.height - 1) / TILE_SIZE, (clip.y + clip.height - oy) / TILE_SIZE);
+            for (int row = firstRow; row <= lastRow; row++) {
+                for (int col = firstCol; col <= lastCol; col++) {
+                    g.drawImage(tile(col, row), ox + col * TILE_SIZE, oy + row * TILE_SIZE, null);
+                }
+            }
+        }
+
+        private BufferedImage tile(int col, int row) {
+            long key = ((long) col << 32) | (row & 0xffffffffL);
+            BufferedImage tile = tiles.get(key);
+            if (tile != null) return tile;
+
+            tile = new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g2 = tile.createGraphics();
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g2.translate(-col * TILE_SIZE, -row * TILE_SIZE);
+            g2.scale(zoom, zoom);
+            Rectangle2D area = new Rectangle2D.Double(col * TILE_SIZE / zoom, row * TILE_SIZE / zoom,
+                    TILE_SIZE / zoom, TILE_SIZE / zoom);
+            scene.paint(g2, area);
+            g2.dispose();
+            tiles.put(key, tile);
+            return tile;
+        }
+
+        private Dimension scaledSize() {
+            if (scene != null) {
+                return new Dimension((int) Math.ceil(scene.getWidth() * zoom), (int) Math.ceil(scene.getHeight() * zoom));
+            }
             if (image != null) {
-                return new Dimension(image.getWidth(), image.getHeight());
+                return new Dimension((int) Math.ceil(image.getWidth() * zoom), (int) Math.ceil(image.getHeight() * zoom));
             }
             return new Dimension(640, 420);
         }
+
+        @Override
+        public Dimension getPreferredSize() {
+            return scaledSize();
+        }
+    }
+
+    private static final class TileCache extends LinkedHashMap<Long, BufferedImage> {
+        private final int capacity;
+
+        TileCache(int capacity) {
+            super(capacity, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, BufferedImage> eldest) {
+            return size() > capacity;
+        }
     }
 }
@@ -0,0 +1,567 @@
+package com.beginsecure.panels;
+
+import com.beginsecure.Blackboard;
+import com.beginsecure.Square;
+import com.beginsecure.util.FlightEvents;
+import com.beginsecure.util.ForceDirectedLayout;
+import com.beginsecure.util.RelationshipExtractor;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Path2D;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * Native Java2D dependency graph for the selected folder. Unlike the PlantUML diagram it scales to
+ * thousands of classes: the layout is a Barnes–Hut force simulation stepped on a background pool,
+ * the canvas animates it as it converges, and nodes can be dragged to pin them while it settles.
+ */
+public final class GraphPanel extends JPanel implements PropertyChangeListener {
+
+    private static final Color BACKGROUND = new Color(246, 244, 240);
+
+    private final GraphCanvas canvas = new GraphCanvas();
+    private final JLabel statusLabel = new JLabel("Load a repository to visualize the dependency graph.");
+    private ExecutorService driver;
+    private final Timer animation = new Timer(33, evt -> canvas.tick());
+    private volatile boolean loading;
+    private volatile Session session;
+
+    public GraphPanel() {
+        super(new BorderLayout());
+        setBackground(BACKGROUND);
+        setBorder(BorderFactory.createEmptyBorder(8, 10, 8, 10));
+
+        canvas.setBorder(BorderFactory.createLineBorder(new Color(200, 200, 200)));
+        add(canvas, BorderLayout.CENTER);
+
+        JPanel footer = new JPanel(new BorderLayout());
+        footer.setOpaque(false);
+        statusLabel.setFont(statusLabel.getFont().deriveFont(Font.PLAIN, 12f));
+        footer.add(statusLabel, BorderLayout.WEST);
+        JButton fitButton = new JButton("Fit");
+        fitButton.addActionListener(evt -> canvas.fitAndFollow());
+        footer.add(fitButton, BorderLayout.EAST);
+        add(footer, BorderLayout.SOUTH);
+
+        try {
+            Blackboard.getInstance().addPropertyChangeListener(this);
+        } catch (Throwable ignored) {
+            statusLabel.setText("Blackboard listener unavailable.");
+        }
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        if (driver == null) {
+            driver = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "graph-driver");
+                t.setDaemon(true);
+                return t;
+            });
+            if (session == null) SwingUtilities.invokeLater(this::refreshGraph);
+        }
+    }
+
+    /**
+     * Stops the animation and releases the driver thread and the layout pool of the current
+     * graph; they are recreated if the panel is shown again.
+     */
+    @Override
+    public void removeNotify() {
+        showSession(null);
+        animation.stop();
+        if (driver != null) {
+            driver.shutdownNow();
+            driver = null;
+        }
+        super.removeNotify();
+    }
+
+    private static ForkJoinPool newLayoutPool() {
+        return new ForkJoinPool(
+                Math.max(1, Runtime.getRuntime().availableProcessors() - 1),
+                pool -> {
+                    ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                    t.setDaemon(true);
+                    t.setName("graph-layout-" + t.getPoolIndex());
+                    return t;
+                }, null, false);
+    }
+
+    @Override
+    public void propertyChange(PropertyChangeEvent evt) {
+        String name = evt.getPropertyName();
+        if ("loading".equals(name) && evt.getNewValue() instanceof Boolean b) {
+            loading = b;
+            if (loading) {
+                SwingUtilities.invokeLater(() -> {
+                    showSession(null);
+                    statusLabel.setText("Loading repository data...");
+                });
+            }
+            return;
+        }
+        if ("squares".equals(name) || "selectedPrefix".equals(name)) {
+            loading = false;
+            SwingUtilities.invokeLater(this::refreshGraph);
+        }
+    }
+
+    private void refreshGraph() {
+        if (loading || driver == null) return;
+
+        List<Square> squares = snapshotSquares();
+        if (squares.isEmpty()) {
+            showSession(null);
+            statusLabel.setText("Load a repository to visualize the dependency graph.");
+            return;
+        }
+        String prefix = getSelectedPrefix();
+        List<Square> filtered = filterByPrefix(squares, prefix);
+        if (filtered.isEmpty()) {
+            showSession(null);
+            if (prefix == null || prefix.isBlank()) {
+                statusLabel.setText("No Java sources available to graph.");
+            } else {
+                statusLabel.setText("No Java sources inside \"" + prefix + "\".");
+            }
+            return;
+        }
+
+        showSession(null);
+        statusLabel.setText("Building graph...");
+        Session next = new Session(prefix);
+        session = next;
+        driver.submit(() -> next.build(filtered));
+    }
+
+    private void showSession(Session next) {
+        Session previous = session;
+        if (previous != null && previous != next) {
+            previous.cancel();
+        }
+        session = next;
+        canvas.setSession(next);
+        if (next == null) animation.stop();
+    }
+
+    private static List<Square> snapshotSquares() {
+        try {
+            List<Square> list = Blackboard.getInstance().getSquares();
+            if (list == null || list.isEmpty()) {
+                return Collections.emptyList();
+            }
+            return new ArrayList<>(list);
+        } catch (Throwable t) {
+            return Collections.emptyList();
+        }
+    }
+
+    private static String getSelectedPrefix() {
+        try {
+            String prefix = Blackboard.getInstance().getSelectedPrefix();
+            return prefix == null ? "" : prefix;
+        } catch (Throwable t) {
+            return "";
+        }
+    }
+
+    private static List<Square> filterByPrefix(List<Square> source, String prefix) {
+        List<Square> filtered = new ArrayList<>();
+        boolean hasPrefix = prefix != null && !prefix.isBlank();
+        String normalized = hasPrefix ? prefix.replace('\\', '/') : "";
+        for (Square square : source) {
+            String path = String.valueOf(square.getPath()).replace('\\', '/');
+            if (!path.endsWith(".java")) continue;
+            if (!hasPrefix || path.contains(normalized + "/") || path.endsWith("/" + normalized) || path.equals(normalized)) {
+                filtered.add(square);
+            }
+        }
+        return filtered;
+    }
+
+    private enum NodeKind {
+        CLASS(new Color(120, 170, 100)),
+        ABSTRACT_CLASS(new Color(90, 150, 200)),
+        INTERFACE(new Color(150, 120, 210)),
+        EXTERNAL(new Color(170, 170, 170));
+
+        final Color color;
+
+        NodeKind(Color color) {
+            this.color = color;
+        }
+    }
+
+    /**
+     * One graph plus its running layout. Built and stepped on the driver thread; the canvas only
+     * reads the latest published {@link #positions} snapshot.
+     */
+    private final class Session {
+        private final String prefix;
+        volatile boolean cancelled;
+        volatile double[] positions = new double[0];
+        String[] names = new String[0];
+        NodeKind[] kinds = new NodeKind[0];
+        int[] edgeFrom = new int[0];
+        int[] edgeTo = new int[0];
+        ForceDirectedLayout layout;
+        private ForkJoinPool layoutPool;
+        private boolean running;
+        private boolean scheduled;
+
+        Session(String prefix) {
+            this.prefix = prefix;
+        }
+
+        /**
+         * Stops stepping and shuts down this graph's layout pool.
+         */
+        void cancel() {
+            cancelled = true;
+            ForkJoinPool pool;
+            synchronized (this) {
+                pool = layoutPool;
+                layoutPool = null;
+            }
+            if (pool != null) pool.shutdownNow();
+        }
+
+        void build(List<Square> squares) {
+            try {
+                Map<String, Integer> index = new HashMap<>();
+                List<String> nameList = new ArrayList<>();
+                List<NodeKind> kindList = new ArrayList<>();
+                for (Square s : squares) {
+                    String name = s.getSimpleName();
+                    if (name == null || name.isBlank() || index.containsKey(name)) continue;
+                    index.put(name, nameList.size());
+                    nameList.add(name);
+                    kindList.add(classify(s));
+                }
+                if (cancelled) return;
+
+                List<RelationshipExtractor.Relationship> relationships = RelationshipExtractor.extract(squares);
+                List<int[]> edges = new ArrayList<>();
+                for (RelationshipExtractor.Relationship rel : relationships) {
+                    Integer from = index.get(rel.getFrom());
+                    if (from == null) continue;
+                    Integer to = index.get(rel.getTo());
+                    if (to == null) {
+                        to = nameList.size();
+                        index.put(rel.getTo(), to);
+                        nameList.add(rel.getTo());
+                        kindList.add(NodeKind.EXTERNAL);
+                    }
+                    edges.add(new int[]{from, to});
+                }
+                if (cancelled) return;
+
+                names = nameList.toArray(new String[0]);
+                kinds = kindList.toArray(new NodeKind[0]);
+                edgeFrom = new int[edges.size()];
+                edgeTo = new int[edges.size()];
+                for (int e = 0; e < edges.size(); e++) {
+                    edgeFrom[e] = edges.get(e)[0];
+                    edgeTo[e] = edges.get(e)[1];
+                }
+                ForkJoinPool pool = newLayoutPool();
+                synchronized (this) {
+                    if (cancelled) {
+                        pool.shutdown();
+                        return;
+                    }
+                    layoutPool = pool;
+                }
+                layout = new ForceDirectedLayout(names.length, edgeFrom, edgeTo, pool);
+                positions = layout.snapshot();
+
+                SwingUtilities.invokeLater(() -> {
+                    if (cancelled) return;
+                    showSession(this);
+                    canvas.fit();
+                    String suffix = (prefix == null || prefix.isBlank()) ? "" : " | folder: " + prefix;
+                    statusLabel.setText(String.format("Graph: %d nodes | %d links%s",
+                            names.length, edgeFrom.length, suffix));
+                });
+                run();
+            } catch (RuntimeException e) {
+                SwingUtilities.invokeLater(() -> {
+                    if (!cancelled) statusLabel.setText("Could not build the graph: " + e.getMessage());
+                });
+            }
+        }
+
+        /**
+         * Steps the layout until it converges or the session is replaced. Safe to call again after
+         * the user reheats the simulation by dragging.
+         */
+        void run() {
+            synchronized (this) {
+                if (running) return;
+                running = true;
+            }
+            SwingUtilities.invokeLater(animation::start);
+            try {
+                while (!cancelled && layout.step()) {
+                    positions = layout.snapshot();
+                }
+                positions = layout.snapshot();
+            } catch (RuntimeException e) {
+                // A cancelled session's pool is shut down under a running step.
+                if (!cancelled) throw e;
+            } finally {
+                synchronized (this) {
+                    running = false;
+                }
+                SwingUtilities.invokeLater(() -> {
+                    if (session == this) canvas.repaint();
+                    animation.stop();
+                });
+            }
+        }
+
+        void drag(int node, double lx, double ly) {
+            if (layout == null) return;
+            layout.pin(node, lx, ly);
+            // Show the node under the cursor right away; the layout applies the pin on its next step.
+            double[] moved = positions.clone();
+            if (node * 2 + 1 < moved.length) {
+                moved[node * 2] = lx;
+                moved[node * 2 + 1] = ly;
+            }
+            positions = moved;
+            ExecutorService executor = driver;
+            synchronized (this) {
+                if (running || scheduled || executor == null || cancelled) return;
+                scheduled = true;
+            }
+            executor.submit(() -> {
+                synchronized (this) {
+                    scheduled = false;
+                }
+                run();
+            });
+        }
+
+        void release(int node) {
+            if (layout != null) layout.unpin(node);
+        }
+
+        private NodeKind classify(Square square) {
+            return switch (square.getKind()) {
+                case INTERFACE -> NodeKind.INTERFACE;
+                case ABSTRACT_CLASS -> NodeKind.ABSTRACT_CLASS;
+                case CLASS -> NodeKind.CLASS;
+            };
+        }
+    }
+
+    private static final class GraphCanvas extends JPanel {
+        private static final double NODE_RADIUS = 4.5;
+        private static final double LABEL_SCALE = 0.6;
+
+        private Session session;
+        private double scale = 1.0;
+        private double offsetX;
+        private double offsetY;
+        private int dragNode = -1;
+        private Point panOrigin;
+        private boolean autoFit = true;
+
+        GraphCanvas() {
+            setBackground(BACKGROUND);
+            MouseAdapter mouse = new MouseAdapter() {
+                @Override
+                public void mousePressed(MouseEvent e) {
+                    autoFit = false;
+                    dragNode = hitTest(e.getX(), e.getY());
+                    panOrigin = dragNode < 0 ? e.getPoint() : null;
+                }
+
+                @Override
+                public void mouseDragged(MouseEvent e) {
+                    Session s = session;
+                    if (s == null) return;
+                    if (dragNode >= 0) {
+                        s.drag(dragNode, toLayoutX(e.getX()), toLayoutY(e.getY()));
+                        repaint();
+                    } else if (panOrigin != null) {
+                        offsetX += e.getX() - panOrigin.x;
+                        offsetY += e.getY() - panOrigin.y;
+                        panOrigin = e.getPoint();
+                        repaint();
+                    }
+                }
+
+                @Override
+                public void mouseReleased(MouseEvent e) {
+                    Session s = session;
+                    if (s != null && dragNode >= 0) s.release(dragNode);
+                    dragNode = -1;
+                    panOrigin = null;
+                }
+
+                @Override
+                public void mouseWheelMoved(MouseWheelEvent e) {
+                    autoFit = false;
+                    double factor = Math.pow(1.1, -e.getPreciseWheelRotation());
+                    double next = Math.max(0.02, Math.min(8.0, scale * factor));
+                    factor = next / scale;
+                    offsetX = e.getX() - (e.getX() - offsetX) * factor;
+                    offsetY = e.getY() - (e.getY() - offsetY) * factor;
+                    scale = next;
+                    repaint();
+                }
+            };
+            addMouseListener(mouse);
+            addMouseMotionListener(mouse);
+            addMouseWheelListener(mouse);
+        }
+
+        void setSession(Session session) {
+            this.session = session;
+            dragNode = -1;
+            autoFit = true;
+            repaint();
+        }
+
+        /**
+         * Animation frame: keeps the whole graph in view while it expands, until the user takes over.
+         */
+        void tick() {
+            if (autoFit) {
+                fit();
+            } else {
+                repaint();
+            }
+        }
+
+        void fitAndFollow() {
+            autoFit = true;
+            fit();
+        }
+
+        void fit() {
+            Session s = session;
+            double[] pos = s == null ? null : s.positions;
+            if (pos == null || pos.length == 0 || getWidth() <= 0 || getHeight() <= 0) {
+                repaint();
+                return;
+            }
+            double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
+            double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+            for (int i = 0; i < pos.length; i += 2) {
+                minX = Math.min(minX, pos[i]);
+                maxX = Math.max(maxX, pos[i]);
+                minY = Math.min(minY, pos[i + 1]);
+                maxY = Math.max(maxY, pos[i + 1]);
+            }
+            double w = Math.max(1, maxX - minX), h = Math.max(1, maxY - minY);
+            scale = Math.min((getWidth() - 40) / w, (getHeight() - 40) / h);
+            scale = Math.max(0.02, Math.min(8.0, scale));
+            offsetX = getWidth() / 2.0 - (minX + w / 2) * scale;
+            offsetY = getHeight() / 2.0 - (minY + h / 2) * scale;
+            repaint();
+        }
+
+        private double toLayoutX(int sx) {
+            return (sx - offsetX) / scale;
+        }
+
+        private double toLayoutY(int sy) {
+            return (sy - offsetY) / scale;
+        }
+
+        private int hitTest(int sx, int sy) {
+            Session s = session;
+            if (s == null) return -1;
+            double[] pos = s.positions;
+            double best = (NODE_RADIUS + 3) * (NODE_RADIUS + 3);
+            int hit = -1;
+            for (int i = 0; i * 2 + 1 < pos.length; i++) {
+                double ddx = pos[i * 2] * scale + offsetX - sx;
+                double ddy = pos[i * 2 + 1] * scale + offsetY - sy;
+                double d = ddx * ddx + ddy * ddy;
+                if (d <= best) {
+                    best = d;
+                    hit = i;
+                }
+            }
+            return hit;
+        }
+
+        @Override
+        public void paint(Graphics g) {
+            FlightEvents.PanelPaint event = FlightEvents.paintStarted();
+            super.paint(g);
+            FlightEvents.paintFinished(event, this);
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            super.paintComponent(g);
+            Session s = session;
+            double[] pos = s == null ? null : s.positions;
+            if (pos == null || pos.length == 0) {
+                g.setColor(new Color(110, 110, 110));
+                g.setFont(g.getFont().deriveFont(Font.PLAIN, 13f));
+                String message = "No graph data yet.";
+                int x = Math.max(10, (getWidth() - g.getFontMetrics().stringWidth(message)) / 2);
+                g.drawString(message, x, Math.max(20, getHeight() / 2));
+                return;
+            }
+
+            Graphics2D g2 = (Graphics2D) g.create();
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            Rectangle clip = g2.getClipBounds();
+            if (clip == null) clip = new Rectangle(0, 0, getWidth(), getHeight());
+
+            Path2D edges = new Path2D.Float();
+            for (int e = 0; e < s.edgeFrom.length; e++) {
+                int a = s.edgeFrom[e] * 2, b = s.edgeTo[e] * 2;
+                if (b + 1 >= pos.length || a + 1 >= pos.length) continue;
+                edges.moveTo(pos[a] * scale + offsetX, pos[a + 1] * scale + offsetY);
+                edges.lineTo(pos[b] * scale + offsetX, pos[b + 1] * scale + offsetY);
+            }
+            g2.setColor(new Color(68, 68, 68, 70));
+            g2.setStroke(new BasicStroke(1f));
+            g2.draw(edges);
+
+            boolean labels = scale >= LABEL_SCALE;
+            g2.setFont(g2.getFont().deriveFont(Font.PLAIN, 11f));
+            Ellipse2D.Double dot = new Ellipse2D.Double();
+            double r = NODE_RADIUS;
+            for (int i = 0; i * 2 + 1 < pos.length && i < s.kinds.length; i++) {
+                double sx = pos[i * 2] * scale + offsetX;
+                double sy = pos[i * 2 + 1] * scale + offsetY;
+                if (sx < clip.x - 60 || sx > clip.x + clip.width + 60
+                        || sy < clip.y - 20 || sy > clip.y + clip.height + 20) continue;
+                dot.setFrame(sx - r, sy - r, r * 2, r * 2);
+                g2.setColor(s.kinds[i].color);
+                g2.fill(dot);
+                if (labels || i == dragNode) {
+                    g2.setColor(new Color(60, 60, 60));
+                    g2.drawString(s.names[i], (float) (sx + r + 2), (float) (sy + 4));
+                }
+            }
+            g2.dispose();
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.beginsecure.panels;
 
 import com.beginsecure.Blackboard;
 import com.beginsecure.Square;
+import com.beginsecure.util.FlightEvents;
 
 import javax.swing.*;
 import java.awt.*;
@@ -21,7 +22,11 @@ public class GridPanel extends JPanel implements PropertyChangeListener {
 
     public GridPanel() {
         setBackground(Color.WHITE);
-        Blackboard.getInstance().addPropertyChangeListener(this);
+        Blackboard board = Blackboard.getInstance();
+        // The tab may be opened after a load already finished, so start from the current state.
+        loading = board.isLoading();
+        ready = !loading && !board.getSquares().isEmpty();
+        board.addPropertyChangeListener(this);
     }
 
     @Override
@@ -87,6 +92,13 @@ public class GridPanel extends JPanel implements PropertyChangeListener {
         }
     }
 
+    @Override
+    public void paint(Graphics g) {
+        FlightEvents.PanelPaint event = FlightEvents.paintStarted();
+        super.paint(g);
+        FlightEvents.paintFinished(event, this);
+    }
+
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
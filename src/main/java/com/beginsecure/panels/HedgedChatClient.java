@@ -0,0 +1,257 @@
+package com.beginsecure.panels;
+
+import com.beginsecure.util.Metrics;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Sends a chat request to a primary provider and, if no first token arrives within the hedge
+ * delay, also to a secondary one; whichever streams first wins and the other is cancelled. A
+ * primary that fails outright (or whose circuit is open) fails over to the secondary at once.
+ * Errors after the winner has started streaming are reported rather than retried, so text is
+ * never duplicated in the transcript.
+ */
+final class HedgedChatClient {
+
+    private static final ExecutorService ATTEMPTS = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "chat-attempt");
+        t.setDaemon(true);
+        return t;
+    });
+    private static final Metrics.Counter REQUESTS = Metrics.counter("llm.requests");
+    private static final Metrics.Counter FAILURES = Metrics.counter("llm.failures");
+    private static final Metrics.Counter SECONDARY_WINS = Metrics.counter("llm.secondaryWins");
+    private static final Metrics.Histogram FIRST_TOKEN = Metrics.histogram("llm.firstToken");
+    private static final Metrics.Histogram ROUND_TRIP = Metrics.histogram("llm.roundTrip");
+
+    /**
+     * The completed reply and the provider that produced it.
+     */
+    record Reply(String text, ChatCompletionClient.Provider provider) { }
+
+    /**
+     * No reply could be obtained. The message names every provider that was tried or skipped and
+     * why; {@link #failed()} lists the display names of those whose request actually failed.
+     */
+    static final class ProviderFailureException extends IOException {
+        private final List<String> failed;
+
+        ProviderFailureException(String message, List<String> failed, Throwable cause) {
+            super(message, cause);
+            this.failed = List.copyOf(failed);
+        }
+
+        List<String> failed() {
+            return failed;
+        }
+    }
+
+    private final ChatCompletionClient primary;
+    private final ChatCompletionClient secondary;
+    private final long hedgeDelayMillis;
+
+    HedgedChatClient(ChatCompletionClient primary, ChatCompletionClient secondary, long hedgeDelayMillis) {
+        this.primary = primary;
+        this.secondary = secondary;
+        this.hedgeDelayMillis = hedgeDelayMillis;
+    }
+
+    static long configuredHedgeDelay() {
+        return Long.getLong("githubviz.chat.hedgeMillis", 1500L);
+    }
+
+    ChatCompletionClient primary() {
+        return primary;
+    }
+
+    ChatCompletionClient secondary() {
+        return secondary;
+    }
+
+    /**
+     * @return whether at least one provider has an API key
+     */
+    boolean isConfigured() {
+        return !primary.apiKey().isBlank() || !secondary.apiKey().isBlank();
+    }
+
+    /**
+     * Streams the reply. {@code onStart} is called once, with the winning provider, right before
+     * its first delta is handed to {@code onDelta}.
+     * @throws ProviderFailureException if no provider could be asked, all that were asked failed,
+     *                                  or the winner failed mid-stream
+     */
+    Reply stream(List<ChatMessage> messages, Consumer<ChatCompletionClient.Provider> onStart,
+                 Consumer<String> onDelta, ServerSentEvents.Cancel cancel) throws Exception {
+        long start = Metrics.Histogram.start();
+        REQUESTS.increment();
+        try {
+            Reply reply = new Race(messages, provider -> {
+                FIRST_TOKEN.recordSince(start);
+                if (!provider.equals(primary.provider())) SECONDARY_WINS.increment();
+                onStart.accept(provider);
+            }, onDelta).run(cancel);
+            if (!cancel.isCancelled()) ROUND_TRIP.recordSince(start);
+            return reply;
+        } catch (Exception e) {
+            FAILURES.increment();
+            throw e;
+        }
+    }
+
+    /**
+     * State of one hedged request.
+     */
+    private final class Race {
+        final List<ChatMessage> messages;
+        final Consumer<ChatCompletionClient.Provider> onStart;
+        final Consumer<String> onDelta;
+        final AtomicReference<Attempt> winner = new AtomicReference<>();
+        final CompletableFuture<Attempt> won = new CompletableFuture<>();
+        final List<Attempt> attempts = new CopyOnWriteArrayList<>();
+        /** Why a provider was not asked at all, e.g. "Groq: no API key". */
+        final List<String> skipped = new ArrayList<>();
+
+        Race(List<ChatMessage> messages, Consumer<ChatCompletionClient.Provider> onStart, Consumer<String> onDelta) {
+            this.messages = messages;
+            this.onStart = onStart;
+            this.onDelta = onDelta;
+        }
+
+        Reply run(ServerSentEvents.Cancel cancel) throws Exception {
+            cancel.attach(() -> attempts.forEach(a -> a.cancel.cancel()));
+
+            Attempt first = start(primary);
+            if (first == null) first = start(secondary);
+            if (first == null) {
+                throw new ProviderFailureException("No chat provider is available right now ("
+                        + String.join("; ", skipped) + ").", List.of(), null);
+            }
+
+            // Hedge: give the first attempt until the delay to produce a token (or fail), then add the other.
+            if (first.client == primary) {
+                try {
+                    CompletableFuture.anyOf(won, first.done).get(hedgeDelayMillis, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException | ExecutionException ignored) {
+                    // slow or failed: hedge/fail over below
+                }
+                if (winner.get() == null && !cancel.isCancelled()) {
+                    start(secondary);
+                }
+            }
+
+            CompletableFuture<?>[] finished = attempts.stream().map(a -> a.done).toArray(CompletableFuture[]::new);
+            try {
+                CompletableFuture.anyOf(won, CompletableFuture.allOf(finished)).get();
+            } catch (ExecutionException ignored) {
+                // allOf failed: every attempt has finished; handled below
+            }
+            if (cancel.isCancelled() && winner.get() == null) {
+                return new Reply("", primary.provider());
+            }
+            Attempt w = winner.get();
+            if (w != null) {
+                try {
+                    return new Reply(w.done.get(), w.client.provider());
+                } catch (ExecutionException e) {
+                    String name = w.client.provider().displayName();
+                    throw new ProviderFailureException(name + " failed mid-response: " + reason(w.client, e.getCause()),
+                            List.of(name), e.getCause());
+                }
+            }
+            // Nobody produced a token: name every provider that failed (and any that were skipped).
+            List<String> failed = new ArrayList<>();
+            List<String> reasons = new ArrayList<>();
+            Throwable firstCause = null;
+            for (Attempt a : attempts) {
+                if (!a.done.isCompletedExceptionally()) continue;
+                Throwable cause = a.done.handle((text, t) -> t).join();
+                if (firstCause == null) firstCause = cause;
+                failed.add(a.client.provider().displayName());
+                reasons.add(a.client.provider().displayName() + ": " + reason(a.client, cause));
+            }
+            reasons.addAll(skipped);
+            throw new ProviderFailureException("Unable to reach " + String.join(" or ", failed) + " ("
+                    + String.join("; ", reasons) + ").", failed, firstCause);
+        }
+
+        private Attempt start(ChatCompletionClient client) {
+            String apiKey = client.apiKey();
+            CircuitBreaker breaker = CircuitBreaker.forProvider(client.provider());
+            if (apiKey.isBlank()) {
+                skipped.add(client.provider().displayName() + ": no API key");
+                return null;
+            }
+            if (!breaker.tryAcquire()) {
+                skipped.add(client.provider().displayName() + ": paused after repeated failures");
+                return null;
+            }
+
+            Attempt attempt = new Attempt(client);
+            attempts.add(attempt);
+            ATTEMPTS.execute(() -> {
+                try {
+                    String text = client.stream(apiKey, messages, delta -> {
+                        if (winner.get() == null && winner.compareAndSet(null, attempt)) {
+                            attempts.forEach(other -> {
+                                if (other != attempt) other.cancel.cancel();
+                            });
+                            onStart.accept(client.provider());
+                            won.complete(attempt);
+                        }
+                        if (winner.get() == attempt) onDelta.accept(delta);
+                    }, attempt.cancel);
+                    if (attempt.cancel.isCancelled()) {
+                        breaker.release();
+                        // A stopped winner still returns the text streamed so far.
+                        if (winner.get() == attempt) attempt.done.complete(text);
+                        else attempt.done.completeExceptionally(new CancellationException());
+                    } else {
+                        breaker.recordSuccess();
+                        attempt.done.complete(text);
+                    }
+                } catch (Throwable t) {
+                    if (attempt.cancel.isCancelled()) {
+                        breaker.release();
+                    } else {
+                        breaker.recordFailure();
+                    }
+                    attempt.done.completeExceptionally(t);
+                }
+            });
+            return attempt;
+        }
+    }
+
+    /**
+     * @return the failure's message without a leading provider name, which the caller adds
+     */
+    private static String reason(ChatCompletionClient client, Throwable cause) {
+        String message = cause.getMessage();
+        if (message == null || message.isBlank()) return cause.getClass().getSimpleName();
+        String name = client.provider().displayName();
+        return message.startsWith(name + " ") ? message.substring(name.length() + 1) : message;
+    }
+
+    private static final class Attempt {
+        final ChatCompletionClient client;
+        final ServerSentEvents.Cancel cancel = new ServerSentEvents.Cancel();
+        final CompletableFuture<String> done = new CompletableFuture<>();
+
+        Attempt(ChatCompletionClient client) {
+            this.client = client;
+        }
+    }
+}
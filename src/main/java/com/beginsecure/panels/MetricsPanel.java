@@ -2,14 +2,19 @@ package com.beginsecure.panels;
 
 import com.beginsecure.Blackboard;
 import com.beginsecure.Square;
+import com.beginsecure.util.FlightEvents;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseMotionAdapter;
+import java.awt.font.FontRenderContext;
+import java.awt.font.LineMetrics;
+import java.awt.image.BufferedImage;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -89,21 +94,61 @@ public final class MetricsPanel extends JPanel implements PropertyChangeListener
         final String name;
         final double instability;  // X in [0,1]
         final double abstractness; // Y in [0,1]
-        PointData(String n, double i, double a) { name = n; instability = i; abstractness = a; }
+        final int jitterX;         // stable per-name offset so overlapping points separate
+        final int jitterY;
+        PointData(String n, double i, double a) {
+            name = n; instability = i; abstractness = a;
+            int hash = n.hashCode();
+            jitterX = (hash % 7) - 3;
+            jitterY = ((hash / 7) % 7) - 3;
+        }
     }
 
+    /**
+     * Points are projected to screen space once per data/size change and bucketed into a uniform
+     * grid, so hover lookups only touch nearby points. Axes, dots and labels are rendered into a
+     * cached layer; mouse movement only repaints the hover highlight. Labels are placed off the EDT
+     * by {@link LabelPlacer}, and above {@link #DENSITY_THRESHOLD} points the dots are replaced by a
+     * density heatmap.
+     */
     private static final class PlotPanel extends JPanel {
+        private static final int LEFT = 40, RIGHT = 16, TOP = 22, BOTTOM = 36;
+        private static final int R = 10;
+        private static final int HIT = R / 2 + 2;
+        private static final int CELL = 16;
+        private static final int DENSITY_THRESHOLD = 1500;
+        private static final int DENSITY_BIN = 6;
+        private static final int MAX_LABELS = 400;
+
         private List<PointData> data = Collections.emptyList();
-        private PointData hover;
+        private int[] xs = new int[0];
+        private int[] ys = new int[0];
+        private int[] cellStart = new int[1];
+        private int[] cellItems = new int[0];
+        private int gridCols;
+        private int gridRows;
+        private int projectedW = -1;
+        private int projectedH = -1;
+        private BufferedImage layer;
+        private double layerScale;
+        private int hover = -1;
+        private LabelLayout labels = LabelLayout.EMPTY;
+        private int labelGeneration;
 
         PlotPanel() {
             setBackground(Color.WHITE);
             addMouseMotionListener(new MouseMotionAdapter() {
                 @Override public void mouseMoved(MouseEvent e) {
-                    hover = hitTest(e.getX(), e.getY());
-                    setToolTipText(hover == null ? null :
-                            hover.name + " | I: " + fmt(hover.instability) + ", A: " + fmt(hover.abstractness));
-                    repaint();
+                    ensureProjected();
+                    int hit = hitTest(e.getX(), e.getY());
+                    if (hit == hover) return;
+                    int previous = hover;
+                    hover = hit;
+                    PointData p = hit < 0 ? null : data.get(hit);
+                    setToolTipText(p == null ? null :
+                            p.name + " | I: " + fmt(p.instability) + ", A: " + fmt(p.abstractness));
+                    repaintPoint(previous);
+                    repaintPoint(hit);
                 }
             });
             setToolTipText("");
@@ -111,75 +156,316 @@ public final class MetricsPanel extends JPanel implements PropertyChangeListener
 
         void setData(List<PointData> pts) {
             data = (pts == null) ? Collections.emptyList() : pts;
+            hover = -1;
+            projectedW = -1;
+            layer = null;
             repaint();
         }
 
+        private void repaintPoint(int index) {
+            if (index < 0 || index >= xs.length) return;
+            repaint(xs[index] - HIT - 2, ys[index] - HIT - 2, HIT * 2 + 4, HIT * 2 + 4);
+        }
+
+        private void ensureProjected() {
+            int w = getWidth(), h = getHeight();
+            if (w == projectedW && h == projectedH) return;
+            projectedW = w;
+            projectedH = h;
+            layer = null;
+
+            int pw = Math.max(1, w - LEFT - RIGHT);
+            int ph = Math.max(1, h - TOP - BOTTOM);
+            int n = data.size();
+            xs = new int[n];
+            ys = new int[n];
+            for (int i = 0; i < n; i++) {
+                PointData p = data.get(i);
+                int x = LEFT + (int) Math.round(p.instability * pw) + p.jitterX;
+                int y = TOP + ph - (int) Math.round(p.abstractness * ph) + p.jitterY;
+                xs[i] = Math.max(LEFT, Math.min(LEFT + pw, x));
+                ys[i] = Math.max(TOP, Math.min(TOP + ph, y));
+            }
+
+            // Counting sort of point indices into grid cells (CSR layout: cellStart/cellItems).
+            gridCols = Math.max(1, w / CELL + 1);
+            gridRows = Math.max(1, h / CELL + 1);
+            cellStart = new int[gridCols * gridRows + 1];
+            for (int i = 0; i < n; i++) cellStart[cellOf(xs[i], ys[i]) + 1]++;
+            for (int c = 0; c < gridCols * gridRows; c++) cellStart[c + 1] += cellStart[c];
+            int[] fill = Arrays.copyOf(cellStart, cellStart.length - 1);
+            cellItems = new int[n];
+            for (int i = 0; i < n; i++) cellItems[fill[cellOf(xs[i], ys[i])]++] = i;
+
+            scheduleLabelPlacement(w, h);
+        }
+
+        private void scheduleLabelPlacement(int w, int h) {
+            int generation = ++labelGeneration;
+            labels = LabelLayout.EMPTY;
+            int n = data.size();
+            if (n == 0) return;
+
+            int[] px = xs.clone();
+            int[] py = ys.clone();
+            String[] names = new String[n];
+            double[] priority = new double[n];
+            for (int i = 0; i < n; i++) {
+                PointData p = data.get(i);
+                names[i] = p.name;
+                // Points far from the main sequence (A + I = 1) are the interesting ones; label them first.
+                priority[i] = Math.abs(p.abstractness + p.instability - 1);
+            }
+            Font font = getFont();
+            boolean density = n > DENSITY_THRESHOLD;
+            new SwingWorker<LabelLayout, Void>() {
+                @Override protected LabelLayout doInBackground() {
+                    return LabelPlacer.place(px, py, names, priority, font, w, h, R, !density, MAX_LABELS);
+                }
+
+                @Override protected void done() {
+                    if (generation != labelGeneration) return;
+                    try {
+                        labels = get();
+                        layer = null;
+                        repaint();
+                    } catch (Exception ignored) {
+                        // keep the plot unlabeled
+                    }
+                }
+            }.execute();
+        }
+
+        private int cellOf(int x, int y) {
+            int cx = Math.max(0, Math.min(gridCols - 1, x / CELL));
+            int cy = Math.max(0, Math.min(gridRows - 1, y / CELL));
+            return cy * gridCols + cx;
+        }
+
+        @Override
+        public void paint(Graphics g) {
+            FlightEvents.PanelPaint event = FlightEvents.paintStarted();
+            super.paint(g);
+            FlightEvents.paintFinished(event, this);
+        }
+
         @Override protected void paintComponent(Graphics g) {
             super.paintComponent(g);
+            ensureProjected();
             Graphics2D g2 = (Graphics2D) g.create();
-            int w = getWidth(), h = getHeight();
+            double scale = g2.getTransform().getScaleX();
+            if (layer == null || layerScale != scale) {
+                layer = renderLayer(scale);
+                layerScale = scale;
+            }
+            g2.drawImage(layer, 0, 0, getWidth(), getHeight(), null);
 
-            int left = 40, right = 16, top = 22, bottom = 36;
-            int pw = Math.max(1, w - left - right);
-            int ph = Math.max(1, h - top - bottom);
+            if (hover >= 0 && hover < xs.length) {
+                g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                g2.setColor(new Color(30, 30, 30));
+                g2.fillOval(xs[hover] - R/2, ys[hover] - R/2, R, R);
+                g2.setStroke(new BasicStroke(1.5f));
+                g2.setColor(new Color(0, 120, 215));
+                g2.drawOval(xs[hover] - HIT, ys[hover] - HIT, HIT * 2, HIT * 2);
+            }
+            g2.dispose();
+        }
+
+        private BufferedImage renderLayer(double scale) {
+            int w = Math.max(1, getWidth()), h = Math.max(1, getHeight());
+            BufferedImage img = new BufferedImage((int) Math.ceil(w * scale), (int) Math.ceil(h * scale),
+                    BufferedImage.TYPE_INT_RGB);
+            Graphics2D g2 = img.createGraphics();
+            g2.scale(scale, scale);
+            g2.setFont(getFont());
+            g2.setColor(getBackground());
+            g2.fillRect(0, 0, w, h);
+
+            int pw = Math.max(1, w - LEFT - RIGHT);
+            int ph = Math.max(1, h - TOP - BOTTOM);
 
             g2.setColor(new Color(240, 246, 246));
-            g2.fillRect(left, top, pw, ph);
+            g2.fillRect(LEFT, TOP, pw, ph);
             g2.setColor(Color.WHITE);
-            g2.fillOval(left - pw/3, top + ph - pw/3, pw/2, pw/2);
-            g2.fillOval(left + pw - pw/3, top - pw/3, pw/2, pw/2);
+            g2.fillOval(LEFT - pw/3, TOP + ph - pw/3, pw/2, pw/2);
+            g2.fillOval(LEFT + pw - pw/3, TOP - pw/3, pw/2, pw/2);
 
             g2.setStroke(new BasicStroke(1.2f, BasicStroke.CAP_BUTT, BasicStroke.JOIN_MITER, 10f, new float[]{6f,6f}, 0f));
             g2.setColor(new Color(210, 210, 210));
-            g2.drawLine(left, top, left + pw, top + ph);
+            g2.drawLine(LEFT, TOP, LEFT + pw, TOP + ph);
 
             g2.setColor(new Color(90, 90, 90));
-            g2.drawString("Painful", left + 8, top + ph - 12);
-            g2.drawString("Useless", left + pw - 50, top + 16);
-            g2.drawString("instability (I)", left + pw/2 - 34, h - 10);
+            g2.drawString("Painful", LEFT + 8, TOP + ph - 12);
+            g2.drawString("Useless", LEFT + pw - 50, TOP + 16);
+            g2.drawString("instability (I)", LEFT + pw/2 - 34, h - 10);
             g2.rotate(-Math.PI/2);
-            g2.drawString("abstractness (A)", -(top + ph/2 + 28), 14);
+            g2.drawString("abstractness (A)", -(TOP + ph/2 + 28), 14);
             g2.rotate(Math.PI/2);
 
-            FontMetrics fm = g2.getFontMetrics();
-            for (PointData p : data) {
-                int x = left + (int) Math.round(p.instability * pw);
-                int y = top  + ph - (int) Math.round(p.abstractness * ph);
+            if (xs.length > DENSITY_THRESHOLD) {
+                paintDensity(g2, w, h);
+            } else {
+                g2.setColor(new Color(40, 40, 40));
+                for (int i = 0; i < xs.length; i++) {
+                    g2.fillOval(xs[i] - R/2, ys[i] - R/2, R, R);
+                }
+            }
 
-                int hash = p.name.hashCode();
-                x += (hash % 7) - 3;
-                y += ((hash / 7) % 7) - 3;
+            g2.setColor(new Color(60, 60, 60));
+            for (int k = 0; k < labels.index.length; k++) {
+                int i = labels.index[k];
+                if (i < data.size()) g2.drawString(data.get(i).name, labels.x[k], labels.y[k]);
+            }
+            g2.dispose();
+            return img;
+        }
+
+        /**
+         * Bins points into small squares and shades each bin by log-scaled count, so cost is bounded by
+         * the number of bins rather than overdrawing thousands of dots.
+         */
+        private void paintDensity(Graphics2D g2, int w, int h) {
+            int cols = w / DENSITY_BIN + 1, rows = h / DENSITY_BIN + 1;
+            int[] counts = new int[cols * rows];
+            int max = 0;
+            for (int i = 0; i < xs.length; i++) {
+                int bin = Math.min(rows - 1, ys[i] / DENSITY_BIN) * cols + Math.min(cols - 1, xs[i] / DENSITY_BIN);
+                max = Math.max(max, ++counts[bin]);
+            }
+            double logMax = Math.log1p(max);
+            for (int bin = 0; bin < counts.length; bin++) {
+                if (counts[bin] == 0) continue;
+                float t = (float) (Math.log1p(counts[bin]) / logMax);
+                g2.setColor(Color.getHSBColor(0.6f - 0.6f * t, 0.55f + 0.4f * t, 0.85f - 0.25f * t));
+                g2.fillRect((bin % cols) * DENSITY_BIN, (bin / cols) * DENSITY_BIN, DENSITY_BIN, DENSITY_BIN);
+            }
+        }
+
+        private int hitTest(int mx, int my) {
+            if (xs.length == 0) return -1;
+            int c0 = Math.max(0, (mx - HIT) / CELL), c1 = Math.min(gridCols - 1, (mx + HIT) / CELL);
+            int r0 = Math.max(0, (my - HIT) / CELL), r1 = Math.min(gridRows - 1, (my + HIT) / CELL);
+            int best = -1;
+            for (int row = r0; row <= r1; row++) {
+                for (int col = c0; col <= c1; col++) {
+                    int cell = row * gridCols + col;
+                    for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+                        int i = cellItems[k];
+                        if (mx >= xs[i] - HIT && mx < xs[i] + HIT && my >= ys[i] - HIT && my < ys[i] + HIT
+                                && (best < 0 || i < best)) {
+                            best = i;
+                        }
+                    }
+                }
+            }
+            return best;
+        }
+
+        private static String fmt(double v) { return String.format("%.2f", v); }
+    }
+
+    private static final class LabelLayout {
+        static final LabelLayout EMPTY = new LabelLayout(new int[0], new int[0], new int[0]);
+        final int[] index; // point index per placed label
+        final int[] x;     // baseline origin
+        final int[] y;
+        LabelLayout(int[] index, int[] x, int[] y) { this.index = index; this.x = x; this.y = y; }
+    }
+
+    /**
+     * Greedy label placement: points are visited by priority and each label tries a few positions
+     * around its dot, keeping the first one that stays inside the plot and does not overlap a label
+     * (or dot) already placed. Occupied rectangles are bucketed in a coarse grid, so each test only
+     * looks at nearby rectangles. Labels that do not fit are dropped.
+     */
+    private static final class LabelPlacer {
+        private static final int CELL = 32;
 
-                x = Math.max(left, Math.min(left + pw, x));
-                y = Math.max(top,  Math.min(top + ph, y));
+        private final int cols;
+        private final int rows;
+        private final List<List<Rectangle>> cells;
 
-                int r = 10;
-                boolean isHover = (hover == p);
-                g2.setColor(isHover ? new Color(30, 30, 30) : new Color(40, 40, 40));
-                g2.fillOval(x - r/2, y - r/2, r, r);
+        private LabelPlacer(int w, int h) {
+            cols = Math.max(1, w / CELL + 1);
+            rows = Math.max(1, h / CELL + 1);
+            cells = new ArrayList<>(cols * rows);
+            for (int i = 0; i < cols * rows; i++) cells.add(null);
+        }
 
-                String label = p.name;
-                int tw = fm.stringWidth(label);
-                g2.setColor(new Color(60, 60, 60));
-                g2.drawString(label, x - tw/2, y - r - 4);
+        static LabelLayout place(int[] xs, int[] ys, String[] names, double[] priority, Font font,
+                                 int w, int h, int r, boolean dotsAreObstacles, int maxLabels) {
+            LabelPlacer placer = new LabelPlacer(w, h);
+            if (dotsAreObstacles) {
+                for (int i = 0; i < xs.length; i++) {
+                    placer.occupy(new Rectangle(xs[i] - r/2, ys[i] - r/2, r, r));
+                }
             }
-            g2.dispose();
+            Integer[] order = new Integer[xs.length];
+            for (int i = 0; i < order.length; i++) order[i] = i;
+            Arrays.sort(order, (a, b) -> Double.compare(priority[b], priority[a]));
+
+            FontRenderContext frc = new FontRenderContext(null, true, true);
+            LineMetrics lm = font.getLineMetrics("Ag", frc);
+            int ascent = (int) Math.ceil(lm.getAscent());
+            int height = (int) Math.ceil(lm.getAscent() + lm.getDescent());
+            Rectangle bounds = new Rectangle(0, 0, w, h);
+
+            int[] index = new int[Math.min(maxLabels, xs.length)];
+            int[] lx = new int[index.length];
+            int[] ly = new int[index.length];
+            int placed = 0;
+            for (int i : order) {
+                if (placed >= index.length) break;
+                int tw = (int) Math.ceil(font.getStringBounds(names[i], frc).getWidth());
+                int x = xs[i], y = ys[i];
+                int[][] candidates = {
+                        {x - tw/2, y - r - 4},                 // above (original placement)
+                        {x - tw/2, y + r/2 + 2 + ascent},      // below
+                        {x + r/2 + 3, y + ascent/2 - 1},       // right
+                        {x - r/2 - 3 - tw, y + ascent/2 - 1},  // left
+                };
+                for (int[] c : candidates) {
+                    Rectangle rect = new Rectangle(c[0], c[1] - ascent, tw, height);
+                    if (!bounds.contains(rect) || placer.collides(rect)) continue;
+                    placer.occupy(rect);
+                    index[placed] = i;
+                    lx[placed] = c[0];
+                    ly[placed] = c[1];
+                    placed++;
+                    break;
+                }
+            }
+            return new LabelLayout(Arrays.copyOf(index, placed), Arrays.copyOf(lx, placed), Arrays.copyOf(ly, placed));
         }
 
-        private PointData hitTest(int mx, int my) {
-            int left = 40, right = 16, top = 22, bottom = 36;
-            int pw = Math.max(1, getWidth() - left - right);
-            int ph = Math.max(1, getHeight() - top - bottom);
-            for (PointData p : data) {
-                int x = left + (int) Math.round(p.instability * pw) + ((p.name.hashCode()%7)-3);
-                int y = top  + ph - (int) Math.round(p.abstractness * ph) + (((p.name.hashCode()/7)%7)-3);
-                int r = 10;
-                Rectangle hit = new Rectangle(x - r/2 - 2, y - r/2 - 2, r + 4, r + 4);
-                if (hit.contains(mx, my)) return p;
+        private boolean collides(Rectangle rect) {
+            for (int cy = row(rect.y); cy <= row(rect.y + rect.height); cy++) {
+                for (int cx = col(rect.x); cx <= col(rect.x + rect.width); cx++) {
+                    List<Rectangle> bucket = cells.get(cy * cols + cx);
+                    if (bucket == null) continue;
+                    for (Rectangle other : bucket) {
+                        if (other.intersects(rect)) return true;
+                    }
+                }
             }
-            return null;
+            return false;
         }
 
-        private static String fmt(double v) { return String.format("%.2f", v); }
+        private void occupy(Rectangle rect) {
+            for (int cy = row(rect.y); cy <= row(rect.y + rect.height); cy++) {
+                for (int cx = col(rect.x); cx <= col(rect.x + rect.width); cx++) {
+                    int cell = cy * cols + cx;
+                    List<Rectangle> bucket = cells.get(cell);
+                    if (bucket == null) {
+                        bucket = new ArrayList<>(4);
+                        cells.set(cell, bucket);
+                    }
+                    bucket.add(rect);
+                }
+            }
+        }
+
+        private int col(int x) { return Math.max(0, Math.min(cols - 1, x / CELL)); }
+        private int row(int y) { return Math.max(0, Math.min(rows - 1, y / CELL)); }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,195 @@
+package com.beginsecure.panels;
+
+import com.beginsecure.Square;
+
+import javax.swing.event.EventListenerList;
+import javax.swing.event.TreeModelListener;
+import javax.swing.tree.TreeModel;
+import javax.swing.tree.TreePath;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only tree model over the loaded repository. Folders keep their children in compact maps and
+ * only materialize the indexed child list the first time Swing asks for it (i.e. when the folder
+ * becomes visible), so huge repositories never turn into millions of Swing nodes. Per-folder file
+ * count, LOC and mean instability are aggregated once, bottom-up, when the model is built.
+ */
+final class RepoTreeModel implements TreeModel {
+
+    private final Folder root;
+    private final EventListenerList listeners = new EventListenerList();
+
+    private RepoTreeModel(Folder root) {
+        this.root = root;
+    }
+
+    static RepoTreeModel empty() {
+        return new RepoTreeModel(new Folder("repo", null));
+    }
+
+    /**
+     * Builds the model off the EDT; the result is immutable and safe to hand to a {@code JTree}.
+     */
+    static RepoTreeModel build(List<Square> squares) {
+        Folder root = new Folder("repo", null);
+        for (Square s : squares) {
+            if (s == null) continue;
+            String path = String.valueOf(s.getPath()).replace("\\", "/");
+            if (!path.endsWith(".java")) continue;
+
+            String[] parts = path.split("/");
+            Folder curr = root;
+            int last = parts.length - 1;
+            while (last >= 0 && parts[last].isEmpty()) last--;
+            if (last < 0) continue;
+            for (int i = 0; i < last; i++) {
+                if (parts[i].isEmpty()) continue;
+                curr = curr.folder(parts[i]);
+            }
+            curr.files.put(parts[last], new File(parts[last], curr, s.getLinesOfCode(), s.getInstability()));
+        }
+        root.aggregate();
+        return new RepoTreeModel(root);
+    }
+
+    @Override
+    public Object getRoot() {
+        return root;
+    }
+
+    @Override
+    public Object getChild(Object parent, int index) {
+        return parent instanceof Folder f ? f.children().get(index) : null;
+    }
+
+    @Override
+    public int getChildCount(Object parent) {
+        return parent instanceof Folder f ? f.folders.size() + f.files.size() : 0;
+    }
+
+    @Override
+    public boolean isLeaf(Object node) {
+        return node instanceof File;
+    }
+
+    @Override
+    public void valueForPathChanged(TreePath path, Object newValue) {
+        // read-only
+    }
+
+    @Override
+    public int getIndexOfChild(Object parent, Object child) {
+        if (!(parent instanceof Folder f) || !(child instanceof Entry e) || e.parent != f) return -1;
+        f.children(); // assigns the indices on first use
+        return e.index;
+    }
+
+    @Override
+    public void addTreeModelListener(TreeModelListener l) {
+        listeners.add(TreeModelListener.class, l);
+    }
+
+    @Override
+    public void removeTreeModelListener(TreeModelListener l) {
+        listeners.remove(TreeModelListener.class, l);
+    }
+
+    abstract static class Entry {
+        final String name;
+        final Folder parent;
+        /** Position among the parent's children; set when the parent's child list is built. */
+        int index = -1;
+
+        Entry(String name, Folder parent) {
+            this.name = name;
+            this.parent = parent;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    static final class Folder extends Entry {
+        private final Map<String, Folder> folders = new HashMap<>();
+        private final Map<String, File> files = new HashMap<>();
+        private volatile List<Entry> children;
+        int fileCount;
+        long linesOfCode;
+        double instabilitySum;
+        int instabilityCount;
+
+        Folder(String name, Folder parent) {
+            super(name, parent);
+        }
+
+        private Folder folder(String name) {
+            return folders.computeIfAbsent(name, n -> new Folder(n, this));
+        }
+
+        /**
+         * Sub-folders first, then files, each alphabetical. Built on first access only, which also
+         * records each child's {@link Entry#index} so {@code getIndexOfChild} is constant time.
+         */
+        List<Entry> children() {
+            List<Entry> list = children;
+            if (list == null) {
+                List<Entry> built = new ArrayList<>(folders.size() + files.size());
+                List<Folder> sortedFolders = new ArrayList<>(folders.values());
+                sortedFolders.sort((a, b) -> a.name.compareToIgnoreCase(b.name));
+                List<File> sortedFiles = new ArrayList<>(files.values());
+                sortedFiles.sort((a, b) -> a.name.compareToIgnoreCase(b.name));
+                built.addAll(sortedFolders);
+                built.addAll(sortedFiles);
+                for (int i = 0; i < built.size(); i++) built.get(i).index = i;
+                list = List.copyOf(built);
+                children = list;
+            }
+            return list;
+        }
+
+        Double meanInstability() {
+            return instabilityCount == 0 ? null : instabilitySum / instabilityCount;
+        }
+
+        private void aggregate() {
+            fileCount = files.size();
+            linesOfCode = 0;
+            instabilitySum = 0;
+            instabilityCount = 0;
+            for (File f : files.values()) {
+                linesOfCode += f.linesOfCode;
+                if (f.instability != null) {
+                    instabilitySum += f.instability;
+                    instabilityCount++;
+                }
+            }
+            for (Folder child : folders.values()) {
+                child.aggregate();
+                fileCount += child.fileCount;
+                linesOfCode += child.linesOfCode;
+                instabilitySum += child.instabilitySum;
+                instabilityCount += child.instabilityCount;
+            }
+        }
+
+        Folder onlyChildFolder() {
+            return (files.isEmpty() && folders.size() == 1) ? folders.values().iterator().next() : null;
+        }
+    }
+
+    static final class File extends Entry {
+        final int linesOfCode;
+        final Double instability;
+
+        File(String name, Folder parent, int linesOfCode, Double instability) {
+            super(name, parent);
+            this.linesOfCode = linesOfCode;
+            this.instability = instability;
+        }
+    }
+}
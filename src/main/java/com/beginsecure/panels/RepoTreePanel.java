@@ -6,8 +6,8 @@ import com.beginsecure.Square;
 import javax.swing.*;
 import javax.swing.event.TreeSelectionEvent;
 import javax.swing.event.TreeSelectionListener;
-import javax.swing.tree.DefaultMutableTreeNode;
-import javax.swing.tree.DefaultTreeModel;
+import javax.swing.tree.DefaultTreeCellRenderer;
+import javax.swing.tree.TreePath;
 import java.awt.*;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
@@ -21,15 +21,15 @@ import java.util.List;
  */
 public final class RepoTreePanel extends JPanel implements PropertyChangeListener {
 
-    private final DefaultTreeModel model;
     private final JTree tree;
+    private int buildGeneration;
 
     public RepoTreePanel() {
         super(new BorderLayout());
 
-        DefaultMutableTreeNode root = new DefaultMutableTreeNode("repo");
-        model = new DefaultTreeModel(root);
-        tree = new JTree(model);
+        tree = new JTree(RepoTreeModel.empty());
+        tree.setCellRenderer(new BadgeRenderer());
+        tree.setLargeModel(true);
         add(new JScrollPane(tree), BorderLayout.CENTER);
 
         // Publish selected folder (best-effort: works if Blackboard#setSelectedPrefix exists)
@@ -38,9 +38,8 @@ public final class RepoTreePanel extends JPanel implements PropertyChangeListene
                 if (e.getPath() == null) return;
                 Object[] parts = e.getPath().getPath();
                 StringBuilder sb = new StringBuilder();
-                for (int i = 0; i < parts.length; i++) {
+                for (int i = 1; i < parts.length; i++) {   // skip the virtual root
                     String p = String.valueOf(parts[i]);
-                    if ("repo".equals(p)) continue;        // ignore virtual root
                     if (sb.length() > 0) sb.append('/');
                     sb.append(p);
                 }
@@ -56,54 +55,60 @@ public final class RepoTreePanel extends JPanel implements PropertyChangeListene
 
     @Override
     public void propertyChange(PropertyChangeEvent evt) {
-        String n = evt.getPropertyName();
-        if ("squares".equals(n) || evt.getNewValue() != null) {
-            refreshFromBlackboard();
-        }
+        if (!"squares".equals(evt.getPropertyName())) return;
+        List<Square> squares = snapshotSquares();
+        SwingUtilities.invokeLater(() -> rebuildTree(squares));
     }
 
-    private void refreshFromBlackboard() {
-        List<Square> squares;
+    private static List<Square> snapshotSquares() {
         try {
-            squares = Blackboard.getInstance().getSquares();
+            return Blackboard.getInstance().getSquares();
         } catch (Throwable t) {
-            return;
+            return List.of();
         }
-        if (squares == null || squares.isEmpty()) return;
-        rebuildTree(squares);
     }
 
+    /**
+     * Builds the lazy tree model on a worker thread and installs it on the EDT in one step.
+     * A newer rebuild supersedes any still running.
+     */
     private void rebuildTree(List<Square> squares) {
-        DefaultMutableTreeNode root = new DefaultMutableTreeNode("repo");
-
-        for (Square s : squares) {
-            String path = String.valueOf(s.getPath()).replace("\\", "/");
-            if (!path.endsWith(".java")) continue;
-
-            String[] parts = path.split("/");
-            DefaultMutableTreeNode curr = root;
-            for (String p : parts) {
-                if (p.isEmpty()) continue;
-                curr = getOrCreateChild(curr, p);
-            }
+        int generation = ++buildGeneration;
+        if (squares == null || squares.isEmpty()) {
+            tree.setModel(RepoTreeModel.empty());
+            return;
         }
+        new SwingWorker<RepoTreeModel, Void>() {
+            @Override
+            protected RepoTreeModel doInBackground() {
+                return RepoTreeModel.build(squares);
+            }
 
-        model.setRoot(root);
-        expandAllRows();
+            @Override
+            protected void done() {
+                if (generation != buildGeneration) return;
+                try {
+                    tree.setModel(get());
+                    expandSingleChildChain();
+                } catch (Exception ignored) {
+                    // leave the previous tree in place
+                }
+            }
+        }.execute();
     }
 
-    private DefaultMutableTreeNode getOrCreateChild(DefaultMutableTreeNode parent, String name) {
-        for (int i = 0; i < parent.getChildCount(); i++) {
-            DefaultMutableTreeNode c = (DefaultMutableTreeNode) parent.getChildAt(i);
-            if (name.equals(c.getUserObject())) return c;
+    /**
+     * Expands the root and any chain of lone folders below it (e.g. src/main/java/com), leaving
+     * everything else collapsed until the user opens it.
+     */
+    private void expandSingleChildChain() {
+        RepoTreeModel.Folder node = (RepoTreeModel.Folder) tree.getModel().getRoot();
+        TreePath path = new TreePath(node);
+        tree.expandPath(path);
+        while ((node = node.onlyChildFolder()) != null) {
+            path = path.pathByAddingChild(node);
+            tree.expandPath(path);
         }
-        DefaultMutableTreeNode n = new DefaultMutableTreeNode(name);
-        model.insertNodeInto(n, parent, parent.getChildCount());
-        return n;
-    }
-
-    private void expandAllRows() {
-        for (int i = 0; i < tree.getRowCount(); i++) tree.expandRow(i);
     }
 
     private void safeSetSelectedPrefix(String prefix) {
@@ -115,6 +120,37 @@ public final class RepoTreePanel extends JPanel implements PropertyChangeListene
             // If Blackboard doesn't have setSelectedPrefix yet, just ignore.
         }
     }
-}
 
+    /**
+     * Shows the precomputed aggregates next to each node: file count, LOC and mean instability for
+     * folders, LOC and instability for files.
+     */
+    private static final class BadgeRenderer extends DefaultTreeCellRenderer {
+        @Override
+        public Component getTreeCellRendererComponent(JTree tree, Object value, boolean sel, boolean expanded,
+                                                      boolean leaf, int row, boolean hasFocus) {
+            super.getTreeCellRendererComponent(tree, value, sel, expanded, leaf, row, hasFocus);
+            String badge = null;
+            if (value instanceof RepoTreeModel.Folder f && f.fileCount > 0) {
+                badge = f.fileCount + (f.fileCount == 1 ? " file" : " files") + " · " + formatLoc(f.linesOfCode) + " LOC"
+                        + (f.meanInstability() == null ? "" : " · I " + String.format("%.2f", f.meanInstability()));
+            } else if (value instanceof RepoTreeModel.File f) {
+                badge = formatLoc(f.linesOfCode) + " LOC"
+                        + (f.instability == null ? "" : " · I " + String.format("%.2f", f.instability));
+            }
+            if (badge != null) {
+                String color = sel ? "" : " color='#808080'";
+                setText("<html>" + escapeHtml(String.valueOf(value)) + " <font" + color + ">" + badge + "</font></html>");
+            }
+            return this;
+        }
+
+        private static String formatLoc(long loc) {
+            return loc >= 10_000 ? String.format("%.1fk", loc / 1000.0) : String.valueOf(loc);
+        }
 
+        private static String escapeHtml(String text) {
+            return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+        }
+    }
+}
@@ -1,11 +1,11 @@
 package com.beginsecure.panels;
 
-import com.beginsecure.AIMetricsCalculator;
 import com.beginsecure.Blackboard;
+import com.beginsecure.RepositoryDigest;
 import com.beginsecure.Square;
+import com.beginsecure.util.Bm25Index;
 
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.logging.ConsoleHandler;
@@ -15,10 +15,13 @@ import java.util.logging.Logger;
 
 /**
  * Builds a concise textual summary of the currently loaded repository so
- * the chat model can answer context-aware questions.
+ * the chat model can answer context-aware questions, optionally followed by
+ * the code snippets that best match the user's prompt.
  */
 final class RepositoryContextBuilder {
 
+    private static final int MAX_SNIPPETS = 8;
+
     private static final Logger LOGGER = Logger.getLogger(RepositoryContextBuilder.class.getName());
     static {
         try {
@@ -31,41 +34,44 @@ final class RepositoryContextBuilder {
     }
 
     ChatMessage buildContextMessage() {
-        List<Square> squares = snapshotSquares();
-        if (squares.isEmpty()) {
+        return buildContextMessage(null, 0);
+    }
+
+    /**
+     * Like {@link #buildContextMessage()}, plus the source chunks most relevant to {@code prompt}
+     * from the background BM25 index, added best first until {@code snippetBudget} tokens are used.
+     */
+    ChatMessage buildContextMessage(String prompt, int snippetBudget) {
+        RepositoryDigest digest = getDigest();
+        RepositoryDigest.Scope all = digest.root();
+        if (all.fileCount() == 0) {
             return null;
         }
-        AIMetricsCalculator.computeAll(squares);
 
         String prefix = getSelectedPrefix();
-        List<Square> focused = filterByPrefix(squares, prefix);
-        if (focused.isEmpty()) {
-            focused = squares;
-        }
-
-        int totalLoc = squares.stream().mapToInt(Square::getLinesOfCode).sum();
-        int focusLoc = focused.stream().mapToInt(Square::getLinesOfCode).sum();
-        double avgInstability = averageMetric(focused, Square::getInstability);
-        double avgAbstractness = averageMetric(focused, Square::getAbstractness);
+        RepositoryDigest.Scope focus = focusScope(digest, prefix);
 
         StringBuilder sb = new StringBuilder();
         String repoUrl = getRepositoryUrl();
         if (repoUrl != null && !repoUrl.isBlank()) {
             sb.append("Repository URL: ").append(repoUrl).append('\n');
         }
-        sb.append("Loaded ").append(squares.size()).append(" Java files (")
-                .append(totalLoc).append(" LOC). Focus set: ").append(focused.size())
-                .append(" files (").append(focusLoc).append(" LOC) in ")
+        sb.append("Loaded ").append(all.fileCount()).append(" Java files (")
+                .append(all.linesOfCode()).append(" LOC). Focus set: ").append(focus.fileCount())
+                .append(" files (").append(focus.linesOfCode()).append(" LOC) in ")
                 .append((prefix == null || prefix.isBlank()) ? "entire tree" : prefix).append(".\n");
-        sb.append("Largest files: ").append(formatTopFiles(focused)).append('\n');
-        sb.append("Instability avg=").append(formatDouble(avgInstability))
-                .append(", abstractness avg=").append(formatDouble(avgAbstractness))
-                .append("; extremes: ").append(formatTopInstability(focused)).append('\n');
-        sb.append("Dependency hubs: ").append(formatTopDependencies(focused)).append('\n');
-        sb.append("Sample edges: ").append(formatSampleEdges(focused));
+        sb.append("Largest files: ").append(formatTopFiles(focus)).append('\n');
+        sb.append("Instability avg=").append(formatDouble(focus.avgInstability()))
+                .append(", abstractness avg=").append(formatDouble(focus.avgAbstractness()))
+                .append("; extremes: ").append(formatTopInstability(focus)).append('\n');
+        sb.append("Dependency hubs: ").append(formatTopDependencies(focus)).append('\n');
+        sb.append("Sample edges: ").append(formatSampleEdges(focus));
 
         String summary = sb.toString();
         LOGGER.info(summary);
+        if (prompt != null && snippetBudget > 0) {
+            summary += formatSnippets(prompt, snippetBudget);
+        }
         return new ChatMessage("system", summary);
     }
 
@@ -79,6 +85,27 @@ final class RepositoryContextBuilder {
         }
     }
 
+    private static RepositoryDigest getDigest() {
+        try {
+            return Blackboard.getInstance().getDigest();
+        } catch (Throwable t) {
+            return RepositoryDigest.empty();
+        }
+    }
+
+    /**
+     * The precomputed digest of the selected folder; a selection that is not a folder of the tree
+     * falls back to summarizing the matching files on the spot.
+     */
+    private static RepositoryDigest.Scope focusScope(RepositoryDigest digest, String prefix) {
+        RepositoryDigest.Scope scope = digest.forPrefix(prefix);
+        if (scope != null) {
+            return scope;
+        }
+        List<Square> focused = filterByPrefix(snapshotSquares(), prefix);
+        return focused.isEmpty() ? digest.root() : RepositoryDigest.summarize(focused);
+    }
+
     private static List<Square> snapshotSquares() {
         try {
             List<Square> source = Blackboard.getInstance().getSquares();
@@ -88,6 +115,25 @@ final class RepositoryContextBuilder {
         }
     }
 
+    private static String formatSnippets(String prompt, int budget) {
+        Bm25Index index;
+        try {
+            index = Blackboard.getInstance().getSourceIndex();
+        } catch (Throwable t) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder();
+        int used = 0;
+        for (Bm25Index.Hit hit : index.search(prompt, MAX_SNIPPETS)) {
+            String block = "\n// " + hit.path() + ":" + hit.startLine() + "-" + hit.endLine() + "\n" + hit.text();
+            int cost = TokenEstimator.estimate(block);
+            if (used + cost > budget) continue;
+            sb.append(block);
+            used += cost;
+        }
+        return sb.length() == 0 ? "" : "\nRelevant code:" + sb;
+    }
+
     private static String getSelectedPrefix() {
         try {
             return Blackboard.getInstance().getSelectedPrefix();
@@ -117,68 +163,35 @@ final class RepositoryContextBuilder {
                 .collect(Collectors.toCollection(ArrayList::new));
     }
 
-    private static double averageMetric(List<Square> squares, MetricAccessor accessor) {
-        double sum = 0;
-        int count = 0;
-        for (Square square : squares) {
-            Double value = accessor.apply(square);
-            if (value != null) {
-                sum += value;
-                count++;
-            }
-        }
-        return count == 0 ? 0.0 : sum / count;
-    }
-
-    private static String formatTopFiles(List<Square> squares) {
-        String result = squares.stream()
-                .sorted(Comparator.comparingInt(Square::getLinesOfCode).reversed())
-                .limit(5)
+    private static String formatTopFiles(RepositoryDigest.Scope scope) {
+        String result = scope.largestFiles().stream()
                 .map(s -> s.getSimpleName() + "(" + s.getLinesOfCode() + ")")
                 .collect(Collectors.joining(", "));
         return result.isBlank() ? "n/a" : result;
     }
 
-    private static String formatTopInstability(List<Square> squares) {
-        String result = squares.stream()
-                .filter(s -> s.getInstability() != null)
-                .sorted((a, b) -> Double.compare(b.getInstability(), a.getInstability()))
-                .limit(3)
+    private static String formatTopInstability(RepositoryDigest.Scope scope) {
+        String result = scope.mostUnstable().stream()
                 .map(s -> s.getSimpleName() + "=" + formatDouble(s.getInstability()))
                 .collect(Collectors.joining(", "));
         return result.isBlank() ? "n/a" : result;
     }
 
-    private static String formatTopDependencies(List<Square> squares) {
-        String result = squares.stream()
-                .filter(s -> s.getCout() > 0)
-                .sorted(Comparator.comparingInt(Square::getCout).reversed())
-                .limit(4)
+    private static String formatTopDependencies(RepositoryDigest.Scope scope) {
+        String result = scope.hubs().stream()
                 .map(s -> s.getSimpleName() + "(" + s.getCout() + ")")
                 .collect(Collectors.joining(", "));
         return result.isBlank() ? "no dependency data" : result;
     }
 
-    private static String formatSampleEdges(List<Square> squares) {
-        List<String> edges = new ArrayList<>();
-        for (Square sq : squares) {
-            for (String dep : sq.getEfferentPeers()) {
-                edges.add(sq.getSimpleName() + "->" + dep);
-                if (edges.size() >= 8) break;
-            }
-            if (edges.size() >= 8) break;
-        }
-        if (edges.isEmpty()) {
+    private static String formatSampleEdges(RepositoryDigest.Scope scope) {
+        if (scope.sampleEdges().isEmpty()) {
             return "no dependency edges captured";
         }
-        return String.join(", ", edges);
+        return String.join(", ", scope.sampleEdges());
     }
 
     private static String formatDouble(double value) {
         return String.format("%.2f", value);
     }
-
-    private interface MetricAccessor {
-        Double apply(Square square);
-    }
 }
@@ -0,0 +1,201 @@
+package com.beginsecure.panels;
+
+import com.beginsecure.util.Metrics;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * On-disk cache of chat answers, keyed by a hash of the exact request messages (system prompt,
+ * repository context and whitespace-normalized history). The key does not name a provider,
+ * because a hedged request may be answered by either one; each entry records the provider and
+ * model that actually answered instead. Entries expire after a TTL; once the cache exceeds its
+ * size budget the least recently used entries are deleted. Shared by all chat panels; call it off
+ * the EDT.
+ */
+final class ResponseCache {
+
+    private static final Duration TTL = Duration.ofDays(7);
+    private static final long MAX_BYTES = 16L * 1024 * 1024;
+    private static final String EXTENSION = ".txt";
+    private static final Metrics.Counter HITS = Metrics.counter("cache.chat.hits");
+    private static final Metrics.Counter MISSES = Metrics.counter("cache.chat.misses");
+    static {
+        Metrics.hitRatio("cache.chat.hitRatio", HITS, MISSES);
+    }
+
+    /**
+     * A cached answer and the provider (display name) and model that produced it.
+     */
+    record Answer(String text, String provider, String model) { }
+
+    private static final class Holder {
+        static final ResponseCache SHARED = new ResponseCache(
+                Path.of(System.getProperty("user.home"), ".githubviz", "chat-cache"), TTL, MAX_BYTES);
+    }
+
+    private static final class Entry {
+        final long size;
+        final long created;
+        long lastAccess;
+
+        Entry(long size, long created) {
+            this.size = size;
+            this.created = created;
+            this.lastAccess = created;
+        }
+    }
+
+    private final Path dir;
+    private final long ttlMillis;
+    private final long maxBytes;
+    private final Map<String, Entry> index = new HashMap<>();
+    private long totalBytes;
+    private boolean loaded;
+
+    ResponseCache(Path dir, Duration ttl, long maxBytes) {
+        this.dir = dir;
+        this.ttlMillis = ttl.toMillis();
+        this.maxBytes = maxBytes;
+    }
+
+    static ResponseCache shared() {
+        return Holder.SHARED;
+    }
+
+    static String key(List<ChatMessage> messages) {
+        StringBuilder sb = new StringBuilder();
+        for (ChatMessage message : messages) {
+            sb.append(message.role()).append('\u0000').append(normalize(message.content())).append('\u0000');
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(sb.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return the cached answer, or {@code null} if absent, expired or unreadable
+     */
+    synchronized Answer get(String key) {
+        Answer answer = lookup(key);
+        (answer == null ? MISSES : HITS).increment();
+        return answer;
+    }
+
+    private Answer lookup(String key) {
+        ensureLoaded();
+        Entry entry = index.get(key);
+        if (entry == null) return null;
+        long now = System.currentTimeMillis();
+        if (now - entry.created > ttlMillis) {
+            remove(key);
+            return null;
+        }
+        try {
+            // First line: provider and model, tab separated; the rest is the answer.
+            String stored = Files.readString(file(key), StandardCharsets.UTF_8);
+            int newline = stored.indexOf('\n');
+            int tab = stored.indexOf('\t');
+            if (newline < 0 || tab < 0 || tab > newline) {
+                remove(key);
+                return null;
+            }
+            entry.lastAccess = now;
+            return new Answer(stored.substring(newline + 1), stored.substring(0, tab), stored.substring(tab + 1, newline));
+        } catch (IOException e) {
+            remove(key);
+            return null;
+        }
+    }
+
+    synchronized void put(String key, ChatCompletionClient.Provider answeredBy, String answer) {
+        if (answer == null || answer.isBlank()) return;
+        ensureLoaded();
+        byte[] bytes = (answeredBy.displayName() + '\t' + answeredBy.model() + '\n' + answer)
+                .getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > maxBytes) return;
+        try {
+            Files.createDirectories(dir);
+            Path tmp = dir.resolve(key + ".tmp");
+            Files.write(tmp, bytes);
+            try {
+                Files.move(tmp, file(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file(key), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            return; // caching is best effort
+        }
+        Entry previous = index.put(key, new Entry(bytes.length, System.currentTimeMillis()));
+        if (previous != null) totalBytes -= previous.size;
+        totalBytes += bytes.length;
+        evict();
+    }
+
+    private void evict() {
+        if (totalBytes <= maxBytes) return;
+        List<Map.Entry<String, Entry>> byAge = new ArrayList<>(index.entrySet());
+        byAge.sort((a, b) -> Long.compare(a.getValue().lastAccess, b.getValue().lastAccess));
+        for (Map.Entry<String, Entry> e : byAge) {
+            if (totalBytes <= maxBytes) break;
+            remove(e.getKey());
+        }
+    }
+
+    private void ensureLoaded() {
+        if (loaded) return;
+        loaded = true;
+        if (!Files.isDirectory(dir)) return;
+        long now = System.currentTimeMillis();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + EXTENSION)) {
+            for (Path f : files) {
+                String name = f.getFileName().toString();
+                String key = name.substring(0, name.length() - EXTENSION.length());
+                long created = Files.getLastModifiedTime(f).toMillis();
+                long size = Files.size(f);
+                if (now - created > ttlMillis) {
+                    Files.deleteIfExists(f);
+                    continue;
+                }
+                index.put(key, new Entry(size, created));
+                totalBytes += size;
+            }
+        } catch (IOException ignored) {
+            // start with whatever was indexed
+        }
+        evict();
+    }
+
+    private void remove(String key) {
+        Entry entry = index.remove(key);
+        if (entry != null) totalBytes -= entry.size;
+        try {
+            Files.deleteIfExists(file(key));
+        } catch (IOException ignored) {
+        }
+    }
+
+    private Path file(String key) {
+        return dir.resolve(key + EXTENSION);
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.strip().replaceAll("\\s+", " ");
+    }
+}
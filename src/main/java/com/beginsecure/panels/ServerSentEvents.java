@@ -0,0 +1,91 @@
+package com.beginsecure.panels;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Incremental reader for {@code text/event-stream} bodies as sent by OpenAI-compatible chat
+ * completion endpoints with {@code "stream": true}. Each event's {@code data} is handed over as
+ * soon as its terminating blank line arrives; the {@code [DONE]} sentinel ends the stream.
+ */
+final class ServerSentEvents {
+
+    static final String DONE = "[DONE]";
+
+    private ServerSentEvents() { }
+
+    /**
+     * Reads events until {@code [DONE]}, end of stream or cancellation. A read failure caused by
+     * {@link Cancel#cancel()} closing the stream ends the loop quietly.
+     */
+    static void read(InputStream body, Consumer<String> onData, Cancel cancel) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            StringBuilder data = new StringBuilder();
+            String line;
+            while (!cancel.isCancelled() && (line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    if (dispatch(data, onData)) return;
+                    continue;
+                }
+                if (line.startsWith(":")) continue; // comment / keep-alive
+                if (line.startsWith("data:")) {
+                    if (data.length() > 0) data.append('\n');
+                    int start = (line.length() > 5 && line.charAt(5) == ' ') ? 6 : 5;
+                    data.append(line, start, line.length());
+                }
+                // "event:", "id:" and "retry:" fields are not used by chat completions.
+            }
+            if (!cancel.isCancelled()) dispatch(data, onData);
+        } catch (IOException e) {
+            if (!cancel.isCancelled()) throw e;
+        }
+    }
+
+    /**
+     * @return {@code true} when the event was the {@code [DONE]} sentinel
+     */
+    private static boolean dispatch(StringBuilder data, Consumer<String> onData) {
+        if (data.length() == 0) return false;
+        String event = data.toString();
+        data.setLength(0);
+        if (DONE.equals(event.trim())) return true;
+        onData.accept(event);
+        return false;
+    }
+
+    /**
+     * Cancellation handle shared between the UI and the request thread. Cancelling closes the
+     * attached resource (connection or body stream) so a blocked read returns immediately.
+     */
+    static final class Cancel {
+        private volatile boolean requested;
+        private volatile Closeable resource;
+
+        void attach(Closeable closeable) {
+            resource = closeable;
+            if (requested) closeQuietly(closeable);
+        }
+
+        void cancel() {
+            requested = true;
+            Closeable current = resource;
+            if (current != null) closeQuietly(current);
+        }
+
+        boolean isCancelled() {
+            return requested;
+        }
+
+        private static void closeQuietly(Closeable closeable) {
+            try {
+                closeable.close();
+            } catch (IOException | RuntimeException ignored) {
+            }
+        }
+    }
+}
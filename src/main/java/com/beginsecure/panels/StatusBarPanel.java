@@ -1,24 +1,96 @@
 package com.beginsecure.panels;
 
 import com.beginsecure.Blackboard;
+import com.beginsecure.util.EdtWatchdog;
+import com.beginsecure.util.Instrumentation;
 
 import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
 import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.util.Collection;
+import java.util.List;
+import java.util.StringJoiner;
 
 /**
- * Status strip that listens to blackboard events to report progress and errors.
+ * Status strip that listens to blackboard events to report progress and errors, and shows UI
+ * responsiveness and live per-phase pipeline timings on the right; clicking either opens details.
  * @author @NickGottwald
  * @author @Muska Said
  */
 public final class StatusBarPanel extends JPanel implements PropertyChangeListener {
+    private static final int REFRESH_MILLIS = 250;
+    private static final Color STALL_COLOR = new Color(0xB0, 0x40, 0x00);
+    private static final String[] COLUMNS = {"Phase", "Calls", "Total ms", "Avg ms", "Items", "KB"};
+
     private final JLabel label = new JLabel("status bar : problems, what is going on...");
+    private final JLabel phases = new JLabel();
+    private final DefaultTableModel detail = new DefaultTableModel(COLUMNS, 0) {
+        @Override public boolean isCellEditable(int row, int column) {
+            return false;
+        }
+    };
+    private final JPopupMenu detailPopup = new JPopupMenu();
+    private long shownVersion = -1;
+    private final JLabel responsiveness = new JLabel() {
+        @Override public String getToolTipText(MouseEvent event) {
+            return String.format("<html>Event queue wait: p50 %.0f ms, p99 %.0f ms<br>"
+                            + "Dispatches over the stall threshold: %d (p99 %.0f ms, max %.0f ms)<br>"
+                            + "Click for the stacks of recent stalls.</html>",
+                    EdtWatchdog.latency().getP50Millis(), EdtWatchdog.latency().getP99Millis(),
+                    EdtWatchdog.stallCount(), EdtWatchdog.stalls().getP99Millis(), EdtWatchdog.stalls().getMaxMillis());
+        }
+    };
+    private final JTextArea stallText = new JTextArea(16, 80);
+    private final JPopupMenu stallPopup = new JPopupMenu();
 
     public StatusBarPanel() {
         super(new BorderLayout());
         add(label, BorderLayout.CENTER);
+
+        phases.setToolTipText("Time spent per pipeline phase since the last load. Click for details.");
+        phases.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+        phases.addMouseListener(new MouseAdapter() {
+            @Override public void mouseClicked(MouseEvent e) {
+                showDetail();
+            }
+        });
+        JPanel right = new JPanel(new BorderLayout());
+        right.setOpaque(false);
+        right.add(phases, BorderLayout.CENTER);
+        add(right, BorderLayout.EAST);
+
+        if (EdtWatchdog.isInstalled()) {
+            responsiveness.setToolTipText("");
+            responsiveness.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+            responsiveness.addMouseListener(new MouseAdapter() {
+                @Override public void mouseClicked(MouseEvent e) {
+                    showStalls();
+                }
+            });
+            right.add(responsiveness, BorderLayout.WEST);
+            stallText.setEditable(false);
+            stallText.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 11));
+            stallPopup.setLayout(new BorderLayout());
+            stallPopup.add(new JScrollPane(stallText), BorderLayout.CENTER);
+        }
+
+        JTable table = new JTable(detail);
+        table.setFillsViewportHeight(true);
+        JScrollPane scroller = new JScrollPane(table);
+        scroller.setPreferredSize(new Dimension(460, table.getRowHeight() * (Instrumentation.Phase.values().length + 1) + 8));
+        detailPopup.setLayout(new BorderLayout());
+        detailPopup.add(scroller, BorderLayout.CENTER);
+        detailPopup.add(new JLabel(" Phases overlap: Strip runs inside Metrics and Relationships, "
+                + "Relationships inside Diagram build."), BorderLayout.SOUTH);
+
+        new Timer(REFRESH_MILLIS, e -> {
+            refreshPhases();
+            refreshResponsiveness();
+        }).start();
         try {
             Blackboard.getInstance().addPropertyChangeListener(this);
         } catch (Throwable ignored) { }
@@ -40,4 +112,75 @@ public final class StatusBarPanel extends JPanel implements PropertyChangeListen
             label.setText("Loaded " + c.size() + " files");
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Runs on the EDT timer; does nothing unless a counter moved since the last refresh.
+     */
+    private void refreshPhases() {
+        long version = Instrumentation.version();
+        if (version == shownVersion) return;
+        shownVersion = version;
+
+        List<Instrumentation.PhaseStats> stats = Instrumentation.snapshot();
+        StringJoiner summary = new StringJoiner("  ·  ");
+        for (Instrumentation.PhaseStats s : stats) {
+            if (s.calls() == 0) continue;
+            String text = s.phase().label() + " " + formatMillis(s.millis());
+            if (s.phase() == Instrumentation.Phase.FETCH) text += " (" + s.items() + ")";
+            summary.add(text);
+        }
+        phases.setText(summary.length() == 0 ? "" : summary + " ");
+
+        detail.setRowCount(0);
+        for (Instrumentation.PhaseStats s : stats) {
+            detail.addRow(new Object[]{
+                    s.phase().label(),
+                    s.calls(),
+                    String.format("%.1f", s.millis()),
+                    s.calls() == 0 ? "" : String.format("%.2f", s.millis() / s.calls()),
+                    s.items(),
+                    s.bytes() / 1024
+            });
+        }
+    }
+
+    private void refreshResponsiveness() {
+        if (!EdtWatchdog.isInstalled()) return;
+        String text = "UI " + formatMillis(EdtWatchdog.latency().getP99Millis()) + " p99";
+        long stalls = EdtWatchdog.stallCount();
+        if (stalls > 0) {
+            text += " · " + stalls + (stalls == 1 ? " stall" : " stalls")
+                    + " (max " + formatMillis(EdtWatchdog.stalls().getMaxMillis()) + ")";
+        }
+        responsiveness.setForeground(stalls > 0 ? STALL_COLOR : label.getForeground());
+        responsiveness.setText(text + "   ");
+    }
+
+    private void showStalls() {
+        StringBuilder sb = new StringBuilder();
+        for (EdtWatchdog.Stall stall : EdtWatchdog.recentStalls()) {
+            sb.append(stall.when().withNano(0)).append("  ").append(stall.millis()).append(" ms  ")
+              .append(stall.event()).append('\n');
+            if (stall.stack().isEmpty()) sb.append("    (no stack sampled)\n");
+            for (StackTraceElement frame : stall.stack()) {
+                sb.append("    at ").append(frame).append('\n');
+            }
+            sb.append('\n');
+        }
+        stallText.setText(sb.length() == 0 ? "No UI stalls so far." : sb.toString());
+        stallText.setCaretPosition(0);
+        Dimension size = stallPopup.getPreferredSize();
+        stallPopup.show(responsiveness, responsiveness.getWidth() - size.width, -size.height);
+    }
+
+    private void showDetail() {
+        shownVersion = -1;
+        refreshPhases();
+        Dimension size = detailPopup.getPreferredSize();
+        detailPopup.show(phases, phases.getWidth() - size.width, -size.height);
+    }
+
+    private static String formatMillis(double millis) {
+        return millis >= 1000 ? String.format("%.1f s", millis / 1000) : String.format("%.0f ms", millis);
+    }
+}
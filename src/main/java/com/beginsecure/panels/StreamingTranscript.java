@@ -0,0 +1,39 @@
+package com.beginsecure.panels;
+
+import javax.swing.*;
+
+/**
+ * Appends streamed text to a transcript from any thread. Deltas are buffered and flushed by at
+ * most one pending EDT task, so a fast stream costs one document update per EDT turn instead of
+ * one per token, and all text lands before any later {@code invokeLater} (e.g. a worker's
+ * {@code done()}).
+ */
+final class StreamingTranscript {
+    private final JTextArea area;
+    private final StringBuilder pending = new StringBuilder();
+    private boolean scheduled;
+
+    StreamingTranscript(JTextArea area) {
+        this.area = area;
+    }
+
+    void append(String delta) {
+        synchronized (this) {
+            pending.append(delta);
+            if (scheduled) return;
+            scheduled = true;
+        }
+        SwingUtilities.invokeLater(this::flush);
+    }
+
+    private void flush() {
+        String text;
+        synchronized (this) {
+            text = pending.toString();
+            pending.setLength(0);
+            scheduled = false;
+        }
+        area.append(text);
+        area.setCaretPosition(area.getDocument().getLength());
+    }
+}
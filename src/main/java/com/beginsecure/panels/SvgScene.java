@@ -0,0 +1,528 @@
+package com.beginsecure.panels;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.awt.*;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.geom.RoundRectangle2D;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * Lightweight scene graph parsed from PlantUML SVG output. Only the primitives PlantUML
+ * emits for class diagrams are kept (rect, ellipse, line, polygon, path, text), each with
+ * precomputed bounds. Nodes are bucketed into a uniform grid once, when the scene is built, so a
+ * tile only visits the nodes of the grid cells it overlaps instead of the whole scene.
+ */
+final class SvgScene {
+
+    /** Grid cell edge in scene units. */
+    private static final double CELL = 128;
+    private static final int[] NO_NODES = new int[0];
+
+    private final List<SceneNode> nodes;
+    private final double width;
+    private final double height;
+    private final int columns;
+    private final int rows;
+    /** Indices into {@link #nodes}, ascending (paint order), per grid cell in row-major order. */
+    private final int[][] cells;
+
+    private SvgScene(List<SceneNode> nodes, double width, double height) {
+        this.nodes = nodes;
+        this.width = width;
+        this.height = height;
+        this.columns = Math.max(1, (int) Math.ceil(width / CELL));
+        this.rows = Math.max(1, (int) Math.ceil(height / CELL));
+        this.cells = buildGrid();
+    }
+
+    private int[][] buildGrid() {
+        int[] counts = new int[columns * rows];
+        for (SceneNode node : nodes) {
+            forEachCell(node.bounds, cell -> counts[cell]++);
+        }
+        int[][] grid = new int[counts.length][];
+        for (int i = 0; i < grid.length; i++) {
+            grid[i] = counts[i] == 0 ? NO_NODES : new int[counts[i]];
+            counts[i] = 0;
+        }
+        for (int n = 0; n < nodes.size(); n++) {
+            int index = n;
+            forEachCell(nodes.get(n).bounds, cell -> grid[cell][counts[cell]++] = index);
+        }
+        return grid;
+    }
+
+    /**
+     * Calls {@code action} for every grid cell {@code r} overlaps; parts outside the scene are
+     * clamped to the border cells.
+     */
+    private void forEachCell(Rectangle2D r, IntConsumer action) {
+        int c0 = clamp((int) Math.floor(r.getMinX() / CELL), columns);
+        int c1 = clamp((int) Math.floor(r.getMaxX() / CELL), columns);
+        int r0 = clamp((int) Math.floor(r.getMinY() / CELL), rows);
+        int r1 = clamp((int) Math.floor(r.getMaxY() / CELL), rows);
+        for (int row = r0; row <= r1; row++) {
+            for (int col = c0; col <= c1; col++) {
+                action.accept(row * columns + col);
+            }
+        }
+    }
+
+    private static int clamp(int value, int size) {
+        return Math.max(0, Math.min(size - 1, value));
+    }
+
+    double getWidth() {
+        return width;
+    }
+
+    double getHeight() {
+        return height;
+    }
+
+    int size() {
+        return nodes.size();
+    }
+
+    /**
+     * Paints every node intersecting {@code area}, which is expressed in scene coordinates.
+     */
+    void paint(Graphics2D g, Rectangle2D area) {
+        int c0 = clamp((int) Math.floor(area.getMinX() / CELL), columns);
+        int c1 = clamp((int) Math.floor(area.getMaxX() / CELL), columns);
+        int r0 = clamp((int) Math.floor(area.getMinY() / CELL), rows);
+        int r1 = clamp((int) Math.floor(area.getMaxY() / CELL), rows);
+        if (c0 == c1 && r0 == r1) {
+            for (int index : cells[r0 * columns + c0]) {
+                SceneNode node = nodes.get(index);
+                if (node.bounds.intersects(area)) node.paint(g);
+            }
+            return;
+        }
+        // Several cells: a node spanning them is listed in each, so merge in paint order.
+        BitSet visible = new BitSet(nodes.size());
+        for (int row = r0; row <= r1; row++) {
+            for (int col = c0; col <= c1; col++) {
+                for (int index : cells[row * columns + col]) visible.set(index);
+            }
+        }
+        for (int index = visible.nextSetBit(0); index >= 0; index = visible.nextSetBit(index + 1)) {
+            SceneNode node = nodes.get(index);
+            if (node.bounds.intersects(area)) node.paint(g);
+        }
+    }
+
+    static SvgScene parse(byte[] svg, int length) throws IOException {
+        Document doc;
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+            factory.setNamespaceAware(false);
+            DocumentBuilder builder = factory.newDocumentBuilder();
+            doc = builder.parse(new ByteArrayInputStream(svg, 0, length));
+        } catch (ParserConfigurationException | SAXException e) {
+            throw new IOException("Unable to parse diagram SVG: " + e.getMessage(), e);
+        }
+
+        Element root = doc.getDocumentElement();
+        List<SceneNode> nodes = new ArrayList<>();
+        collect(root, nodes);
+
+        double w = parseLength(root.getAttribute("width"));
+        double h = parseLength(root.getAttribute("height"));
+        if (w <= 0 || h <= 0) {
+            String[] viewBox = root.getAttribute("viewBox").trim().split("[\\s,]+");
+            if (viewBox.length == 4) {
+                w = parseLength(viewBox[2]);
+                h = parseLength(viewBox[3]);
+            }
+        }
+        if (w <= 0 || h <= 0) {
+            Rectangle2D all = new Rectangle2D.Double();
+            for (SceneNode node : nodes) all.add(node.bounds);
+            w = all.getMaxX();
+            h = all.getMaxY();
+        }
+        return new SvgScene(nodes, Math.max(1, w), Math.max(1, h));
+    }
+
+    private static void collect(Element element, List<SceneNode> out) {
+        NodeList children = element.getChildNodes();
+        for (int i = 0; i < children.getLength(); i++) {
+            Node child = children.item(i);
+            if (!(child instanceof Element el)) continue;
+            SceneNode node = toNode(el);
+            if (node != null) {
+                out.add(node);
+            } else {
+                collect(el, out);
+            }
+        }
+    }
+
+    private static SceneNode toNode(Element el) {
+        Map<String, String> style = parseStyle(el.getAttribute("style"));
+        switch (el.getTagName()) {
+            case "rect" -> {
+                double x = num(el, "x"), y = num(el, "y");
+                double w = num(el, "width"), h = num(el, "height");
+                double rx = num(el, "rx"), ry = num(el, "ry");
+                Shape shape = (rx > 0 || ry > 0)
+                        ? new RoundRectangle2D.Double(x, y, w, h, rx * 2, ry * 2)
+                        : new Rectangle2D.Double(x, y, w, h);
+                return new ShapeNode(shape, fill(el, style), stroke(el, style), strokeStyle(style));
+            }
+            case "ellipse", "circle" -> {
+                double cx = num(el, "cx"), cy = num(el, "cy");
+                double rx = el.hasAttribute("r") ? num(el, "r") : num(el, "rx");
+                double ry = el.hasAttribute("r") ? num(el, "r") : num(el, "ry");
+                Shape shape = new Ellipse2D.Double(cx - rx, cy - ry, rx * 2, ry * 2);
+                return new ShapeNode(shape, fill(el, style), stroke(el, style), strokeStyle(style));
+            }
+            case "line" -> {
+                Shape shape = new Line2D.Double(num(el, "x1"), num(el, "y1"), num(el, "x2"), num(el, "y2"));
+                return new ShapeNode(shape, null, stroke(el, style), strokeStyle(style));
+            }
+            case "polygon", "polyline" -> {
+                String[] pts = el.getAttribute("points").trim().split("[\\s,]+");
+                if (pts.length < 4) return null;
+                Path2D path = new Path2D.Double();
+                path.moveTo(parseLength(pts[0]), parseLength(pts[1]));
+                for (int i = 2; i + 1 < pts.length; i += 2) {
+                    path.lineTo(parseLength(pts[i]), parseLength(pts[i + 1]));
+                }
+                boolean closed = "polygon".equals(el.getTagName());
+                if (closed) path.closePath();
+                return new ShapeNode(path, closed ? fill(el, style) : null, stroke(el, style), strokeStyle(style));
+            }
+            case "path" -> {
+                Path2D path = PathParser.parse(el.getAttribute("d"));
+                if (path == null) return null;
+                return new ShapeNode(path, fill(el, style), stroke(el, style), strokeStyle(style));
+            }
+            case "text" -> {
+                String text = el.getTextContent();
+                if (text == null || text.isBlank()) return null;
+                float size = (float) Math.max(1, parseLength(el.getAttribute("font-size")));
+                int fontStyle = Font.PLAIN;
+                if ("bold".equals(el.getAttribute("font-weight"))) fontStyle |= Font.BOLD;
+                if ("italic".equals(el.getAttribute("font-style"))) fontStyle |= Font.ITALIC;
+                String family = el.getAttribute("font-family");
+                Font font = new Font(family.isBlank() ? Font.SANS_SERIF : family, fontStyle, 1).deriveFont(size);
+                Color color = parseColor(el.getAttribute("fill"));
+                double width = el.hasAttribute("textLength") ? num(el, "textLength") : text.length() * size * 0.6;
+                return new TextNode(text, num(el, "x"), num(el, "y"), font,
+                        color == null ? Color.BLACK : color, width);
+            }
+            default -> {
+                return null;
+            }
+        }
+    }
+
+    private static Color fill(Element el, Map<String, String> style) {
+        String value = style.containsKey("fill") ? style.get("fill") : el.getAttribute("fill");
+        if (value.isEmpty() && !"line".equals(el.getTagName())) return Color.BLACK;
+        return parseColor(value);
+    }
+
+    private static Color stroke(Element el, Map<String, String> style) {
+        String value = style.containsKey("stroke") ? style.get("stroke") : el.getAttribute("stroke");
+        return parseColor(value);
+    }
+
+    private static Stroke strokeStyle(Map<String, String> style) {
+        float width = (float) Math.max(0.1, parseLength(style.getOrDefault("stroke-width", "1")));
+        String dashes = style.get("stroke-dasharray");
+        if (dashes == null || dashes.isBlank() || "none".equals(dashes)) {
+            return new BasicStroke(width);
+        }
+        String[] parts = dashes.trim().split("[\\s,]+");
+        float[] pattern = new float[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            pattern[i] = (float) Math.max(0.1, parseLength(parts[i]));
+        }
+        return new BasicStroke(width, BasicStroke.CAP_BUTT, BasicStroke.JOIN_MITER, 10f, pattern, 0f);
+    }
+
+    private static Map<String, String> parseStyle(String style) {
+        Map<String, String> values = new HashMap<>();
+        if (style == null || style.isBlank()) return values;
+        for (String decl : style.split(";")) {
+            int colon = decl.indexOf(':');
+            if (colon <= 0) continue;
+            values.put(decl.substring(0, colon).trim(), decl.substring(colon + 1).trim());
+        }
+        return values;
+    }
+
+    private static Color parseColor(String value) {
+        if (value == null) return null;
+        String v = value.trim();
+        if (v.isEmpty() || "none".equalsIgnoreCase(v) || "transparent".equalsIgnoreCase(v)) return null;
+        if (!v.startsWith("#")) return Color.BLACK;
+        try {
+            String hex = v.substring(1);
+            if (hex.length() == 3) {
+                hex = "" + hex.charAt(0) + hex.charAt(0) + hex.charAt(1) + hex.charAt(1) + hex.charAt(2) + hex.charAt(2);
+            }
+            int rgb = Integer.parseInt(hex.substring(0, 6), 16);
+            int alpha = hex.length() >= 8 ? Integer.parseInt(hex.substring(6, 8), 16) : 255;
+            return new Color((rgb >> 16) & 0xff, (rgb >> 8) & 0xff, rgb & 0xff, alpha);
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            return Color.BLACK;
+        }
+    }
+
+    private static double num(Element el, String attr) {
+        return parseLength(el.getAttribute(attr));
+    }
+
+    private static double parseLength(String raw) {
+        if (raw == null) return 0;
+        String v = raw.trim();
+        if (v.endsWith("px") || v.endsWith("pt")) v = v.substring(0, v.length() - 2);
+        if (v.isEmpty()) return 0;
+        try {
+            return Double.parseDouble(v);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private abstract static class SceneNode {
+        final Rectangle2D bounds;
+
+        SceneNode(Rectangle2D bounds) {
+            this.bounds = bounds;
+        }
+
+        abstract void paint(Graphics2D g);
+    }
+
+    private static final class ShapeNode extends SceneNode {
+        private final Shape shape;
+        private final Color fill;
+        private final Color stroke;
+        private final Stroke strokeStyle;
+
+        ShapeNode(Shape shape, Color fill, Color stroke, Stroke strokeStyle) {
+            super(padded(shape.getBounds2D(), strokeStyle));
+            this.shape = shape;
+            this.fill = fill;
+            this.stroke = stroke;
+            this.strokeStyle = strokeStyle;
+        }
+
+        private static Rectangle2D padded(Rectangle2D r, Stroke stroke) {
+            double pad = stroke instanceof BasicStroke b ? b.getLineWidth() : 1;
+            return new Rectangle2D.Double(r.getX() - pad, r.getY() - pad, r.getWidth() + pad * 2, r.getHeight() + pad * 2);
+        }
+
+        @Override
+        void paint(Graphics2D g) {
+            if (fill != null) {
+                g.setColor(fill);
+                g.fill(shape);
+            }
+            if (stroke != null) {
+                g.setColor(stroke);
+                g.setStroke(strokeStyle);
+                g.draw(shape);
+            }
+        }
+    }
+
+    private static final class TextNode extends SceneNode {
+        private final String text;
+        private final float x;
+        private final float y;
+        private final Font font;
+        private final Color color;
+
+        TextNode(String text, double x, double y, Font font, Color color, double width) {
+            super(new Rectangle2D.Double(x, y - font.getSize2D(), width, font.getSize2D() * 1.3));
+            this.text = text;
+            this.x = (float) x;
+            this.y = (float) y;
+            this.font = font;
+            this.color = color;
+        }
+
+        @Override
+        void paint(Graphics2D g) {
+            g.setFont(font);
+            g.setColor(color);
+            g.drawString(text, x, y);
+        }
+    }
+
+    /**
+     * Minimal SVG path-data parser covering the commands PlantUML emits (M, L, H, V, C, S, Q, T, Z,
+     * absolute and relative). Arcs are approximated with straight segments.
+     */
+    private static final class PathParser {
+        private final String d;
+        private int pos;
+
+        private PathParser(String d) {
+            this.d = d;
+        }
+
+        static Path2D parse(String d) {
+            if (d == null || d.isBlank()) return null;
+            try {
+                return new PathParser(d).run();
+            } catch (RuntimeException e) {
+                return null;
+            }
+        }
+
+        private Path2D run() {
+            Path2D path = new Path2D.Double();
+            double cx = 0, cy = 0, startX = 0, startY = 0, lastCtrlX = 0, lastCtrlY = 0;
+            char cmd = 0;
+            char previous = 0; // upper-case command of the previous segment
+            boolean any = false;
+            while (true) {
+                skipSeparators();
+                if (pos >= d.length()) break;
+                char c = d.charAt(pos);
+                if (Character.isLetter(c)) {
+                    cmd = c;
+                    pos++;
+                } else if (cmd == 0) {
+                    break;
+                }
+                boolean rel = Character.isLowerCase(cmd);
+                double ox = rel ? cx : 0, oy = rel ? cy : 0;
+                char kind = Character.toUpperCase(cmd);
+                // S and T reflect the previous control point only after a curve of the same family;
+                // otherwise the implied control point is the current point.
+                boolean cubicBefore = previous == 'C' || previous == 'S';
+                boolean quadBefore = previous == 'Q' || previous == 'T';
+                if ((kind == 'S' && !cubicBefore) || (kind == 'T' && !quadBefore)) {
+                    lastCtrlX = cx;
+                    lastCtrlY = cy;
+                }
+                previous = kind;
+                switch (kind) {
+                    case 'M' -> {
+                        cx = ox + number();
+                        cy = oy + number();
+                        path.moveTo(cx, cy);
+                        startX = cx;
+                        startY = cy;
+                        any = true;
+                        cmd = rel ? 'l' : 'L';
+                    }
+                    case 'L' -> {
+                        cx = ox + number();
+                        cy = oy + number();
+                        path.lineTo(cx, cy);
+                    }
+                    case 'H' -> {
+                        cx = ox + number();
+                        path.lineTo(cx, cy);
+                    }
+                    case 'V' -> {
+                        cy = oy + number();
+                        path.lineTo(cx, cy);
+                    }
+                    case 'C' -> {
+                        double x1 = ox + number(), y1 = oy + number();
+                        lastCtrlX = ox + number();
+                        lastCtrlY = oy + number();
+                        cx = ox + number();
+                        cy = oy + number();
+                        path.curveTo(x1, y1, lastCtrlX, lastCtrlY, cx, cy);
+                    }
+                    case 'S' -> {
+                        double x1 = 2 * cx - lastCtrlX, y1 = 2 * cy - lastCtrlY;
+                        lastCtrlX = ox + number();
+                        lastCtrlY = oy + number();
+                        cx = ox + number();
+                        cy = oy + number();
+                        path.curveTo(x1, y1, lastCtrlX, lastCtrlY, cx, cy);
+                    }
+                    case 'Q' -> {
+                        lastCtrlX = ox + number();
+                        lastCtrlY = oy + number();
+                        cx = ox + number();
+                        cy = oy + number();
+                        path.quadTo(lastCtrlX, lastCtrlY, cx, cy);
+                    }
+                    case 'T' -> {
+                        lastCtrlX = 2 * cx - lastCtrlX;
+                        lastCtrlY = 2 * cy - lastCtrlY;
+                        cx = ox + number();
+                        cy = oy + number();
+                        path.quadTo(lastCtrlX, lastCtrlY, cx, cy);
+                    }
+                    case 'A' -> {
+                        for (int i = 0; i < 5; i++) number();
+                        cx = ox + number();
+                        cy = oy + number();
+                        path.lineTo(cx, cy);
+                    }
+                    case 'Z' -> {
+                        path.closePath();
+                        cx = startX;
+                        cy = startY;
+                        cmd = 0;
+                    }
+                    default -> {
+                        return any ? path : null;
+                    }
+                }
+            }
+            return any ? path : null;
+        }
+
+        private void skipSeparators() {
+            while (pos < d.length() && (Character.isWhitespace(d.charAt(pos)) || d.charAt(pos) == ',')) pos++;
+        }
+
+        private double number() {
+            skipSeparators();
+            int start = pos;
+            if (pos < d.length() && (d.charAt(pos) == '-' || d.charAt(pos) == '+')) pos++;
+            boolean dot = false;
+            while (pos < d.length()) {
+                char c = d.charAt(pos);
+                if (Character.isDigit(c)) {
+                    pos++;
+                } else if (c == '.' && !dot) {
+                    dot = true;
+                    pos++;
+                } else if ((c == 'e' || c == 'E') && pos > start) {
+                    pos++;
+                    if (pos < d.length() && (d.charAt(pos) == '-' || d.charAt(pos) == '+')) pos++;
+                } else {
+                    break;
+                }
+            }
+            return Double.parseDouble(d.substring(start, pos));
+        }
+    }
+}
@@ -1,19 +1,44 @@
-package com.beginsecure.panels;
-
-
-
-import javax.swing.*;
-
-/**
- * Hosts the primary visualization panels inside a single tabbed container.
- * @author @NickGottwald
- * @author @Muska Said
- */
+package com.beginsecure.panels;
+
+
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Hosts the primary visualization panels inside a single tabbed container.
+ * Each panel is created the first time its tab is shown, so unused tabs cost nothing at startup.
+ * @author @NickGottwald
+ * @author @Muska Said
+ */
 public final class TabsPanel extends JTabbedPane {
-    public TabsPanel(GridPanel grid, MetricsPanel metrics, DiagramPanel diagram, ChatGPTPanel chat) {
-        addTab("Grid", grid);
-        addTab("Metrics", metrics);
-        addTab("Diagram", diagram);
-        addTab("AI Chat", chat);
+    private final List<Supplier<? extends JComponent>> factories = new ArrayList<>();
+
+    public TabsPanel(Supplier<GridPanel> grid, Supplier<MetricsPanel> metrics, Supplier<DiagramPanel> diagram,
+                     Supplier<GraphPanel> graph, Supplier<ChatGPTPanel> chat) {
+        addLazyTab("Grid", grid);
+        addLazyTab("Metrics", metrics);
+        addLazyTab("Diagram", diagram);
+        addLazyTab("Graph", graph);
+        addLazyTab("AI Chat", chat);
+
+        addChangeListener(e -> materialize(getSelectedIndex()));
+        materialize(getSelectedIndex());
+    }
+
+    private void addLazyTab(String title, Supplier<? extends JComponent> factory) {
+        factories.add(factory);
+        addTab(title, new JPanel(new BorderLayout()));
+    }
+
+    private void materialize(int index) {
+        if (index < 0 || index >= factories.size()) return;
+        Supplier<? extends JComponent> factory = factories.get(index);
+        if (factory == null) return;
+        factories.set(index, null);
+        setComponentAt(index, factory.get());
     }
 }
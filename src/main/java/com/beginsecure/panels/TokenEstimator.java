@@ -0,0 +1,45 @@
+package com.beginsecure.panels;
+
+import java.util.List;
+
+/**
+ * Cheap local approximation of BPE token counts for chat payloads: roughly one token per four
+ * characters of a word, one per punctuation mark, plus a fixed per-message overhead. Accurate to
+ * within a few percent on English and code, which is all the windowing policy needs.
+ */
+final class TokenEstimator {
+
+    static final int MESSAGE_OVERHEAD = 4;
+
+    private TokenEstimator() { }
+
+    static int estimate(String text) {
+        if (text == null || text.isEmpty()) return 0;
+        int tokens = 0;
+        int word = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                word++;
+                continue;
+            }
+            if (word > 0) {
+                tokens += (word + 3) / 4;
+                word = 0;
+            }
+            if (!Character.isWhitespace(c)) tokens++;
+        }
+        if (word > 0) tokens += (word + 3) / 4;
+        return tokens;
+    }
+
+    static int estimate(ChatMessage message) {
+        return message == null ? 0 : MESSAGE_OVERHEAD + estimate(message.content());
+    }
+
+    static int estimate(List<ChatMessage> messages) {
+        int total = 0;
+        for (ChatMessage message : messages) total += estimate(message);
+        return total;
+    }
+}
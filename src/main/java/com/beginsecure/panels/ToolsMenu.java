@@ -0,0 +1,54 @@
+package com.beginsecure.panels;
+
+import com.beginsecure.Blackboard;
+import com.beginsecure.util.FlightRecording;
+
+import javax.swing.*;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * "Tools" menu; currently starts and stops a JDK Flight Recorder recording of the session.
+ */
+public final class ToolsMenu extends JMenu {
+    private static final String START = "Start Flight Recording...";
+    private static final String STOP = "Stop Flight Recording";
+
+    private final JMenuItem recordItem = new JMenuItem(START);
+
+    public ToolsMenu() {
+        super("Tools");
+        recordItem.setEnabled(FlightRecording.isAvailable());
+        recordItem.setToolTipText("Records fetches, analysis, rendering, GC and I/O to a .jfr file "
+                + "for JDK Mission Control.");
+        recordItem.addActionListener(e -> toggleRecording());
+        add(recordItem);
+    }
+
+    private void toggleRecording() {
+        try {
+            if (FlightRecording.isRecording()) {
+                Path file = FlightRecording.stop();
+                recordItem.setText(START);
+                Blackboard.getInstance().setStatusMessage("Flight recording saved to " + file);
+                return;
+            }
+            String name = "githubviz-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".jfr";
+            JFileChooser chooser = new JFileChooser();
+            chooser.setDialogTitle("Save flight recording as");
+            chooser.setSelectedFile(new File(System.getProperty("user.home"), name));
+            if (chooser.showSaveDialog(SwingUtilities.getWindowAncestor(this)) != JFileChooser.APPROVE_OPTION) {
+                return;
+            }
+            Path file = chooser.getSelectedFile().toPath();
+            FlightRecording.start(file);
+            recordItem.setText(STOP);
+            Blackboard.getInstance().setStatusMessage("Flight recording started; it will be written to " + file);
+        } catch (IOException | IllegalStateException e) {
+            Blackboard.getInstance().reportError("Flight recording failed: " + e.getMessage());
+        }
+    }
+}
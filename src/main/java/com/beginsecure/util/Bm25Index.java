@@ -0,0 +1,415 @@
+package com.beginsecure.util;
+
+import com.beginsecure.Square;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * BM25 inverted index over repository sources, used to ground chat answers in actual code.
+ * <p>
+ * Files are cut into chunks along member boundaries (each method, constructor or initializer
+ * body together with its javadoc and annotations; the remaining declarations in between form
+ * their own chunks) and capped at {@value #MAX_CHUNK_LINES} lines. Terms are identifiers and
+ * comment words, lowercased and additionally split on camelCase/snake_case, so a query for
+ * "selected prefix" matches {@code getSelectedPrefix}. Tokenizing runs in parallel, and a rebuild
+ * reuses the chunks of every file whose source is unchanged since the previous index.
+ * Instances are immutable and safe to query from any thread.
+ */
+public final class Bm25Index {
+
+    private static final int MAX_CHUNK_LINES = 60;
+    private static final int MAX_HITS_PER_FILE = 2;
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private static final Set<String> STOPWORDS = Set.of(
+            "abstract", "boolean", "break", "byte", "case", "catch", "char", "class", "continue", "default",
+            "do", "double", "else", "enum", "extends", "final", "finally", "float", "for", "if", "implements",
+            "import", "instanceof", "int", "interface", "long", "new", "null", "package", "private",
+            "protected", "public", "return", "short", "static", "super", "switch", "this", "throw", "throws",
+            "try", "void", "while", "true", "false", "var", "string", "java", "util", "override",
+            "the", "an", "and", "or", "of", "to", "in", "is", "it", "be", "on", "at", "by", "as",
+            "what", "which", "how", "does", "are", "with", "that", "from", "not", "can", "get", "set");
+
+    /**
+     * One retrieved chunk; lines are 1-based and inclusive.
+     */
+    public record Hit(String path, int startLine, int endLine, double score, String text) { }
+
+    /**
+     * Tokenized chunks of one file, reusable across rebuilds while the source is unchanged.
+     */
+    private record FileChunks(Square square, int sourceHash, int sourceLength, int[] starts, int[] ends,
+                              String[][] terms, int[][] tfs, int[] lengths) {
+        int size() {
+            return starts.length;
+        }
+    }
+
+    private final Map<String, FileChunks> files;
+    private final int reusedFiles;
+    private final FileChunks[] chunkFile;
+    private final int[] chunkLocal;
+    private final int[] chunkLength;
+    private final double avgLength;
+    private final Map<String, Integer> termIds;
+    private final int[][] postingChunks;
+    private final byte[][] postingTfs;
+
+    private Bm25Index(Map<String, FileChunks> files, int reusedFiles, FileChunks[] chunkFile, int[] chunkLocal,
+                      int[] chunkLength, Map<String, Integer> termIds, int[][] postingChunks, byte[][] postingTfs) {
+        this.files = files;
+        this.reusedFiles = reusedFiles;
+        this.chunkFile = chunkFile;
+        this.chunkLocal = chunkLocal;
+        this.chunkLength = chunkLength;
+        this.termIds = termIds;
+        this.postingChunks = postingChunks;
+        this.postingTfs = postingTfs;
+        long total = 0;
+        for (int len : chunkLength) total += len;
+        this.avgLength = chunkLength.length == 0 ? 1 : Math.max(1.0, (double) total / chunkLength.length);
+    }
+
+    public static Bm25Index empty() {
+        return new Bm25Index(Map.of(), 0, new FileChunks[0], new int[0], new int[0], Map.of(), new int[0][], new byte[0][]);
+    }
+
+    public int chunkCount() {
+        return chunkFile.length;
+    }
+
+    public int fileCount() {
+        return files.size();
+    }
+
+    /**
+     * @return how many files kept the previous index's chunks instead of being tokenized again
+     */
+    public int reusedFileCount() {
+        return reusedFiles;
+    }
+
+    /**
+     * Indexes {@code squares}, reusing {@code previous}'s chunks for files whose source did not change.
+     */
+    public static Bm25Index build(List<Square> squares, Bm25Index previous) {
+        Map<String, FileChunks> reuse = previous == null ? Map.of() : previous.files;
+        FileChunks[] perFile = squares.parallelStream()
+                .map(s -> {
+                    String source = s.getSource();
+                    String path = String.valueOf(s.getPath());
+                    FileChunks old = reuse.get(path);
+                    if (old != null && old.sourceHash() == source.hashCode() && old.sourceLength() == source.length()) {
+                        return old.square() == s ? old : rebind(old, s);
+                    }
+                    return chunk(s, source);
+                })
+                .toArray(FileChunks[]::new);
+
+        Map<String, FileChunks> files = new HashMap<>(perFile.length * 2);
+        int total = 0;
+        int reused = 0;
+        for (FileChunks f : perFile) {
+            String path = String.valueOf(f.square().getPath());
+            files.put(path, f);
+            total += f.size();
+            FileChunks old = reuse.get(path);
+            if (old != null && old.starts() == f.starts()) reused++;
+        }
+
+        FileChunks[] chunkFile = new FileChunks[total];
+        int[] chunkLocal = new int[total];
+        int[] chunkLength = new int[total];
+        Map<String, Integer> termIds = new HashMap<>();
+        List<int[]> docs = new ArrayList<>();
+        List<byte[]> tfs = new ArrayList<>();
+        int[] fill = new int[1024];
+
+        int c = 0;
+        for (FileChunks f : perFile) {
+            for (int j = 0; j < f.size(); j++, c++) {
+                chunkFile[c] = f;
+                chunkLocal[c] = j;
+                chunkLength[c] = f.lengths()[j];
+                String[] terms = f.terms()[j];
+                int[] counts = f.tfs()[j];
+                for (int t = 0; t < terms.length; t++) {
+                    Integer id = termIds.get(terms[t]);
+                    if (id == null) {
+                        id = termIds.size();
+                        termIds.put(terms[t], id);
+                        docs.add(new int[4]);
+                        tfs.add(new byte[4]);
+                        if (id >= fill.length) fill = Arrays.copyOf(fill, fill.length * 2);
+                    }
+                    int n = fill[id];
+                    int[] d = docs.get(id);
+                    if (n == d.length) {
+                        d = Arrays.copyOf(d, n * 2);
+                        docs.set(id, d);
+                        tfs.set(id, Arrays.copyOf(tfs.get(id), n * 2));
+                    }
+                    d[n] = c;
+                    tfs.get(id)[n] = (byte) Math.min(255, counts[t]);
+                    fill[id] = n + 1;
+                }
+            }
+        }
+        int[][] postingChunks = new int[docs.size()][];
+        byte[][] postingTfs = new byte[docs.size()][];
+        for (int id = 0; id < postingChunks.length; id++) {
+            postingChunks[id] = Arrays.copyOf(docs.get(id), fill[id]);
+            postingTfs[id] = Arrays.copyOf(tfs.get(id), fill[id]);
+        }
+        return new Bm25Index(files, reused, chunkFile, chunkLocal, chunkLength, termIds, postingChunks, postingTfs);
+    }
+
+    /**
+     * @return up to {@code k} best chunks for the query, at most {@value #MAX_HITS_PER_FILE} per file
+     */
+    public List<Hit> search(String query, int k) {
+        if (k <= 0 || chunkFile.length == 0 || query == null) return List.of();
+        Set<String> terms = new LinkedHashSet<>();
+        tokenize(query, 0, query.length(), (term) -> terms.add(term));
+
+        int n = chunkFile.length;
+        float[] scores = new float[n];
+        int[] touched = new int[64];
+        int touchedCount = 0;
+        for (String term : terms) {
+            Integer id = termIds.get(term);
+            if (id == null) continue;
+            int[] chunks = postingChunks[id];
+            byte[] freq = postingTfs[id];
+            double idf = Math.log(1 + (n - chunks.length + 0.5) / (chunks.length + 0.5));
+            for (int p = 0; p < chunks.length; p++) {
+                int chunk = chunks[p];
+                int tf = freq[p] & 0xFF;
+                double norm = K1 * (1 - B + B * chunkLength[chunk] / avgLength);
+                if (scores[chunk] == 0) {
+                    if (touchedCount == touched.length) touched = Arrays.copyOf(touched, touchedCount * 2);
+                    touched[touchedCount++] = chunk;
+                }
+                scores[chunk] += (float) (idf * tf * (K1 + 1) / (tf + norm));
+            }
+        }
+
+        // Bounded min-heap: keeps the best candidates without sorting every touched chunk.
+        int pool = k * MAX_HITS_PER_FILE * 4;
+        PriorityQueue<Integer> heap = new PriorityQueue<>((a, b) -> Float.compare(scores[a], scores[b]));
+        for (int i = 0; i < touchedCount; i++) {
+            int chunk = touched[i];
+            if (heap.size() < pool) {
+                heap.add(chunk);
+            } else if (scores[chunk] > scores[heap.peek()]) {
+                heap.poll();
+                heap.add(chunk);
+            }
+        }
+        List<Integer> best = new ArrayList<>(heap);
+        best.sort((a, b) -> Float.compare(scores[b], scores[a]));
+
+        List<Hit> hits = new ArrayList<>(k);
+        Map<FileChunks, Integer> perFile = new IdentityHashMap<>();
+        for (int chunk : best) {
+            FileChunks f = chunkFile[chunk];
+            if (perFile.merge(f, 1, Integer::sum) > MAX_HITS_PER_FILE) continue;
+            int local = chunkLocal[chunk];
+            int start = f.starts()[local];
+            int end = f.ends()[local];
+            hits.add(new Hit(String.valueOf(f.square().getPath()), start + 1, end + 1, scores[chunk],
+                    lines(f.square().getSource(), start, end)));
+            if (hits.size() == k) break;
+        }
+        return hits;
+    }
+
+    private static FileChunks rebind(FileChunks old, Square square) {
+        return new FileChunks(square, old.sourceHash(), old.sourceLength(), old.starts(), old.ends(),
+                old.terms(), old.tfs(), old.lengths());
+    }
+
+    /**
+     * Splits a file into member-level chunks with a single scan that tracks brace depth outside
+     * comments, strings and char literals.
+     */
+    private static FileChunks chunk(Square square, String src) {
+        int[] lineStarts = lineStarts(src);
+        int lineCount = lineStarts.length;
+        List<int[]> members = new ArrayList<>();
+
+        int depth = 0;
+        int line = 0;
+        int pendingStart = -1;
+        int memberStart = -1;
+        for (int i = 0; i < src.length(); i++) {
+            char ch = src.charAt(i);
+            char next = i + 1 < src.length() ? src.charAt(i + 1) : '\0';
+            if (ch == '\n') {
+                line++;
+                continue;
+            }
+            if (depth == 1 && pendingStart < 0 && !Character.isWhitespace(ch)) pendingStart = line;
+            if (ch == '/' && next == '/') {
+                int eol = src.indexOf('\n', i);
+                i = (eol < 0 ? src.length() : eol) - 1;
+            } else if (ch == '/' && next == '*') {
+                int close = src.indexOf("*/", i + 2);
+                int stop = close < 0 ? src.length() : close + 2;
+                for (int j = i; j < stop; j++) if (src.charAt(j) == '\n') line++;
+                i = stop - 1;
+            } else if (ch == '"' || ch == '\'') {
+                int j = i + 1;
+                while (j < src.length() && src.charAt(j) != ch && src.charAt(j) != '\n') {
+                    if (src.charAt(j) == '\\') j++;
+                    j++;
+                }
+                i = Math.min(j, src.length() - 1);
+                if (i < src.length() && src.charAt(i) == '\n') i--;
+            } else if (ch == '{') {
+                if (depth == 1) memberStart = pendingStart >= 0 ? pendingStart : line;
+                if (depth == 0) pendingStart = -1;
+                depth++;
+            } else if (ch == '}') {
+                depth = Math.max(0, depth - 1);
+                if (depth == 1 && memberStart >= 0) {
+                    members.add(new int[]{memberStart, line});
+                    memberStart = -1;
+                }
+                if (depth <= 1) pendingStart = -1;
+            } else if (ch == ';' && depth == 1) {
+                pendingStart = -1;
+            }
+        }
+
+        // Members, plus the declaration gaps between them, each capped at MAX_CHUNK_LINES.
+        List<int[]> ranges = new ArrayList<>();
+        int cursor = 0;
+        for (int[] m : members) {
+            if (m[0] < cursor) continue;
+            if (m[0] > cursor) addCapped(ranges, cursor, m[0] - 1);
+            addCapped(ranges, m[0], m[1]);
+            cursor = m[1] + 1;
+        }
+        if (cursor < lineCount) addCapped(ranges, cursor, lineCount - 1);
+
+        List<String> fileTerms = new ArrayList<>();
+        String simpleName = square.getSimpleName();
+        tokenize(simpleName, 0, simpleName.length(), fileTerms::add);
+
+        List<int[]> kept = new ArrayList<>();
+        List<String[]> termList = new ArrayList<>();
+        List<int[]> tfList = new ArrayList<>();
+        List<Integer> lengthList = new ArrayList<>();
+        for (int[] r : ranges) {
+            int from = lineStarts[r[0]];
+            int to = r[1] + 1 < lineCount ? lineStarts[r[1] + 1] : src.length();
+            Map<String, Integer> counts = new HashMap<>();
+            int[] length = new int[1];
+            tokenize(src, from, to, term -> {
+                counts.merge(term, 1, Integer::sum);
+                length[0]++;
+            });
+            if (counts.isEmpty()) continue;
+            for (String term : fileTerms) counts.merge(term, 1, Integer::sum);
+            String[] terms = counts.keySet().toArray(new String[0]);
+            int[] tf = new int[terms.length];
+            for (int t = 0; t < terms.length; t++) tf[t] = counts.get(terms[t]);
+            kept.add(r);
+            termList.add(terms);
+            tfList.add(tf);
+            lengthList.add(length[0] + fileTerms.size());
+        }
+
+        int size = kept.size();
+        int[] starts = new int[size];
+        int[] ends = new int[size];
+        int[] lengths = new int[size];
+        for (int j = 0; j < size; j++) {
+            starts[j] = kept.get(j)[0];
+            ends[j] = kept.get(j)[1];
+            lengths[j] = lengthList.get(j);
+        }
+        return new FileChunks(square, src.hashCode(), src.length(), starts, ends,
+                termList.toArray(new String[0][]), tfList.toArray(new int[0][]), lengths);
+    }
+
+    private static void addCapped(List<int[]> ranges, int from, int to) {
+        for (int start = from; start <= to; start += MAX_CHUNK_LINES) {
+            ranges.add(new int[]{start, Math.min(to, start + MAX_CHUNK_LINES - 1)});
+        }
+    }
+
+    private static int[] lineStarts(String src) {
+        int count = 1;
+        for (int i = 0; i < src.length(); i++) if (src.charAt(i) == '\n') count++;
+        int[] starts = new int[count];
+        int line = 1;
+        for (int i = 0; i < src.length(); i++) if (src.charAt(i) == '\n') starts[line++] = i + 1;
+        return starts;
+    }
+
+    private interface TermSink {
+        void accept(String term);
+    }
+
+    /**
+     * Emits each identifier/word (lowercased) and, for compound identifiers, its camelCase and
+     * snake_case parts. Stopwords, numbers and single letters are skipped.
+     */
+    private static void tokenize(String text, int from, int to, TermSink sink) {
+        int i = from;
+        while (i < to) {
+            char ch = text.charAt(i);
+            if (!Character.isLetter(ch) && ch != '_') {
+                i++;
+                continue;
+            }
+            int start = i;
+            while (i < to && (Character.isLetterOrDigit(text.charAt(i)) || text.charAt(i) == '_')) i++;
+            String word = text.substring(start, i);
+            String lower = word.toLowerCase(Locale.ROOT);
+            emit(lower, sink);
+
+            int partStart = 0;
+            boolean compound = false;
+            for (int j = 1; j <= word.length(); j++) {
+                boolean boundary = j == word.length()
+                        || word.charAt(j) == '_'
+                        || (Character.isUpperCase(word.charAt(j)) && Character.isLowerCase(word.charAt(j - 1)))
+                        || (Character.isUpperCase(word.charAt(j)) && j + 1 < word.length()
+                            && Character.isLowerCase(word.charAt(j + 1)) && Character.isUpperCase(word.charAt(j - 1)));
+                if (!boundary) continue;
+                if (j < word.length()) compound = true;
+                if (compound || partStart > 0) {
+                    String part = word.substring(partStart, j).replace("_", "").toLowerCase(Locale.ROOT);
+                    if (!part.equals(lower)) emit(part, sink);
+                }
+                partStart = (j < word.length() && word.charAt(j) == '_') ? j + 1 : j;
+            }
+        }
+    }
+
+    private static void emit(String term, TermSink sink) {
+        if (term.length() < 2 || STOPWORDS.contains(term)) return;
+        sink.accept(term);
+    }
+
+    private static String lines(String src, int startLine, int endLine) {
+        int[] starts = lineStarts(src);
+        if (startLine >= starts.length) return "";
+        int from = starts[startLine];
+        int to = endLine + 1 < starts.length ? starts[endLine + 1] : src.length();
+        return src.substring(from, to).stripTrailing();
+    }
+}
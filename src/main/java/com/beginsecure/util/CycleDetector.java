@@ -0,0 +1,112 @@
+package com.beginsecure.util;
+
+import com.beginsecure.Square;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds dependency cycles between repository squares using their efferent peers.
+ */
+public final class CycleDetector {
+
+    private CycleDetector() { }
+
+    /**
+     * Returns every strongly connected component with more than one member (each a dependency
+     * cycle), members sorted by name and components sorted by size, largest first. Uses an
+     * iterative Tarjan walk so deep graphs cannot overflow the stack.
+     */
+    public static List<List<String>> findCycles(List<Square> squares) {
+        Map<String, Integer> index = new HashMap<>();
+        List<String> names = new ArrayList<>();
+        for (Square square : squares) {
+            if (square == null) continue;
+            String name = square.getSimpleName();
+            if (name == null || name.isBlank() || index.containsKey(name)) continue;
+            index.put(name, names.size());
+            names.add(name);
+        }
+
+        int n = names.size();
+        int[][] adjacency = new int[n][];
+        for (Square square : squares) {
+            if (square == null) continue;
+            Integer from = index.get(square.getSimpleName());
+            if (from == null || adjacency[from] != null) continue;
+            List<Integer> targets = new ArrayList<>();
+            for (String peer : square.getEfferentPeers()) {
+                Integer to = index.get(peer);
+                if (to != null) targets.add(to);
+            }
+            adjacency[from] = targets.stream().mapToInt(Integer::intValue).toArray();
+        }
+        for (int i = 0; i < n; i++) {
+            if (adjacency[i] == null) adjacency[i] = new int[0];
+        }
+
+        int[] order = new int[n];
+        int[] low = new int[n];
+        boolean[] onStack = new boolean[n];
+        Arrays.fill(order, -1);
+        Deque<Integer> stack = new ArrayDeque<>();
+        int counter = 0;
+        List<List<String>> cycles = new ArrayList<>();
+
+        int[] callNode = new int[n];
+        int[] callEdge = new int[n];
+        for (int start = 0; start < n; start++) {
+            if (order[start] >= 0) continue;
+            int depth = 0;
+            callNode[0] = start;
+            callEdge[0] = 0;
+            order[start] = low[start] = counter++;
+            stack.push(start);
+            onStack[start] = true;
+
+            while (depth >= 0) {
+                int v = callNode[depth];
+                if (callEdge[depth] < adjacency[v].length) {
+                    int w = adjacency[v][callEdge[depth]++];
+                    if (order[w] < 0) {
+                        order[w] = low[w] = counter++;
+                        stack.push(w);
+                        onStack[w] = true;
+                        depth++;
+                        callNode[depth] = w;
+                        callEdge[depth] = 0;
+                    } else if (onStack[w]) {
+                        low[v] = Math.min(low[v], order[w]);
+                    }
+                    continue;
+                }
+                if (low[v] == order[v]) {
+                    List<String> component = new ArrayList<>();
+                    int w;
+                    do {
+                        w = stack.pop();
+                        onStack[w] = false;
+                        component.add(names.get(w));
+                    } while (w != v);
+                    if (component.size() > 1) {
+                        Collections.sort(component);
+                        cycles.add(component);
+                    }
+                }
+                depth--;
+                if (depth >= 0) {
+                    int parent = callNode[depth];
+                    low[parent] = Math.min(low[parent], low[v]);
+                }
+            }
+        }
+        cycles.sort((a, b) -> Integer.compare(b.size(), a.size()));
+        return cycles;
+    }
+}
@@ -0,0 +1,203 @@
+package com.beginsecure.util;
+
+import javax.swing.SwingUtilities;
+import java.awt.AWTEvent;
+import java.awt.EventQueue;
+import java.awt.Toolkit;
+import java.time.LocalTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.ConsoleHandler;
+import java.util.logging.Formatter;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * Watches the Event Dispatch Thread for freezes. A pushed {@link EventQueue} times every dispatch;
+ * a daemon thread samples the EDT stack once a dispatch runs past the stall threshold
+ * ({@code -Dgithubviz.edt.stallMillis}, default 100, 0 disables the watchdog) and the stall is
+ * logged with that stack when the dispatch returns. The same thread posts a probe event every
+ * {@value #PROBE_MILLIS} ms to measure how long events wait in the queue. Results go to the
+ * {@code edt.latency}, {@code edt.dispatch} and {@code edt.stall} {@link Metrics} histograms and
+ * the {@link #recentStalls()} list shown by the status bar.
+ * <p>
+ * Dispatches that run a nested event loop (modal dialogs, file choosers) are not timed as a
+ * whole; the events dispatched inside the loop are.
+ */
+public final class EdtWatchdog {
+
+    /**
+     * One dispatch that ran past the threshold; {@code stack} is the EDT stack sampled while it
+     * was blocked, empty if the dispatch finished before the sampler looked.
+     */
+    public record Stall(LocalTime when, long millis, String event, List<StackTraceElement> stack) { }
+
+    private static final long PROBE_MILLIS = 250;
+    private static final int KEPT_STALLS = 20;
+    private static final int KEPT_FRAMES = 40;
+    private static final int LOGGED_FRAMES = 15;
+
+    private static final Metrics.Histogram LATENCY = Metrics.histogram("edt.latency");
+    private static final Metrics.Histogram DISPATCH = Metrics.histogram("edt.dispatch");
+    private static final Metrics.Histogram STALL = Metrics.histogram("edt.stall");
+    private static final Metrics.Counter STALLS = Metrics.counter("edt.stalls");
+
+    private static final Logger LOGGER = Logger.getLogger(EdtWatchdog.class.getName());
+    static {
+        try {
+            LOGGER.setUseParentHandlers(false);
+            ConsoleHandler handler = new ConsoleHandler();
+            handler.setFormatter(new WhiteFormatter());
+            handler.setLevel(java.util.logging.Level.INFO);
+            LOGGER.addHandler(handler);
+        } catch (SecurityException ignored) { }
+    }
+
+    private static final AtomicBoolean INSTALLED = new AtomicBoolean();
+    private static final ArrayDeque<Stall> RECENT = new ArrayDeque<>();
+    private static volatile long thresholdNanos;
+    private static volatile Thread edt;
+    /** Start of the dispatch currently running on the EDT, or 0 while idle or inside a nested loop. */
+    private static volatile long busySince;
+    /** Incremented per dispatch, so a sampled stack can be matched to the dispatch it came from. */
+    private static volatile long sequence;
+    private static final AtomicReference<Sample> SAMPLE = new AtomicReference<>();
+
+    private record Sample(long sequence, StackTraceElement[] stack) { }
+
+    private EdtWatchdog() { }
+
+    /**
+     * Starts watching; does nothing when already installed, disabled or running headless.
+     */
+    public static void install() {
+        long thresholdMillis = Long.getLong("githubviz.edt.stallMillis", 100L);
+        if (thresholdMillis <= 0 || java.awt.GraphicsEnvironment.isHeadless()) return;
+        if (!INSTALLED.compareAndSet(false, true)) return;
+        thresholdNanos = thresholdMillis * 1_000_000;
+        Toolkit.getDefaultToolkit().getSystemEventQueue().push(new TimingQueue());
+        Thread sampler = new Thread(EdtWatchdog::sample, "edt-watchdog");
+        sampler.setDaemon(true);
+        sampler.start();
+        LOGGER.info("EDT watchdog reporting dispatches over " + thresholdMillis + " ms.");
+    }
+
+    public static boolean isInstalled() {
+        return INSTALLED.get();
+    }
+
+    public static long stallCount() {
+        return STALLS.getCount();
+    }
+
+    public static Metrics.Histogram latency() {
+        return LATENCY;
+    }
+
+    public static Metrics.Histogram stalls() {
+        return STALL;
+    }
+
+    /**
+     * @return the most recent stalls, newest first
+     */
+    public static List<Stall> recentStalls() {
+        synchronized (RECENT) {
+            return new ArrayList<>(RECENT);
+        }
+    }
+
+    private static void sample() {
+        long pollMillis = Math.max(10, thresholdNanos / 2_000_000);
+        AtomicBoolean probePending = new AtomicBoolean();
+        long nextProbe = 0;
+        while (true) {
+            try {
+                Thread.sleep(pollMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+            long now = System.nanoTime();
+            long since = busySince;
+            long seq = sequence;
+            Thread thread = edt;
+            Sample last = SAMPLE.get();
+            if (since != 0 && thread != null && now - since > thresholdNanos
+                    && (last == null || last.sequence != seq)) {
+                StackTraceElement[] stack = thread.getStackTrace();
+                // Only keep it if the same dispatch is still running, not one that started meanwhile.
+                if (sequence == seq && busySince == since) SAMPLE.set(new Sample(seq, stack));
+            }
+            if (now >= nextProbe && probePending.compareAndSet(false, true)) {
+                nextProbe = now + PROBE_MILLIS * 1_000_000;
+                long posted = System.nanoTime();
+                SwingUtilities.invokeLater(() -> {
+                    LATENCY.recordSince(posted);
+                    probePending.set(false);
+                });
+            }
+        }
+    }
+
+    private static void finished(AWTEvent event, long seq, long elapsed) {
+        DISPATCH.record(elapsed);
+        if (elapsed <= thresholdNanos) return;
+        Sample sample = SAMPLE.get();
+        List<StackTraceElement> stack = sample != null && sample.sequence == seq
+                ? List.of(sample.stack).subList(0, Math.min(KEPT_FRAMES, sample.stack.length))
+                : List.of();
+        Stall stall = new Stall(LocalTime.now(), elapsed / 1_000_000, describe(event), stack);
+        STALL.record(elapsed);
+        STALLS.increment();
+        synchronized (RECENT) {
+            RECENT.addFirst(stall);
+            if (RECENT.size() > KEPT_STALLS) RECENT.removeLast();
+        }
+        StringBuilder sb = new StringBuilder("EDT stalled for ").append(stall.millis()).append(" ms in ")
+                .append(stall.event());
+        if (stack.isEmpty()) sb.append(" (no stack sampled)");
+        for (StackTraceElement frame : stack.subList(0, Math.min(LOGGED_FRAMES, stack.size()))) {
+            sb.append(System.lineSeparator()).append("    at ").append(frame);
+        }
+        LOGGER.warning(sb.toString());
+    }
+
+    private static String describe(AWTEvent event) {
+        String params = event.paramString();
+        int notifier = params.indexOf(",notifier=");
+        if (notifier > 0) params = params.substring(0, notifier); // InvocationEvent: keep the runnable
+        String text = event.getClass().getSimpleName() + "[" + params + "]";
+        return text.length() > 160 ? text.substring(0, 157) + "..." : text;
+    }
+
+    private static final class TimingQueue extends EventQueue {
+        @Override
+        protected void dispatchEvent(AWTEvent event) {
+            Thread current = Thread.currentThread();
+            if (edt != current) edt = current; // AWT may replace the EDT after an auto-shutdown
+            long seq = ++sequence;
+            long start = System.nanoTime();
+            busySince = start;
+            try {
+                super.dispatchEvent(event);
+            } finally {
+                busySince = 0;
+                // Another dispatch in between means this one ran a nested event loop.
+                if (sequence == seq) finished(event, seq, System.nanoTime() - start);
+            }
+        }
+    }
+
+    private static final class WhiteFormatter extends Formatter {
+        private static final String WHITE = "\u001B[37m";
+        private static final String RESET = "\u001B[0m";
+
+        @Override
+        public String format(LogRecord record) {
+            return WHITE + formatMessage(record) + RESET + System.lineSeparator();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.beginsecure.util;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+import java.awt.Component;
+
+/**
+ * JDK Flight Recorder events for fetches, analysis and drawing, so a recording of a slow session
+ * lines them up with GC, I/O and thread activity. Events cost next to nothing while no recording
+ * is running; call sites check {@code shouldCommit()} before filling in fields.
+ */
+public final class FlightEvents {
+
+    private FlightEvents() { }
+
+    @Name("com.beginsecure.HttpRequest")
+    @Label("HTTP Request")
+    @Category({"GitHubViz", "Network"})
+    @Description("GitHub API or raw content request; the duration is the request latency")
+    @StackTrace(false)
+    public static class HttpRequest extends Event {
+        @Label("URL")
+        public String url;
+        @Label("Status")
+        public int status;
+        @Label("Bytes")
+        @DataAmount
+        public long bytes;
+        @Label("API Request")
+        public boolean api;
+    }
+
+    @Name("com.beginsecure.MetricsComputation")
+    @Label("Metrics Computation")
+    @Category({"GitHubViz", "Analysis"})
+    @StackTrace(false)
+    public static class MetricsComputation extends Event {
+        @Label("Files")
+        public int files;
+    }
+
+    @Name("com.beginsecure.RelationshipExtraction")
+    @Label("Relationship Extraction")
+    @Category({"GitHubViz", "Analysis"})
+    @StackTrace(false)
+    public static class RelationshipExtraction extends Event {
+        @Label("Files")
+        public int files;
+        @Label("Relationships")
+        public int relationships;
+    }
+
+    @Name("com.beginsecure.DiagramUpdate")
+    @Label("Diagram Update")
+    @Category({"GitHubViz", "UI"})
+    @StackTrace(false)
+    public static class DiagramUpdate extends Event {
+        @Label("Kind")
+        @Description("png, svg or none")
+        public String kind;
+        @Label("Error")
+        public String error;
+    }
+
+    @Name("com.beginsecure.PanelPaint")
+    @Label("Panel Paint")
+    @Category({"GitHubViz", "UI"})
+    @Threshold("1 ms")
+    @StackTrace(false)
+    public static class PanelPaint extends Event {
+        @Label("Panel")
+        public String panel;
+        @Label("Width")
+        public int width;
+        @Label("Height")
+        public int height;
+    }
+
+    /**
+     * Starts timing a paint; hand the result and the painted component to {@link #paintFinished}.
+     */
+    public static PanelPaint paintStarted() {
+        PanelPaint event = new PanelPaint();
+        event.begin();
+        return event;
+    }
+
+    public static void paintFinished(PanelPaint event, Component component) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.panel = component.getClass().getSimpleName();
+            event.width = component.getWidth();
+            event.height = component.getHeight();
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.beginsecure.util;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+
+/**
+ * Starts and stops a single JDK Flight Recorder recording from inside the application, using the
+ * JDK's low-overhead "default" settings plus the {@link FlightEvents} of this application.
+ */
+public final class FlightRecording {
+
+    private static Recording active;
+    private static Path destination;
+
+    private FlightRecording() { }
+
+    public static boolean isAvailable() {
+        return FlightRecorder.isAvailable();
+    }
+
+    public static synchronized boolean isRecording() {
+        return active != null;
+    }
+
+    /**
+     * Starts recording; the file is written when {@link #stop()} is called.
+     */
+    public static synchronized void start(Path file) throws IOException {
+        if (active != null) throw new IllegalStateException("A flight recording is already running.");
+        Recording recording;
+        try {
+            recording = new Recording(Configuration.getConfiguration("default"));
+        } catch (ParseException e) {
+            throw new IOException("Unable to read the JFR default settings: " + e.getMessage(), e);
+        }
+        recording.setName("GitHubViz");
+        recording.setToDisk(true);
+        recording.setDestination(file);
+        recording.start();
+        active = recording;
+        destination = file;
+    }
+
+    /**
+     * @return the file the recording was written to
+     */
+    public static synchronized Path stop() throws IOException {
+        if (active == null) throw new IllegalStateException("No flight recording is running.");
+        try {
+            active.stop();
+            return destination;
+        } finally {
+            active.close();
+            active = null;
+            destination = null;
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package com.beginsecure.util;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Incremental force-directed layout for large dependency graphs. Repulsion is approximated with a
+ * Barnes–Hut quadtree and evaluated in parallel on the supplied pool; edge attraction and gravity
+ * keep connected nodes together. Each {@link #step()} advances the simulation once and cools it,
+ * so callers can animate convergence by publishing {@link #snapshot()} between steps.
+ * <p>
+ * {@link #step()} must only be called from one thread at a time. {@link #pin}, {@link #unpin}
+ * and {@link #snapshot()} never block on a running step: pins are queued and applied at the start
+ * of the next step, and snapshots return the positions published by the last one.
+ */
+public final class ForceDirectedLayout {
+
+    private static final double THETA = 0.8;
+    private static final double GRAVITY = 0.015;
+    private static final double COOLING = 0.97;
+    private static final double MIN_TEMPERATURE = 0.02;
+    private static final int MAX_DEPTH = 32;
+
+    private final int size;
+    private final int[] edgeFrom;
+    private final int[] edgeTo;
+    private final double[] x;
+    private final double[] y;
+    private final double[] dx;
+    private final double[] dy;
+    private final boolean[] pinned;
+    private final double k;
+    private final ForkJoinPool pool;
+    private final ConcurrentLinkedQueue<Pin> pins = new ConcurrentLinkedQueue<>();
+    private volatile double[] published;
+    private volatile double temperature = 1.0;
+
+    /** A queued pin ({@code pinned}) or unpin request; positions are ignored for unpins. */
+    private record Pin(int node, boolean pinned, double x, double y) { }
+
+    public ForceDirectedLayout(int nodeCount, int[] edgeFrom, int[] edgeTo, ForkJoinPool pool) {
+        if (edgeFrom.length != edgeTo.length) {
+            throw new IllegalArgumentException("edge arrays differ in length");
+        }
+        this.size = nodeCount;
+        this.edgeFrom = edgeFrom.clone();
+        this.edgeTo = edgeTo.clone();
+        this.x = new double[nodeCount];
+        this.y = new double[nodeCount];
+        this.dx = new double[nodeCount];
+        this.dy = new double[nodeCount];
+        this.pinned = new boolean[nodeCount];
+        this.k = 30.0;
+        this.pool = pool;
+
+        // Deterministic phyllotaxis seed: evenly spread, no two nodes coincide.
+        double golden = Math.PI * (3 - Math.sqrt(5));
+        for (int i = 0; i < nodeCount; i++) {
+            double r = k * Math.sqrt(i + 0.5);
+            x[i] = r * Math.cos(i * golden);
+            y[i] = r * Math.sin(i * golden);
+        }
+        publish();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isConverged() {
+        return temperature < MIN_TEMPERATURE && pins.isEmpty();
+    }
+
+    /**
+     * Advances the simulation by one iteration.
+     * @return {@code true} while the layout is still moving
+     */
+    public boolean step() {
+        applyPins();
+        if (size == 0 || isConverged()) return false;
+
+        Cell root = buildTree();
+        pool.submit(() -> IntStream.range(0, size).parallel().forEach(i -> {
+            double[] f = new double[2];
+            accumulateRepulsion(root, i, f);
+            dx[i] = f[0] - x[i] * GRAVITY;
+            dy[i] = f[1] - y[i] * GRAVITY;
+        })).join();
+
+        for (int e = 0; e < edgeFrom.length; e++) {
+            int a = edgeFrom[e], b = edgeTo[e];
+            if (a == b) continue;
+            double ddx = x[a] - x[b], ddy = y[a] - y[b];
+            double d = Math.max(0.01, Math.hypot(ddx, ddy));
+            double f = d / k;
+            dx[a] -= ddx * f;
+            dy[a] -= ddy * f;
+            dx[b] += ddx * f;
+            dy[b] += ddy * f;
+        }
+
+        double limit = temperature * k * 4;
+        pool.submit(() -> IntStream.range(0, size).parallel().forEach(i -> {
+            if (pinned[i]) return;
+            double d = Math.hypot(dx[i], dy[i]);
+            if (d <= 0) return;
+            double s = Math.min(d, limit) / d;
+            x[i] += dx[i] * s;
+            y[i] += dy[i] * s;
+        })).join();
+
+        temperature *= COOLING;
+        publish();
+        return !isConverged();
+    }
+
+    /**
+     * Fixes a node at the given layout position (e.g. while the user drags it) and reheats the
+     * simulation; takes effect at the start of the next {@link #step()}.
+     */
+    public void pin(int node, double px, double py) {
+        if (node < 0 || node >= size) return;
+        pins.add(new Pin(node, true, px, py));
+    }
+
+    public void unpin(int node) {
+        if (node < 0 || node >= size) return;
+        pins.add(new Pin(node, false, 0, 0));
+    }
+
+    /**
+     * @return all positions as of the last step, interleaved as {@code x0, y0, x1, y1, ...};
+     * the array is never modified after it is returned
+     */
+    public double[] snapshot() {
+        return published;
+    }
+
+    private void applyPins() {
+        boolean moved = false;
+        for (Pin pin; (pin = pins.poll()) != null; ) {
+            pinned[pin.node] = pin.pinned;
+            if (!pin.pinned) continue;
+            x[pin.node] = pin.x;
+            y[pin.node] = pin.y;
+            temperature = Math.max(temperature, 0.2);
+            moved = true;
+        }
+        if (moved) publish();
+    }
+
+    private void publish() {
+        double[] out = new double[size * 2];
+        for (int i = 0; i < size; i++) {
+            out[i * 2] = x[i];
+            out[i * 2 + 1] = y[i];
+        }
+        published = out;
+    }
+
+    private Cell buildTree() {
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            minX = Math.min(minX, x[i]);
+            minY = Math.min(minY, y[i]);
+            maxX = Math.max(maxX, x[i]);
+            maxY = Math.max(maxY, y[i]);
+        }
+        double half = Math.max(maxX - minX, maxY - minY) / 2 + 1;
+        Cell root = new Cell((minX + maxX) / 2, (minY + maxY) / 2, half);
+        for (int i = 0; i < size; i++) {
+            root.insert(i, x[i], y[i], 0);
+        }
+        return root;
+    }
+
+    private void accumulateRepulsion(Cell cell, int i, double[] force) {
+        if (cell.mass == 0) return;
+        double comX = cell.sumX / cell.mass;
+        double comY = cell.sumY / cell.mass;
+        double ddx = x[i] - comX, ddy = y[i] - comY;
+        double d = Math.hypot(ddx, ddy);
+
+        if (cell.children == null) {
+            double mass = cell.mass;
+            if (cell.body == i) {
+                mass -= 1;
+                if (mass <= 0) return;
+            }
+            applyRepulsion(i, ddx, ddy, d, mass, force);
+            return;
+        }
+        if ((cell.half * 2) / Math.max(d, 1e-9) < THETA) {
+            applyRepulsion(i, ddx, ddy, d, cell.mass, force);
+            return;
+        }
+        for (Cell child : cell.children) {
+            if (child != null) accumulateRepulsion(child, i, force);
+        }
+    }
+
+    private void applyRepulsion(int i, double ddx, double ddy, double d, double mass, double[] force) {
+        if (d < 0.01) {
+            // Coincident points: push apart in a stable per-node direction.
+            double angle = (i * 2.399963) % (Math.PI * 2);
+            ddx = Math.cos(angle) * 0.01;
+            ddy = Math.sin(angle) * 0.01;
+            d = 0.01;
+        }
+        double f = mass * k * k / (d * d);
+        force[0] += ddx * f;
+        force[1] += ddy * f;
+    }
+
+    private static final class Cell {
+        final double cx;
+        final double cy;
+        final double half;
+        double mass;
+        double sumX;
+        double sumY;
+        int body = -1;
+        Cell[] children;
+
+        Cell(double cx, double cy, double half) {
+            this.cx = cx;
+            this.cy = cy;
+            this.half = half;
+        }
+
+        void insert(int i, double px, double py, int depth) {
+            if (mass == 0) {
+                body = i;
+                mass = 1;
+                sumX = px;
+                sumY = py;
+                return;
+            }
+            if (children == null) {
+                if (depth >= MAX_DEPTH) {
+                    // Effectively coincident points: aggregate them in this leaf.
+                    mass += 1;
+                    sumX += px;
+                    sumY += py;
+                    return;
+                }
+                children = new Cell[4];
+                int existing = body;
+                double ex = sumX, ey = sumY;
+                body = -1;
+                child(ex, ey).insert(existing, ex, ey, depth + 1);
+            }
+            mass += 1;
+            sumX += px;
+            sumY += py;
+            child(px, py).insert(i, px, py, depth + 1);
+        }
+
+        private Cell child(double px, double py) {
+            int q = (px >= cx ? 1 : 0) | (py >= cy ? 2 : 0);
+            if (children[q] == null) {
+                double h = half / 2;
+                children[q] = new Cell(cx + ((q & 1) != 0 ? h : -h), cy + ((q & 2) != 0 ? h : -h), h);
+            }
+            return children[q];
+        }
+    }
+}
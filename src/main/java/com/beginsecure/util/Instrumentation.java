@@ -0,0 +1,120 @@
+package com.beginsecure.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-phase timings and counters for the load and diagram pipeline, reset at the start of every
+ * repository load. Call sites bracket a unit of work with {@link #start()} and
+ * {@link #stop(Phase, long, long, long)}; counters are lock-free, so phases running on several
+ * threads at once (e.g. parallel fetches) simply add up, and the total time of such a phase can
+ * exceed the wall time. Phases may nest: {@link Phase#STRIP} runs inside {@link Phase#METRICS}
+ * and {@link Phase#RELATIONSHIPS}, and relationship extraction inside
+ * {@link Phase#DIAGRAM_BUILD}. Every call is also recorded in a {@code pipeline.<phase>}
+ * {@link Metrics} histogram, which is not reset.
+ */
+public final class Instrumentation {
+
+    public enum Phase {
+        TREE_LISTING("Tree listing"),
+        FETCH("Fetch"),
+        LOC_COUNT("LOC count"),
+        STRIP("Strip"),
+        METRICS("Metrics"),
+        RELATIONSHIPS("Relationships"),
+        DIAGRAM_BUILD("Diagram build"),
+        RENDER("Render");
+
+        private final String label;
+
+        Phase(String label) {
+            this.label = label;
+        }
+
+        public String label() {
+            return label;
+        }
+    }
+
+    /**
+     * Totals for one phase since the last reset; {@code items} and {@code bytes} are whatever the
+     * phase counts (files fetched, sources stripped, nodes drawn, ...).
+     */
+    public record PhaseStats(Phase phase, long calls, long nanos, long items, long bytes) {
+        public double millis() {
+            return nanos / 1_000_000.0;
+        }
+    }
+
+    private static final Counter[] COUNTERS = new Counter[Phase.values().length];
+    private static final Metrics.Histogram[] HISTOGRAMS = new Metrics.Histogram[Phase.values().length];
+    private static final LongAdder UPDATES = new LongAdder();
+    static {
+        for (Phase phase : Phase.values()) {
+            COUNTERS[phase.ordinal()] = new Counter();
+            HISTOGRAMS[phase.ordinal()] = Metrics.histogram("pipeline." + phase.name().toLowerCase(Locale.ROOT));
+        }
+    }
+
+    private Instrumentation() { }
+
+    /**
+     * @return a start timestamp to hand to {@code stop}
+     */
+    public static long start() {
+        return System.nanoTime();
+    }
+
+    public static void stop(Phase phase, long startNanos) {
+        stop(phase, startNanos, 1, 0);
+    }
+
+    public static void stop(Phase phase, long startNanos, long items, long bytes) {
+        long elapsed = System.nanoTime() - startNanos;
+        Counter counter = COUNTERS[phase.ordinal()];
+        counter.calls.increment();
+        counter.nanos.add(elapsed);
+        counter.items.add(items);
+        counter.bytes.add(bytes);
+        UPDATES.increment();
+        HISTOGRAMS[phase.ordinal()].record(elapsed);
+    }
+
+    public static void reset() {
+        for (Counter counter : COUNTERS) {
+            counter.calls.reset();
+            counter.nanos.reset();
+            counter.items.reset();
+            counter.bytes.reset();
+        }
+        UPDATES.increment();
+    }
+
+    /**
+     * @return a number that changes whenever any counter does, so pollers can skip idle refreshes
+     */
+    public static long version() {
+        return UPDATES.sum();
+    }
+
+    /**
+     * @return current totals for every phase, in pipeline order
+     */
+    public static List<PhaseStats> snapshot() {
+        List<PhaseStats> stats = new ArrayList<>(COUNTERS.length);
+        for (Phase phase : Phase.values()) {
+            Counter c = COUNTERS[phase.ordinal()];
+            stats.add(new PhaseStats(phase, c.calls.sum(), c.nanos.sum(), c.items.sum(), c.bytes.sum()));
+        }
+        return stats;
+    }
+
+    private static final class Counter {
+        final LongAdder calls = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+        final LongAdder items = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+    }
+}
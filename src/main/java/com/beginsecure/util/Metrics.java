@@ -0,0 +1,233 @@
+package com.beginsecure.util;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide counters, gauges and latency histograms, each exported as a platform MXBean under
+ * {@code com.beginsecure:type=Counter|Gauge|Histogram,name=<name>} so JMX tooling (JConsole,
+ * jmx_exporter, ...) can scrape them. Unlike {@link Instrumentation}, nothing here is reset
+ * between loads; values accumulate for the life of the process. Metrics are created on first use
+ * and the same instance is returned for the same name, so call sites keep them in static fields.
+ * Run with {@code -Dgithubviz.jmx=false} to keep them in-process only.
+ */
+public final class Metrics {
+
+    private static final String DOMAIN = "com.beginsecure";
+    private static final boolean EXPORT = !"false".equalsIgnoreCase(System.getProperty("githubviz.jmx"));
+    private static final ConcurrentHashMap<String, Object> REGISTRY = new ConcurrentHashMap<>();
+
+    private Metrics() { }
+
+    public interface CounterMXBean {
+        long getCount();
+    }
+
+    public interface GaugeMXBean {
+        double getValue();
+    }
+
+    /**
+     * Latency summary in milliseconds; percentiles are accurate to within about 1.6%.
+     */
+    public interface HistogramMXBean {
+        long getCount();
+        double getMeanMillis();
+        double getMaxMillis();
+        double getP50Millis();
+        double getP90Millis();
+        double getP99Millis();
+        double getP999Millis();
+    }
+
+    public static Counter counter(String name) {
+        return register("Counter", name, Counter.class, Counter::new);
+    }
+
+    /**
+     * Registers a gauge read from {@code value} whenever it is scraped; a second registration
+     * under the same name keeps the first supplier.
+     */
+    public static void gauge(String name, DoubleSupplier value) {
+        register("Gauge", name, Gauge.class, () -> new Gauge(value));
+    }
+
+    /**
+     * Registers a gauge for {@code hits / (hits + misses)}, or 0 before the first lookup.
+     */
+    public static void hitRatio(String name, Counter hits, Counter misses) {
+        gauge(name, () -> {
+            long h = hits.getCount();
+            long total = h + misses.getCount();
+            return total == 0 ? 0 : (double) h / total;
+        });
+    }
+
+    public static Histogram histogram(String name) {
+        return register("Histogram", name, Histogram.class, Histogram::new);
+    }
+
+    private static <T> T register(String type, String name, Class<T> kind, Supplier<T> factory) {
+        Object metric = REGISTRY.computeIfAbsent(type + ':' + name, key -> {
+            T created = factory.get();
+            if (EXPORT) export(type, name, created);
+            return created;
+        });
+        return kind.cast(metric);
+    }
+
+    private static void export(String type, String name, Object metric) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(DOMAIN + ":type=" + type + ",name=" + name);
+            if (!server.isRegistered(objectName)) server.registerMBean(metric, objectName);
+        } catch (JMException | SecurityException ignored) {
+            // still usable in-process; it just is not visible over JMX
+        }
+    }
+
+    public static final class Counter implements CounterMXBean {
+        private final LongAdder count = new LongAdder();
+
+        private Counter() { }
+
+        public void increment() {
+            count.increment();
+        }
+
+        public void add(long amount) {
+            count.add(amount);
+        }
+
+        @Override public long getCount() {
+            return count.sum();
+        }
+    }
+
+    private static final class Gauge implements GaugeMXBean {
+        private final DoubleSupplier value;
+
+        Gauge(DoubleSupplier value) {
+            this.value = value;
+        }
+
+        @Override public double getValue() {
+            return value.getAsDouble();
+        }
+    }
+
+    /**
+     * Lock-free log-linear histogram of nanosecond durations in the style of HdrHistogram: exact
+     * below 128 ns, then 64 linear sub-buckets per power of two up to about 18 minutes; longer
+     * values land in the last bucket.
+     */
+    public static final class Histogram implements HistogramMXBean {
+        private static final int SUB_BITS = 6;
+        private static final int SUB_COUNT = 1 << SUB_BITS;
+        private static final int MAX_MAGNITUDE = 40;
+        private static final long MAX_VALUE = (1L << MAX_MAGNITUDE) - 1;
+        private static final int BUCKETS = 2 * SUB_COUNT + (MAX_MAGNITUDE - SUB_BITS - 1) * SUB_COUNT;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        private Histogram() { }
+
+        /**
+         * @return a start timestamp to hand to {@link #recordSince(long)}
+         */
+        public static long start() {
+            return System.nanoTime();
+        }
+
+        public void recordSince(long startNanos) {
+            record(System.nanoTime() - startNanos);
+        }
+
+        public void record(long nanos) {
+            long value = Math.min(Math.max(nanos, 0), MAX_VALUE);
+            counts.incrementAndGet(index(value));
+            count.increment();
+            sum.add(value);
+            max.accumulate(value);
+        }
+
+        static int index(long value) {
+            if (value < 2 * SUB_COUNT) return (int) value;
+            int magnitude = 63 - Long.numberOfLeadingZeros(value);
+            int shift = magnitude - SUB_BITS;
+            return 2 * SUB_COUNT + (shift - 1) * SUB_COUNT + (int) (value >>> shift) - SUB_COUNT;
+        }
+
+        /**
+         * @return the largest value that maps to bucket {@code index}
+         */
+        static long highestValue(int index) {
+            if (index < 2 * SUB_COUNT) return index;
+            int offset = index - 2 * SUB_COUNT;
+            int shift = offset / SUB_COUNT + 1;
+            long sub = offset % SUB_COUNT + SUB_COUNT;
+            return ((sub + 1) << shift) - 1;
+        }
+
+        /**
+         * @param quantile between 0 and 1
+         * @return the value at {@code quantile} in nanoseconds, 0 if nothing was recorded
+         */
+        public long valueAt(double quantile) {
+            long total = 0;
+            long[] snapshot = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                snapshot[i] = counts.get(i);
+                total += snapshot[i];
+            }
+            if (total == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(quantile * total));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += snapshot[i];
+                if (seen >= rank) return Math.min(highestValue(i), max.get());
+            }
+            return max.get();
+        }
+
+        @Override public long getCount() {
+            return count.sum();
+        }
+
+        @Override public double getMeanMillis() {
+            long n = count.sum();
+            return n == 0 ? 0 : sum.sum() / (double) n / 1_000_000.0;
+        }
+
+        @Override public double getMaxMillis() {
+            return max.get() / 1_000_000.0;
+        }
+
+        @Override public double getP50Millis() {
+            return valueAt(0.50) / 1_000_000.0;
+        }
+
+        @Override public double getP90Millis() {
+            return valueAt(0.90) / 1_000_000.0;
+        }
+
+        @Override public double getP99Millis() {
+            return valueAt(0.99) / 1_000_000.0;
+        }
+
+        @Override public double getP999Millis() {
+            return valueAt(0.999) / 1_000_000.0;
+        }
+    }
+}
@@ -77,6 +77,9 @@ public final class RelationshipExtractor {
     }
 
     public static List<Relationship> extract(List<Square> squares) {
+        long start = Instrumentation.start();
+        FlightEvents.RelationshipExtraction event = new FlightEvents.RelationshipExtraction();
+        event.begin();
         Map<String, String> codeByName = new HashMap<>();
         for (Square square : squares) {
             if (square == null) continue;
@@ -96,6 +99,13 @@ public final class RelationshipExtractor {
             relationships.addAll(findFieldAssociations(name, code));
             relationships.addAll(findConstructorDependencies(name, code));
         }
+        Instrumentation.stop(Instrumentation.Phase.RELATIONSHIPS, start, squares.size(), 0);
+        event.end();
+        if (event.shouldCommit()) {
+            event.files = squares.size();
+            event.relationships = relationships.size();
+            event.commit();
+        }
         return new ArrayList<>(relationships);
     }
 
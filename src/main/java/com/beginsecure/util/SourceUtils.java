@@ -17,10 +17,12 @@ public final class SourceUtils {
 
     public static String stripCommentsAndStrings(String src) {
         if (src == null) return "";
+        long start = Instrumentation.start();
         String result = src.replaceAll("(?s)/\\*.*?\\*/", " ");
         result = result.replaceAll("(?m)//.*", " ");
         result = result.replaceAll("\"([^\"\\\\]|\\\\.)*\"", "\"\"");
         result = result.replaceAll("'([^'\\\\]|\\\\.)*'", "''");
+        Instrumentation.stop(Instrumentation.Phase.STRIP, start, 1, src.length());
         return result;
     }
 